@@ -0,0 +1,40 @@
+package broadcaster;
+
+import protocol.BinaryFrameReader;
+
+/**
+ * A frame which a client sent using binary protocol, see {@link protocol.Opcodes}.<br>
+ * Given to {@link codes.IClientCode codes} so they can read a payload and answer a client
+ * without knowing how client is connected.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public interface BinaryRequest {
+
+    /**
+     * Returns UUID of a client which sent a frame.
+     *
+     * @return
+     *        UUID of a client which sent a frame
+     */
+    String getUUID();
+
+
+    /**
+     * Returns reader positioned at the start of a payload. Reader is valid only until code returns.
+     *
+     * @return
+     *        reader of a payload
+     */
+    BinaryFrameReader getPayload();
+
+
+    /**
+     * Sends {@code frame} to a client which sent a frame.
+     *
+     * @param frame
+     *        which is sent
+     */
+    void reply(BroadcastFrame frame);
+}
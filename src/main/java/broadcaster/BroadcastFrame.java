@@ -0,0 +1,194 @@
+package broadcaster;
+
+import codes.IServerCode;
+import model.PlayerSnapshot;
+import protocol.BinaryFrameWriter;
+import protocol.WireFormat;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable, already encoded message which is sent to many clients.<br>
+ *
+ * Message is encoded at most once per {@link WireFormat}, no matter how many clients receive it. Encoding for
+ * a format is done when the first client using that format needs it. Every client gets its own
+ * {@link #payload(WireFormat) view} of the same read-only bytes, so cost of a broadcast depends only on
+ * number of bytes copied to sockets.
+ *
+ * @author Ivica Duspara
+ * @version 1.2
+ */
+public final class BroadcastFrame {
+
+    /**
+     * Writer reused by frames encoded on the same thread.
+     */
+    private static final ThreadLocal<BinaryFrameWriter> BINARY_WRITER = ThreadLocal.withInitial(BinaryFrameWriter::new);
+
+    /**
+     * Writes message as text.
+     */
+    private final Encoder textEncoder;
+
+    /**
+     * Writes message as a binary frame.
+     */
+    private final BinaryEncoder binaryEncoder;
+
+    /**
+     * Encoded message indexed by {@link WireFormat#ordinal()}.
+     */
+    private final AtomicReferenceArray<ByteBuffer> encoded;
+
+
+    /**
+     * Constructs a new {@code BroadcastFrame}.
+     *
+     * @param textEncoder
+     *        which writes message as text
+     *
+     * @param binaryEncoder
+     *        which writes message as a binary frame
+     */
+    private BroadcastFrame(Encoder textEncoder, BinaryEncoder binaryEncoder) {
+        this.textEncoder = textEncoder;
+        this.binaryEncoder = binaryEncoder;
+        this.encoded = new AtomicReferenceArray<>(WireFormat.values().length);
+    }
+
+
+    /**
+     * Creates a new {@code BroadcastFrame} from a message written by given encoders.
+     *
+     * @param textEncoder
+     *        which writes message as text
+     *
+     * @param binaryEncoder
+     *        which writes message as a binary frame
+     *
+     * @return
+     *        a new {@code BroadcastFrame}
+     */
+    public static BroadcastFrame of(Encoder textEncoder, BinaryEncoder binaryEncoder) {
+        return new BroadcastFrame(textEncoder, binaryEncoder);
+    }
+
+
+    /**
+     * Creates a new {@code BroadcastFrame} from a message written by {@code code}.
+     *
+     * @param code
+     *        which writes a message
+     *
+     * @param snapshot
+     *        from which a message is written
+     *
+     * @return
+     *        a new {@code BroadcastFrame}
+     */
+    public static BroadcastFrame of(IServerCode code, PlayerSnapshot snapshot) {
+        return new BroadcastFrame(writer -> code.execute(snapshot, writer), writer -> code.encode(snapshot, writer));
+    }
+
+
+    /**
+     * Returns a new read-only view of message encoded for {@code format}. Views share bytes,
+     * but have independent positions.
+     *
+     * @param format
+     *        of a client
+     *
+     * @return
+     *        a new read-only view of encoded message
+     */
+    public ByteBuffer payload(WireFormat format) {
+        ByteBuffer bytes = encoded.get(format.ordinal());
+        if(bytes == null) {
+            bytes = encode(format);
+        }
+        return bytes.duplicate();
+    }
+
+
+    /**
+     * Encodes message for {@code format} if it is not already encoded.
+     *
+     * @param format
+     *        of a client
+     *
+     * @return
+     *        encoded message
+     */
+    private synchronized ByteBuffer encode(WireFormat format) {
+        ByteBuffer bytes = encoded.get(format.ordinal());
+        if(bytes != null) {
+            return bytes;
+        }
+        if(format == WireFormat.BINARY) {
+            BinaryFrameWriter writer = BINARY_WRITER.get();
+            binaryEncoder.encode(writer);
+            bytes = writer.finish();
+        }
+        else {
+            try {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, Charset.forName("UTF-8")));
+                textEncoder.encode(writer);
+                writer.flush();
+                bytes = ByteBuffer.wrap(output.toByteArray()).asReadOnlyBuffer();
+            }catch(IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+        encoded.set(format.ordinal(), bytes);
+        return bytes;
+    }
+
+
+    /**
+     * Writes a message which is encoded into {@link BroadcastFrame} as text.
+     *
+     * @author Ivica Duspara
+     * @version 1.0
+     */
+    @FunctionalInterface
+    public interface Encoder {
+
+        /**
+         * Writes a message to {@code writer}.
+         *
+         * @param writer
+         *        to which message is written
+         *
+         * @throws IOException
+         *         if an error occurs while writing
+         */
+        void encode(BufferedWriter writer) throws IOException;
+    }
+
+
+    /**
+     * Writes a message which is encoded into {@link BroadcastFrame} as a binary frame.
+     *
+     * @author Ivica Duspara
+     * @version 1.0
+     */
+    @FunctionalInterface
+    public interface BinaryEncoder {
+
+        /**
+         * Writes a message to {@code writer}, starting with {@link BinaryFrameWriter#begin(int)}.
+         *
+         * @param writer
+         *        to which message is written
+         */
+        void encode(BinaryFrameWriter writer);
+    }
+}
@@ -0,0 +1,434 @@
+package broadcaster;
+
+import protocol.BinaryFrameReader;
+import protocol.Handshake;
+import protocol.WireFormat;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Models a single client served by {@link SelectorEngine.EventLoop}.<br>
+ *
+ * Incoming bytes are split into lines. First two lines are a handshake (code and client's UUID), same as
+ * in blocking transport. Every following line is a code which is executed by {@link ListBroadcaster} once
+ * all of its {@link codes.IClientCode#getArgumentCount() arguments} have arrived, so an event loop never waits
+ * for a slow client.<br>
+ *
+ * Complete codes are not executed by an event loop. They are queued in {@link #pendingCodes} and executed one
+ * after another on a pool of {@link SelectorEngine}, so codes of one client keep their order while an event loop
+ * keeps serving other clients.<br>
+ *
+ * Client which negotiates {@link WireFormat#BINARY} sends frames after the handshake instead of lines. A frame is
+ * executed once its whole payload is in {@link #readBuffer}, incomplete frame stays in the buffer until the rest
+ * of it arrives. Payload of a complete frame is copied, because a code runs after the buffer is reused.<br>
+ *
+ * Codes write to a {@link BufferedWriter} of this connection. Flushing that writer does not touch a socket,
+ * written bytes are queued and sent by event loop once channel is writable.
+ *
+ * @author Ivica Duspara
+ * @version 1.3
+ */
+class ChannelConnection extends ClientConnection {
+
+    /**
+     * Size of a buffer used for reading from channel.
+     */
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    /**
+     * Longest line a client may send. Longer lines close the connection.
+     */
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    /**
+     * Number of lines which make a handshake.
+     */
+    private static final int HANDSHAKE_LINES = 2;
+
+    /**
+     * Channel of a client.
+     */
+    private SocketChannel channel;
+
+    /**
+     * Loop which serves this connection.
+     */
+    private SelectorEngine.EventLoop loop;
+
+    /**
+     * Key of {@link #channel} in loop's selector.
+     */
+    private SelectionKey key;
+
+    /**
+     * Buffer used for reading from channel. Between two reads it is in write mode and holds
+     * bytes of an incomplete binary frame, if any.
+     */
+    private ByteBuffer readBuffer;
+
+    /**
+     * Bytes of a line which has not been terminated yet.
+     */
+    private byte[] lineBytes;
+
+    /**
+     * Number of used bytes in {@link #lineBytes}.
+     */
+    private int lineLength;
+
+    /**
+     * Complete lines which were not yet consumed.
+     */
+    private Queue<String> lines;
+
+    /**
+     * Set while a task which enables writing is posted to a loop.
+     */
+    private AtomicBoolean writeScheduled;
+
+    /**
+     * Codes which arrived but were not executed yet.
+     */
+    private Queue<Runnable> pendingCodes;
+
+    /**
+     * Set while a task which executes {@link #pendingCodes} is submitted.
+     */
+    private AtomicBoolean executing;
+
+    /**
+     * Indicates whether this connection is closed.
+     */
+    private volatile boolean closed;
+
+
+    /**
+     * Constructs a new {@code ChannelConnection} with given parameters.
+     *
+     * @param channel
+     *        non-blocking channel of a client
+     *
+     * @param loop
+     *        which serves this connection
+     *
+     * @param broadcaster
+     *        which executes codes
+     */
+    ChannelConnection(SocketChannel channel, SelectorEngine.EventLoop loop, ListBroadcaster broadcaster) {
+        super(broadcaster);
+        this.channel = channel;
+        this.loop = loop;
+        this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        this.lineBytes = new byte[256];
+        this.lines = new ArrayDeque<>();
+        this.writeScheduled = new AtomicBoolean();
+        this.pendingCodes = new ConcurrentLinkedQueue<>();
+        this.executing = new AtomicBoolean();
+    }
+
+
+    /**
+     * Sets selection key of this connection.
+     *
+     * @param key
+     *        of this connection's channel
+     */
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+
+    /**
+     * Reads available bytes and executes every complete code. Called by event loop.
+     */
+    void onReadable() {
+        try {
+            int read;
+            while((read = channel.read(readBuffer)) > 0) {
+                readBuffer.flip();
+                consume();
+                readBuffer.compact();
+                if(!readBuffer.hasRemaining()) {
+                    growReadBuffer();
+                }
+            }
+            if(read < 0) {
+                close();
+            }
+        }catch(IOException | RuntimeException exception) {
+            System.out.println("Greška at: " + exception.getMessage());
+            close();
+        }
+    }
+
+
+    /**
+     * Writes queued bytes until channel would block. Called by event loop.
+     */
+    void onWritable() {
+        try {
+            ByteBuffer head;
+            while((head = outbound.peek()) != null) {
+                channel.write(head);
+                if(head.hasRemaining()) {
+                    return;
+                }
+                outbound.remove();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            writeScheduled.set(false);
+            if(!outbound.isEmpty()) {
+                scheduleWrite();
+            }
+            else {
+                drained();
+            }
+        }catch(IOException | RuntimeException exception) {
+            close();
+        }
+    }
+
+
+    /**
+     * Closes this connection and removes its writer from broadcaster.
+     */
+    @Override
+    void close() {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        broadcaster.unregister(this);
+        if(key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        }catch(IOException ex) {
+            System.out.println("Couldn't close a socket, ignoring it.");
+        }
+        outbound.clear();
+        pendingCodes.clear();
+        releaseCompressor();
+    }
+
+
+    /**
+     * Queues {@code code} and makes sure it will be executed after every code which arrived before it.
+     *
+     * @param code
+     *        sent by a client
+     */
+    private void execute(Runnable code) {
+        pendingCodes.add(code);
+        if(executing.compareAndSet(false, true)) {
+            loop.dispatch(this::executePending);
+        }
+    }
+
+
+    /**
+     * Executes {@link #pendingCodes} until there are none left. Code which fails closes this connection.
+     */
+    private void executePending() {
+        do {
+            Runnable code;
+            while((code = pendingCodes.poll()) != null && !closed) {
+                try {
+                    code.run();
+                }catch(RuntimeException exception) {
+                    System.out.println("Greška at: " + exception.getMessage());
+                    close();
+                }
+            }
+            executing.set(false);
+        } while(!pendingCodes.isEmpty() && !closed && executing.compareAndSet(false, true));
+    }
+
+
+    /**
+     * Consumes bytes of {@link #readBuffer}, which is in read mode. Handshake is always made of lines,
+     * what follows depends on negotiated {@link WireFormat}.
+     *
+     * @throws IOException
+     *         if client breaks the protocol
+     */
+    private void consume() throws IOException {
+        while(UUID == null && splitLine()) {
+            if(lines.size() == HANDSHAKE_LINES) {
+                Handshake handshake = Handshake.parse(lines.poll());
+                UUID = lines.poll();
+                negotiate(handshake);
+                broadcaster.register(this);
+            }
+        }
+        if(UUID == null) {
+            return;
+        }
+        if(format == WireFormat.BINARY) {
+            parseFrames();
+        }
+        else {
+            while(splitLine()) {
+            }
+            processLines();
+        }
+    }
+
+
+    /**
+     * Moves the next complete line from {@link #readBuffer} to {@link #lines}.
+     *
+     * @return
+     *        {@code true} if a line was completed, {@code false} if buffer has no more bytes
+     *
+     * @throws IOException
+     *         if client sends a line longer than {@link #MAX_LINE_LENGTH}
+     */
+    private boolean splitLine() throws IOException {
+        while(readBuffer.hasRemaining()) {
+            byte b = readBuffer.get();
+            if(b == '\n') {
+                int length = lineLength;
+                if(length > 0 && lineBytes[length - 1] == '\r') {
+                    length--;
+                }
+                lines.add(new String(lineBytes, 0, length, Charset.forName("UTF-8")));
+                lineLength = 0;
+                return true;
+            }
+            if(lineLength == lineBytes.length) {
+                if(lineLength >= MAX_LINE_LENGTH) {
+                    throw new IOException("Line too long.");
+                }
+                lineBytes = Arrays.copyOf(lineBytes, lineLength * 2);
+            }
+            lineBytes[lineLength++] = b;
+        }
+        return false;
+    }
+
+
+    /**
+     * Queues for execution every complete binary frame of {@link #readBuffer}. Position is left at the start
+     * of an incomplete frame.
+     *
+     * @throws IOException
+     *         if a frame is longer than {@link #MAX_FRAME_LENGTH}
+     */
+    private void parseFrames() throws IOException {
+        while(readBuffer.remaining() > 1) {
+            int start = readBuffer.position();
+            int limit = readBuffer.limit();
+            int lengthSize = BinaryFrameReader.varintLength(readBuffer, start + 1, limit);
+            if(lengthSize == 0) {
+                return;
+            }
+            long length = BinaryFrameReader.varintAt(readBuffer, start + 1);
+            if(length < 0 || length > MAX_FRAME_LENGTH) {
+                throw new IOException("Frame too long.");
+            }
+            int payloadStart = start + 1 + lengthSize;
+            if(limit - payloadStart < length) {
+                return;
+            }
+            int opcode = readBuffer.get(start) & 0xFF;
+            ByteBuffer frame = ByteBuffer.allocate((int) length);
+            ByteBuffer source = readBuffer.duplicate();
+            source.limit(payloadStart + (int) length);
+            source.position(payloadStart);
+            frame.put(source);
+            readBuffer.position(payloadStart + (int) length);
+            execute(() -> {
+                try {
+                    payload.reset(frame, 0, frame.capacity());
+                    broadcaster.dispatchBinary(this, opcode);
+                }catch(IOException exception) {
+                    System.out.println("Greška at: " + exception.getMessage());
+                    close();
+                }
+            });
+        }
+    }
+
+
+    /**
+     * Doubles {@link #readBuffer} so an incomplete frame which fills it can be completed.
+     * Buffer is in write mode.
+     *
+     * @throws IOException
+     *         if buffer already holds the longest allowed frame
+     */
+    private void growReadBuffer() throws IOException {
+        if(readBuffer.capacity() > MAX_FRAME_LENGTH) {
+            throw new IOException("Frame too long.");
+        }
+        readBuffer.flip();
+        readBuffer = ByteBuffer.allocate(readBuffer.capacity() * 2).put(readBuffer);
+    }
+
+
+    /**
+     * Queues for execution codes whose arguments have all arrived.
+     */
+    private void processLines() {
+        while(!lines.isEmpty()) {
+            String token = lines.peek();
+            int argumentCount = broadcaster.getArgumentCount(token);
+            if(argumentCount < 0) {
+                lines.poll();
+                System.out.println("Unknown code received: " + token);
+                continue;
+            }
+            if(lines.size() <= argumentCount) {
+                return;
+            }
+            lines.poll();
+            StringBuilder arguments = new StringBuilder();
+            for(int i = 0; i < argumentCount; i++) {
+                arguments.append(lines.poll()).append('\n');
+            }
+            execute(() -> {
+                try {
+                    broadcaster.dispatch(token, writer, new BufferedReader(new StringReader(arguments.toString())));
+                }catch(NoSuchMethodException exception) {
+                    System.out.println("Greška at: " + exception.getMessage());
+                }catch(IOException exception) {
+                    System.out.println("Greška at: " + exception.getMessage());
+                    close();
+                }
+            });
+        }
+    }
+
+
+    @Override
+    boolean isClosed() {
+        return closed;
+    }
+
+
+    /**
+     * Posts a task to event loop which enables {@link SelectionKey#OP_WRITE} if such task is not already posted.
+     */
+    @Override
+    void scheduleWrite() {
+        if(writeScheduled.compareAndSet(false, true)) {
+            loop.execute(() -> {
+                if(key != null && key.isValid()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,247 @@
+package broadcaster;
+
+import protocol.BinaryFrameReader;
+import protocol.FrameCompressor;
+import protocol.Handshake;
+import protocol.Opcodes;
+import protocol.WireFormat;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Models a connected client regardless of {@link TransportMode}.<br>
+ *
+ * Every client has its own bounded {@link OutboundQueue}. Messages are only queued by a sender, actual writing
+ * is done by transport, therefore one stalled client can not hold up a notification sent to everyone else.
+ * When a queue overflows {@link SlowConsumerPolicy} of {@link ListBroadcaster} decides whether client
+ * is disconnected or downgraded.<br>
+ *
+ * Framing is chosen by a client in a {@link Handshake}. Connection remembers its {@link WireFormat} and
+ * receives every {@link BroadcastFrame} encoded in that format. Binary clients may also ask for compression,
+ * in which case every frame passes through a {@link FrameCompressor} owned by this connection.
+ *
+ * @author Ivica Duspara
+ * @version 1.2
+ */
+abstract class ClientConnection implements BinaryRequest {
+
+    /**
+     * Longest payload of a binary frame which a client may send.
+     */
+    static final int MAX_FRAME_LENGTH = 64 * 1024;
+
+
+    /**
+     * Broadcaster which serves this client.
+     */
+    protected ListBroadcaster broadcaster;
+
+    /**
+     * Messages waiting to be written.
+     */
+    protected OutboundQueue outbound;
+
+    /**
+     * Writer used by codes. Flushing it queues written message.
+     */
+    protected BufferedWriter writer;
+
+    /**
+     * UUID which identifies a device, {@code null} until handshake is done.
+     */
+    protected volatile String UUID;
+
+    /**
+     * Framing used by this client, {@link WireFormat#TEXT} until handshake says otherwise.
+     */
+    protected volatile WireFormat format;
+
+    /**
+     * Reader of a binary frame which is being executed.
+     */
+    protected BinaryFrameReader payload;
+
+    /**
+     * Compressor of frames, {@code null} if client did not ask for compression.
+     */
+    private volatile FrameCompressor compressor;
+
+    /**
+     * Set while client is downgraded. Downgraded client skips messages until it is resynchronized.
+     */
+    private volatile boolean lagging;
+
+
+    /**
+     * Constructs a new {@code ClientConnection}.
+     *
+     * @param broadcaster
+     *        which serves this client
+     */
+    ClientConnection(ListBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+        this.outbound = broadcaster.createOutboundQueue();
+        this.format = WireFormat.TEXT;
+        this.payload = new BinaryFrameReader();
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FrameOutputStream(this), Charset.forName("UTF-8")));
+    }
+
+
+    /**
+     * Returns writer of this client.
+     *
+     * @return
+     *        writer of this client
+     */
+    BufferedWriter getWriter() {
+        return writer;
+    }
+
+
+    /**
+     * Returns UUID of this client or {@code null} if handshake is not done.
+     *
+     * @return
+     *        UUID of this client
+     */
+    @Override
+    public String getUUID() {
+        return UUID;
+    }
+
+
+    @Override
+    public BinaryFrameReader getPayload() {
+        return payload;
+    }
+
+
+    @Override
+    public void reply(BroadcastFrame frame) {
+        send(frame);
+    }
+
+
+    /**
+     * Applies options requested in a {@code handshake}. Binary protocol is confirmed
+     * with {@link Opcodes#SERVER_HELLO} before any other message.
+     *
+     * @param handshake
+     *        sent by a client
+     */
+    protected void negotiate(Handshake handshake) {
+        format = handshake.getFormat();
+        if(format == WireFormat.BINARY) {
+            int flags = handshake.isCompressed() ? Opcodes.HELLO_DEFLATE : 0;
+            send(BroadcastFrame.of(writer -> {}, writer -> {
+                writer.begin(Opcodes.SERVER_HELLO);
+                writer.writeVarint(Opcodes.PROTOCOL_VERSION);
+                writer.writeVarint(flags);
+            }));
+            if(handshake.isCompressed()) {
+                compressor = broadcaster.createCompressor();
+            }
+        }
+    }
+
+
+    /**
+     * Queues {@code frame} encoded in format of this client. Frames are compressed under the monitor of
+     * a compressor, so they are queued in the same order in which they entered the stream.
+     *
+     * @param frame
+     *        message which is sent
+     */
+    void send(BroadcastFrame frame) {
+        FrameCompressor compressor = this.compressor;
+        if(compressor == null) {
+            send(frame.payload(format));
+            return;
+        }
+        ByteBuffer bytes = frame.payload(format);
+        synchronized(compressor) {
+            if(isClosed() || lagging) {
+                return;
+            }
+            send(compressor.compress(bytes));
+        }
+    }
+
+
+    /**
+     * Releases compressor of this connection. Called by transport once connection is closed.
+     */
+    protected void releaseCompressor() {
+        FrameCompressor compressor = this.compressor;
+        if(compressor != null) {
+            compressor.end();
+        }
+    }
+
+
+    /**
+     * Queues {@code frame} for writing. If queue is full {@link SlowConsumerPolicy} is applied.
+     *
+     * @param frame
+     *        complete message which is sent
+     */
+    void send(ByteBuffer frame) {
+        if(isClosed() || lagging) {
+            return;
+        }
+        if(outbound.offer(frame)) {
+            scheduleWrite();
+            return;
+        }
+        if(broadcaster.getSlowConsumerPolicy() == SlowConsumerPolicy.EVICT) {
+            System.out.println("Client " + UUID + " is too slow, disconnecting it.");
+            close();
+        }
+        else {
+            System.out.println("Client " + UUID + " is too slow, skipping messages until it catches up.");
+            lagging = true;
+            outbound.discardPending();
+            FrameCompressor compressor = this.compressor;
+            if(compressor != null) {
+                compressor.restart();
+            }
+            scheduleWrite();
+        }
+    }
+
+
+    /**
+     * Called by transport once every queued message is written.
+     * Downgraded client is resynchronized at this point.
+     */
+    protected void drained() {
+        if(lagging && !isClosed()) {
+            lagging = false;
+            broadcaster.resynchronize(this);
+        }
+    }
+
+
+    /**
+     * Makes sure transport will write queued messages.
+     */
+    abstract void scheduleWrite();
+
+
+    /**
+     * Closes this connection.
+     */
+    abstract void close();
+
+
+    /**
+     * Returns {@code true} if this connection is closed.
+     *
+     * @return
+     *        {@code true} if this connection is closed
+     */
+    abstract boolean isClosed();
+}
@@ -0,0 +1,60 @@
+package broadcaster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@code OutputStream} under a client's writer. Written bytes are collected until flush and then
+ * handed over to {@link ClientConnection} as a single message, so writing never blocks on a socket.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+class FrameOutputStream extends OutputStream {
+
+    /**
+     * Connection which receives messages.
+     */
+    private ClientConnection connection;
+
+    /**
+     * Bytes written since last flush.
+     */
+    private ByteArrayOutputStream pending;
+
+
+    /**
+     * Constructs a new {@code FrameOutputStream}.
+     *
+     * @param connection
+     *        which receives messages
+     */
+    FrameOutputStream(ClientConnection connection) {
+        this.connection = connection;
+        this.pending = new ByteArrayOutputStream();
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        pending.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        pending.write(b, off, len);
+    }
+
+    @Override
+    public synchronized void flush() {
+        if(pending.size() > 0) {
+            connection.send(ByteBuffer.wrap(pending.toByteArray()));
+            pending.reset();
+        }
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+    }
+}
@@ -2,25 +2,39 @@ package broadcaster;
 
 import codes.IClientCode;
 import codes.IServerCode;
+import codes.concreteclientcodes.AbstractClientBroadcastCode;
 import codes.concreteclientcodes.ClientNowPlayingRequestCode;
 import codes.concreteclientcodes.ClientQueueCode;
 import codes.concreteclientcodes.ClientQueueRequestCode;
 import codes.concreteclientcodes.ClientSongRequestCode;
+import codes.concreteclientcodes.ClientSongsSinceCode;
 import codes.concreteservercodes.*;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import model.Codes;
 import model.PlayerData;
+import model.PlayerSnapshot;
 import observers.NetworkPlayerDataObserver;
+import protocol.BinaryFrameReader;
+import protocol.FrameCompressor;
+import protocol.Handshake;
+import protocol.Opcodes;
+import protocol.WireFormat;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
 
 
 /**
@@ -33,8 +47,18 @@ import java.util.concurrent.Executors;
  * </ol>
  *
  *
+ * Clients are served either by blocking workers or by {@link SelectorEngine non-blocking event loops},
+ * see {@link TransportMode}.<br>
+ *
+ * Notifications are sent from a dedicated executor. Every notification is encoded once into a {@link BroadcastFrame}
+ * whose bytes are shared by all clients. Sending only places a message in a bounded
+ * {@link OutboundQueue} of every client, writing is done by transport, so a slow client can not hold up others.
+ * Clients which can not keep up are handled by {@link SlowConsumerPolicy}.<br>
+ *
+ * Clients speak either legacy text protocol or binary protocol, see {@link Opcodes}.
+ *
  * @author Ivica Duspara
- * @version 1.1
+ * @version 1.7
  */
 public class ListBroadcaster implements NetworkPlayerDataObserver {
 
@@ -48,6 +72,61 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
      */
     private static final int PORT = 13370;
 
+    /**
+     * System property used for choosing {@link TransportMode}.
+     */
+    public static final String TRANSPORT_PROPERTY = "meteor.transport";
+
+    /**
+     * System property used for choosing address to which server is bound instead of a private address of this machine.
+     */
+    public static final String BIND_ADDRESS_PROPERTY = "meteor.bindAddress";
+
+    /**
+     * System property used for choosing port on which server is started.
+     */
+    public static final String PORT_PROPERTY = "meteor.port";
+
+    /**
+     * System property used for choosing number of event loops in {@link TransportMode#SELECTOR} mode.
+     */
+    public static final String EVENT_LOOPS_PROPERTY = "meteor.eventLoops";
+
+    /**
+     * System property used for choosing {@link SlowConsumerPolicy}.
+     */
+    public static final String SLOW_CONSUMER_PROPERTY = "meteor.slowConsumer";
+
+    /**
+     * System property used for setting maximum number of messages queued for a single client.
+     */
+    public static final String OUTBOUND_MESSAGES_PROPERTY = "meteor.outboundMessages";
+
+    /**
+     * System property used for setting maximum number of bytes queued for a single client.
+     */
+    public static final String OUTBOUND_BYTES_PROPERTY = "meteor.outboundBytes";
+
+    /**
+     * System property used for setting deflate level of compressed connections.
+     */
+    public static final String COMPRESSION_LEVEL_PROPERTY = "meteor.compressionLevel";
+
+    /**
+     * System property used for setting length of the shortest payload which is compressed.
+     */
+    public static final String COMPRESSION_THRESHOLD_PROPERTY = "meteor.compressionThreshold";
+
+    /**
+     * Default maximum number of messages queued for a single client.
+     */
+    private static final int DEFAULT_OUTBOUND_MESSAGES = 256;
+
+    /**
+     * Default maximum number of bytes queued for a single client.
+     */
+    private static final long DEFAULT_OUTBOUND_BYTES = 4L * 1024 * 1024;
+
     /**
      * Used for comparing IP addresses.
      * See:
@@ -83,6 +162,11 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
      */
     private Map<String, IClientCode> clientCodeMap;
 
+    /**
+     * {@link IClientCode Codes} indexed by opcode of a binary frame.
+     */
+    private IClientCode[] binaryCodes;
+
 
 
     /**
@@ -98,17 +182,71 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
 
 
     /**
-     *  ServerSocket of {@code ListBroadcaster}
+     *  ServerSocketChannel of {@code ListBroadcaster}
+     */
+    private ServerSocketChannel server;
+
+
+    /**
+     * Transport used for serving clients.
+     */
+    private TransportMode transportMode;
+
+
+    /**
+     * Engine which serves clients in {@link TransportMode#SELECTOR} mode.
      */
-    private ServerSocket server;
+    private SelectorEngine selectorEngine;
 
 
     /**
-     * Executor pool used for serving clients
+     * Executor pool used for serving clients in {@link TransportMode#BLOCKING} mode
      */
     private ExecutorService pool;
 
 
+    /**
+     * Executor used for writing to clients in {@link TransportMode#BLOCKING} mode
+     */
+    private ExecutorService writerPool;
+
+
+    /**
+     * Executor used for sending notifications to clients
+     */
+    private ExecutorService notificationPool;
+
+
+    /**
+     * Policy applied to clients which can not keep up
+     */
+    private SlowConsumerPolicy slowConsumerPolicy;
+
+
+    /**
+     * Maximum number of messages queued for a single client
+     */
+    private int outboundMessages;
+
+
+    /**
+     * Maximum number of bytes queued for a single client
+     */
+    private long outboundBytes;
+
+
+    /**
+     * Deflate level of compressed connections
+     */
+    private int compressionLevel;
+
+
+    /**
+     * Length of the shortest payload which is compressed
+     */
+    private int compressionThreshold;
+
+
     /**
      * Subject of this {@link NetworkPlayerDataObserver}.
      */
@@ -120,6 +258,11 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
      */
     private Map<String, BufferedWriter> clientWriters;
 
+    /**
+     * {@code Map} of connected clients
+     */
+    private Map<String, ClientConnection> clients;
+
     /**
      * {@link Codes} reference used in broadcaster
      */
@@ -217,15 +360,26 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
         IClientCode i7 = new ClientSongRequestCode();
         IClientCode i8 = new ClientQueueRequestCode();
         IClientCode i9 = new ClientNowPlayingRequestCode();
+        IServerCode i10 = new ServerSongDeltaCode();
+        IClientCode i11 = new ClientSongsSinceCode();
         communicationCodes.put(i1.getClass().getSimpleName(), i1);
         communicationCodes.put(i2.getClass().getSimpleName(), i2);
         communicationCodes.put(i3.getClass().getSimpleName(), i3);
         communicationCodes.put(i4.getClass().getSimpleName(), i4);
         communicationCodes.put(i5.getClass().getSimpleName(), i5);
+        communicationCodes.put(i10.getClass().getSimpleName(), i10);
         clientCodeMap.put(i6.getClass().getSimpleName(), i6);
         clientCodeMap.put(i7.getClass().getSimpleName(), i7);
         clientCodeMap.put(i8.getClass().getSimpleName(), i8);
         clientCodeMap.put(i9.getClass().getSimpleName(), i9);
+        clientCodeMap.put(i11.getClass().getSimpleName(), i11);
+        binaryCodes = new IClientCode[256];
+        for(int opcode = 0; opcode < binaryCodes.length; opcode++) {
+            String key = Opcodes.clientCode(opcode);
+            if(key != null) {
+                binaryCodes[opcode] = clientCodeMap.get(Codes.getInstance().getCodeValue(key));
+            }
+        }
     }
 
 
@@ -240,11 +394,28 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
             throw new RuntimeException("Exception occurred in construction: " + exception.getMessage());
         }
         try{
-            serverAddress = new InetSocketAddress(InetAddress.getByName(findLocalIPAddress()),PORT);
-            server = new ServerSocket();
+            String bindAddress = System.getProperty(BIND_ADDRESS_PROPERTY);
+            if(bindAddress == null) {
+                bindAddress = findLocalIPAddress();
+            }
+            serverAddress = new InetSocketAddress(InetAddress.getByName(bindAddress), Integer.getInteger(PORT_PROPERTY, PORT));
+            server = ServerSocketChannel.open();
             server.bind(serverAddress);
+            transportMode = TransportMode.fromString(System.getProperty(TRANSPORT_PROPERTY));
+            if(transportMode == TransportMode.SELECTOR) {
+                int loops = Integer.getInteger(EVENT_LOOPS_PROPERTY, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+                selectorEngine = new SelectorEngine(server, this, loops);
+            }
             pool = Executors.newFixedThreadPool(4);
+            writerPool = Executors.newCachedThreadPool();
+            notificationPool = Executors.newSingleThreadExecutor();
+            slowConsumerPolicy = SlowConsumerPolicy.fromString(System.getProperty(SLOW_CONSUMER_PROPERTY));
+            outboundMessages = Integer.getInteger(OUTBOUND_MESSAGES_PROPERTY, DEFAULT_OUTBOUND_MESSAGES);
+            outboundBytes = Long.getLong(OUTBOUND_BYTES_PROPERTY, DEFAULT_OUTBOUND_BYTES);
+            compressionLevel = Integer.getInteger(COMPRESSION_LEVEL_PROPERTY, Deflater.DEFAULT_COMPRESSION);
+            compressionThreshold = Integer.getInteger(COMPRESSION_THRESHOLD_PROPERTY, FrameCompressor.DEFAULT_THRESHOLD);
             clientWriters = new ConcurrentHashMap<>();
+            clients = new ConcurrentHashMap<>();
         }catch(SocketException | UnknownHostException exception) {
             Platform.runLater(() -> {
                 Alert alert = new Alert(Alert.AlertType.ERROR, "Error in finding IP address: ", ButtonType.CLOSE);
@@ -275,10 +446,211 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
     }
 
 
+    /**
+     * Returns {@link IClientCode} described by {@code token} or {@code null} if there is no such code.
+     *
+     * @param token
+     *        sent by a client
+     *
+     * @return
+     *        {@link IClientCode} described by {@code token}
+     */
+    private IClientCode getClientCode(String token) {
+        String value = codes.getCodeValue(token);
+        return value == null ? null : clientCodeMap.get(value);
+    }
+
+
+    /**
+     * Returns number of lines which follow {@code token} or -1 if {@code token} is not a known code.
+     *
+     * @param token
+     *        sent by a client
+     *
+     * @return
+     *        number of lines which follow {@code token}
+     */
+    int getArgumentCount(String token) {
+        IClientCode code = getClientCode(token);
+        return code == null ? -1 : code.getArgumentCount();
+    }
+
+
+    /**
+     * Executes code described by {@code token} for a client which owns {@code writer}.<br>
+     * Broadcasting codes will receive writers of all clients.
+     *
+     * @param token
+     *        sent by a client
+     *
+     * @param writer
+     *        of a client which sent {@code token}
+     *
+     * @param reader
+     *        from which arguments of a code are read
+     *
+     * @throws IOException
+     *         if an error occurs while executing a code
+     *
+     * @throws NoSuchMethodException
+     *         if {@code token} is not a known code
+     */
+    void dispatch(String token, BufferedWriter writer, BufferedReader reader) throws IOException, NoSuchMethodException {
+        IClientCode code = getClientCode(token);
+        if(code == null) {
+            throw new NoSuchMethodException("Unknown code: " + token);
+        }
+        if(code instanceof AbstractClientBroadcastCode) {
+            code.execute(subject, clientWriters, reader);
+        }
+        else {
+            synchronized(writer) {
+                code.execute(subject, writer, reader);
+            }
+        }
+    }
+
+
+    /**
+     * Executes code described by {@code opcode} of a binary frame sent by {@code client}.
+     * Payload of a frame is available through {@link ClientConnection#getPayload()}.
+     *
+     * @param client
+     *        which sent a frame
+     *
+     * @param opcode
+     *        of a frame
+     *
+     * @throws IOException
+     *         if payload is malformed
+     */
+    void dispatchBinary(ClientConnection client, int opcode) throws IOException {
+        IClientCode code = binaryCodes[opcode & 0xFF];
+        if(code == null) {
+            System.out.println("Unknown opcode received: " + opcode);
+            return;
+        }
+        try {
+            code.execute(subject, client);
+        }catch(NoSuchMethodException exception) {
+            System.out.println("Greška at: " + exception.getMessage());
+        }
+    }
+
+
+    /**
+     * Saves {@code client} once its handshake is done.
+     *
+     * @param client
+     *        which is saved
+     */
+    void register(ClientConnection client) {
+        ClientConnection previous = clients.put(client.getUUID(), client);
+        clientWriters.put(client.getUUID(), client.getWriter());
+        if(previous != null && previous != client) {
+            previous.close();
+        }
+    }
+
+
+    /**
+     * Removes {@code client} if it is still registered under its UUID.
+     *
+     * @param client
+     *        which is removed
+     */
+    void unregister(ClientConnection client) {
+        if(client.getUUID() != null) {
+            clients.remove(client.getUUID(), client);
+            clientWriters.remove(client.getUUID(), client.getWriter());
+        }
+    }
+
+
+    /**
+     * Creates an empty {@link OutboundQueue} with limits of this broadcaster.
+     *
+     * @return
+     *        an empty {@link OutboundQueue}
+     */
+    OutboundQueue createOutboundQueue() {
+        return new OutboundQueue(outboundMessages, outboundBytes);
+    }
+
+
+    /**
+     * Creates a {@link FrameCompressor} with settings of this broadcaster.
+     *
+     * @return
+     *        a new {@link FrameCompressor}
+     */
+    FrameCompressor createCompressor() {
+        return new FrameCompressor(compressionLevel, compressionThreshold);
+    }
+
+
+    /**
+     * Returns policy applied to clients which can not keep up.
+     *
+     * @return
+     *        policy applied to clients which can not keep up
+     */
+    SlowConsumerPolicy getSlowConsumerPolicy() {
+        return slowConsumerPolicy;
+    }
+
+
+    /**
+     * Sends {@code frame} to every connected client.
+     *
+     * @param frame
+     *        which is sent
+     */
+    public void broadcast(BroadcastFrame frame) {
+        for(ClientConnection client : clients.values()) {
+            client.send(frame);
+        }
+    }
+
+
+    /**
+     * Sends {@code frame} to every connected client after every notification which was received before it,
+     * since notifications are sent by {@link #notificationPool} in order in which they were received.
+     *
+     * @param frame
+     *        which is sent
+     */
+    public void broadcastInOrder(BroadcastFrame frame) {
+        notificationPool.submit(() -> broadcast(frame));
+    }
+
+
+    /**
+     * Sends complete state of a model to {@code client} which skipped messages.
+     *
+     * @param client
+     *        which is resynchronized
+     */
+    void resynchronize(ClientConnection client) {
+        notificationPool.submit(() -> {
+            try {
+                PlayerSnapshot snapshot = subject.getSnapshot();
+                client.send(BroadcastFrame.of(communicationCodes.get(codes.getCodeValue("SERVER_SONG_LIST")), snapshot));
+                client.send(BroadcastFrame.of(communicationCodes.get(codes.getCodeValue("SERVER_QUEUE_LIST")), snapshot));
+                if(snapshot.getNowPlaying() != null) {
+                    client.send(BroadcastFrame.of(communicationCodes.get(codes.getCodeValue("SERVER_NOW_PLAYING")), snapshot));
+                }
+            }catch(UncheckedIOException exception) {
+                System.out.println("Could not resynchronize a client: " + exception.getMessage());
+            }
+        });
+    }
+
+
     /**
      * Starts broadcast.<br>
-     * Server will listen to connections on {@link #serverAddress}. When a connection is made {@link ClientWorker} will
-     * serve client. For more information see {@link ClientWorker}.<br>
+     * Server will listen to connections on {@link #serverAddress}. Depending on {@link #transportMode}
+     * clients are served by {@link SelectorEngine} or each of them by its own {@link ClientWorker}.<br>
      * Server can not be started if it is already started.<br>
      * If a server fails to start an exception will be thrown.
      *
@@ -286,9 +658,14 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
     public void startBroadcast() {
         if(!isRunning) {
             isRunning = true;
+            if(transportMode == TransportMode.SELECTOR) {
+                selectorEngine.run();
+                isRunning = false;
+                return;
+            }
             try{
                 while(isRunning) {
-                    Socket client = server.accept();
+                    Socket client = server.socket().accept();
                     ClientWorker worker = new ClientWorker(client);
                     pool.submit(worker);
                 }
@@ -314,24 +691,25 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
     public void shutdown() {
         isRunning = false;
         pool.shutdownNow();
+        notificationPool.shutdownNow();
+        writerPool.shutdownNow();
+        if(selectorEngine != null) {
+            selectorEngine.shutdown();
+        }
         try{
             server.close();
         }catch(IOException ex) {
             System.out.println("Could not close list broadcaster.");
         }
-        for(BufferedWriter cw : clientWriters.values()) {
-            try{
-                cw.close();
-            }catch(IOException ex) {
-                System.out.println("Could not close a writer.");
-            }
+        for(ClientConnection client : clients.values()) {
+            client.close();
         }
     }
 
 
     @Override
-    public void update(String code) {
-        pool.submit(new NotificationJob(code));
+    public void update(String code, PlayerSnapshot snapshot) {
+        notificationPool.submit(new NotificationJob(code, snapshot));
     }
 
 
@@ -342,24 +720,31 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
      *
      * After this initial exchange is made, {@code ClientWorker} will be listening to any
      * messages from client or it will send appropriate messages when a change occurs to client.<br>
-     * Changes are described in {@link codes.concreteservercodes concreteservercodes}
+     * Changes are described in {@link codes.concreteservercodes concreteservercodes}<br>
      *
+     * Messages for a client are queued and written by a separate task on {@link #writerPool}.
      *
      * @author Ivica Duspara
-     * @version 1.0
+     * @version 1.1
      */
-    private class ClientWorker implements Runnable {
+    private class ClientWorker extends ClientConnection implements Runnable {
+
+        /**
+         * Client's socket input, shared by handshake and both protocols.
+         */
+        private BufferedInputStream input;
+
 
         /**
-         * Client's socket reader.
+         * Client's socket reader, used by text protocol.
          */
         private BufferedReader bufferedReader;
 
 
         /**
-         * Client's socket writer.
+         * Client's socket output.
          */
-        private BufferedWriter bufferedWriter;
+        private WritableByteChannel output;
 
 
         /**
@@ -369,22 +754,58 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
 
 
         /**
-         * UUID which identifies a device
+         * Set while a task which writes queued messages is running.
+         */
+        private AtomicBoolean draining;
+
+
+        /**
+         * Indicates whether this worker is closed.
          */
-        private String UUID;
+        private volatile boolean closed;
 
 
         /**
          * When a client connects to server it will send a code and its UUID.<br>
-         * This method saves UUID and appropriate writer to {@link #clientWriters}
+         * This method negotiates protocol and saves UUID and this worker to {@link #clients}
          *
          * @throws IOException
          *         if an error occurs while reading from reader
          */
         private void saveWriter() throws IOException{
-            bufferedReader.readLine();
-            UUID = bufferedReader.readLine();
-            clientWriters.put(UUID, bufferedWriter);
+            Handshake handshake = Handshake.parse(readHandshakeLine());
+            UUID = readHandshakeLine();
+            if(UUID == null) {
+                throw new IOException("Client disconnected during handshake.");
+            }
+            negotiate(handshake);
+            register(this);
+        }
+
+
+        /**
+         * Reads a single line of a handshake byte by byte, so no byte of a following binary frame is consumed.
+         *
+         * @return
+         *        line without terminator or {@code null} if stream ended
+         *
+         * @throws IOException
+         *         if an error occurs while reading
+         */
+        private String readHandshakeLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while((b = input.read()) != '\n') {
+                if(b < 0) {
+                    return line.size() == 0 ? null : line.toString("UTF-8");
+                }
+                if(line.size() >= MAX_FRAME_LENGTH) {
+                    throw new IOException("Line too long.");
+                }
+                line.write(b);
+            }
+            String text = line.toString("UTF-8");
+            return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
         }
 
 
@@ -398,10 +819,15 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
          *         if an error occurs while creating {@code ClientWorker}
          */
         ClientWorker(Socket client) throws IOException{
+            super(ListBroadcaster.this);
             this.client = client;
-            bufferedReader = new BufferedReader(new InputStreamReader(client.getInputStream(), Charset.forName("UTF-8")));
-            bufferedWriter = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), Charset.forName("UTF-8")));
+            this.draining = new AtomicBoolean();
+            input = new BufferedInputStream(client.getInputStream());
+            output = Channels.newChannel(client.getOutputStream());
             saveWriter();
+            if(format == WireFormat.TEXT) {
+                bufferedReader = new BufferedReader(new InputStreamReader(input, Charset.forName("UTF-8")));
+            }
         }
 
 
@@ -409,27 +835,103 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
         @Override
         public void run() {
             try {
+                if(format == WireFormat.BINARY) {
+                    readFrames();
+                    return;
+                }
                 String token;
                 while((token = bufferedReader.readLine()) != null) {
-                    if(token.equals("CLIENT_QUEUE")) {
-                        clientCodeMap.get(codes.getCodeValue(token)).execute(subject,clientWriters,bufferedReader);
-                    }
-                    else {
-                        clientCodeMap.get(codes.getCodeValue(token)).execute(subject,bufferedWriter,bufferedReader);
-                    }
+                    dispatch(token, writer, bufferedReader);
                 }
-                clientWriters.remove(UUID);
-                client.close();
             }catch(IOException | NoSuchMethodException exception) {
                 System.out.println("Greška at: " + exception.getMessage());
             }finally {
-                clientWriters.remove(UUID);
-                try{
-                    client.close();
-                }catch(IOException ex) {
-                    System.out.println("Couldn't close a socket, ignoring it.");
+                close();
+            }
+        }
+
+
+        /**
+         * Reads binary frames and executes them until client disconnects.
+         *
+         * @throws IOException
+         *         if an error occurs while reading or a frame is malformed
+         */
+        private void readFrames() throws IOException {
+            DataInputStream frames = new DataInputStream(input);
+            byte[] bytes = new byte[256];
+            ByteBuffer frame = ByteBuffer.wrap(bytes);
+            int opcode;
+            while((opcode = frames.read()) >= 0) {
+                long length = BinaryFrameReader.readVarint(frames);
+                if(length < 0 || length > MAX_FRAME_LENGTH) {
+                    throw new IOException("Frame too long.");
+                }
+                if(length > bytes.length) {
+                    bytes = new byte[(int) length];
+                    frame = ByteBuffer.wrap(bytes);
+                }
+                frames.readFully(bytes, 0, (int) length);
+                payload.reset(frame, 0, (int) length);
+                dispatchBinary(this, opcode);
+            }
+        }
+
+
+        @Override
+        void scheduleWrite() {
+            if(draining.compareAndSet(false, true)) {
+                writerPool.submit(this::drain);
+            }
+        }
+
+
+        /**
+         * Writes queued messages to client's socket until queue is empty.
+         */
+        private void drain() {
+            try {
+                ByteBuffer head;
+                while((head = outbound.peek()) != null) {
+                    while(head.hasRemaining()) {
+                        output.write(head);
+                    }
+                    outbound.remove();
                 }
+            }catch(IOException exception) {
+                close();
+            }finally {
+                draining.set(false);
+            }
+            if(!outbound.isEmpty()) {
+                scheduleWrite();
+            }
+            else {
+                drained();
+            }
+        }
+
+
+        @Override
+        void close() {
+            if(closed) {
+                return;
             }
+            closed = true;
+            unregister(this);
+            outbound.clear();
+            releaseCompressor();
+            try{
+                client.close();
+            }catch(IOException ex) {
+                System.out.println("Couldn't close a socket, ignoring it.");
+            }
+        }
+
+
+        @Override
+        boolean isClosed() {
+            return closed;
         }
     }
 
@@ -440,10 +942,12 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
      * and send appropriate codes to observers (clients) from a broadcaster.<br>
      *
      * As notifications should not be sent from a GUI thread, they will be done from this job.
+     * Code is executed only once, its output is shared by all clients as a {@link BroadcastFrame}.
+     * Message is written from a snapshot which came with a notification.
      *
      *
      * @author Ivica Duspara
-     * @version 1.0
+     * @version 1.2
      */
     private class NotificationJob implements Runnable {
 
@@ -452,29 +956,38 @@ public class ListBroadcaster implements NetworkPlayerDataObserver {
          */
         private String code;
 
+        /**
+         * Snapshot from which a message is written
+         */
+        private PlayerSnapshot snapshot;
+
 
         /**
          * Constructs a new {@code NotificationJob}
          *
          * @param code
          *        which describes a job
+         *
+         * @param snapshot
+         *        from which a message is written
          */
-        NotificationJob(String code) {
+        NotificationJob(String code, PlayerSnapshot snapshot) {
             this.code = code;
+            this.snapshot = snapshot;
         }
 
 
         @Override
         public void run() {
-            for(BufferedWriter writer: clientWriters.values()) {
-                try {
-                    communicationCodes.get(code).execute(subject, writer);
-                }catch (IOException exception) {
-                    System.out.println("JVM yeeted an exception." + exception.getMessage());
-                    System.out.println("It is a possibility that app can't write something out. Someone possibly disconnected.");
-                }
+            if(clients.isEmpty()) {
+                return;
+            }
+            try {
+                broadcast(BroadcastFrame.of(communicationCodes.get(code), snapshot));
+            }catch (UncheckedIOException exception) {
+                System.out.println("JVM yeeted an exception." + exception.getMessage());
+                System.out.println("It is a possibility that app can't write something out.");
             }
-
         }
     }
 
@@ -0,0 +1,286 @@
+package broadcaster;
+
+import model.CatalogDelta;
+import model.Codes;
+import model.PlayerSnapshot;
+import observers.NetworkPlayerDataObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link NetworkPlayerDataObserver} which sits between {@link model.PlayerData} and another observer
+ * (usually {@link ListBroadcaster}) and merges notifications of a burst.<br>
+ *
+ * The first notification opens a window of {@value #COALESCE_WINDOW_PROPERTY} milliseconds. Notifications which
+ * arrive within the window are merged, and once it closes only the net change is passed on:
+ * <ul>
+ *     <li>any number of {@code SERVER_NOW_PLAYING} becomes one, since it always describes current song</li>
+ *     <li>a single {@code SERVER_MOVE_UP} is passed on as it is, several of them become one {@code SERVER_QUEUE_LIST}</li>
+ *     <li>several {@code SERVER_SONG_PARTIAL_LIST} become one whose change is their changes
+ *     {@link CatalogDelta#merge(List) merged}, so clients still learn every version of a catalog</li>
+ *     <li>full lists are sent at most once and replace partial changes of the same list</li>
+ * </ul>
+ * Merged notifications are passed on in order catalog, queue, currently playing song. Unknown codes are never
+ * merged, pending notifications are passed on before them. Window of 0 turns merging off.<br>
+ *
+ * Merged notifications carry the newest snapshot of a window, which holds the net change.<br>
+ *
+ * Messages which are not notifications, such as {@code SERVER_ENQUEUED}, describe a change relative to notifications
+ * sent before them, so they go through {@link #runInOrder(Runnable)} which passes pending notifications on first.
+ *
+ * @author Ivica Duspara
+ * @version 1.3
+ */
+public class NotificationCoalescer implements NetworkPlayerDataObserver {
+
+    /**
+     * System property used for setting length of a window in milliseconds.
+     */
+    public static final String COALESCE_WINDOW_PROPERTY = "meteor.coalesceWindow";
+
+    /**
+     * Default length of a window in milliseconds.
+     */
+    private static final long DEFAULT_WINDOW = 25;
+
+    /**
+     * Observer which receives merged notifications.
+     */
+    private NetworkPlayerDataObserver delegate;
+
+    /**
+     * Length of a window in milliseconds.
+     */
+    private long window;
+
+    /**
+     * Executor which closes windows.
+     */
+    private ScheduledExecutorService scheduler;
+
+    private String nowPlayingCode;
+
+    private String moveUpCode;
+
+    private String queueListCode;
+
+    private String songListCode;
+
+    private String partialListCode;
+
+    /**
+     * Number of {@code SERVER_MOVE_UP} notifications in current window.
+     */
+    private int moveUps;
+
+    /**
+     * Changes of a catalog carried by {@code SERVER_SONG_PARTIAL_LIST} notifications in current window.
+     */
+    private List<CatalogDelta> catalogChanges;
+
+    /**
+     * Snapshot of the newest notification in current window.
+     */
+    private PlayerSnapshot latest;
+
+    private boolean queueList;
+
+    private boolean songList;
+
+    private boolean nowPlaying;
+
+    /**
+     * Indicates whether a window is open.
+     */
+    private boolean scheduled;
+
+    /**
+     * Number of received notifications.
+     */
+    private AtomicLong receivedCount;
+
+    /**
+     * Number of notifications passed on.
+     */
+    private AtomicLong emittedCount;
+
+
+    /**
+     * Constructs a new {@code NotificationCoalescer} whose window is read from {@value #COALESCE_WINDOW_PROPERTY}.
+     *
+     * @param delegate
+     *        observer which receives merged notifications
+     */
+    public NotificationCoalescer(NetworkPlayerDataObserver delegate) {
+        this(delegate, Long.getLong(COALESCE_WINDOW_PROPERTY, DEFAULT_WINDOW));
+    }
+
+
+    /**
+     * Constructs a new {@code NotificationCoalescer}.
+     *
+     * @param delegate
+     *        observer which receives merged notifications
+     *
+     * @param window
+     *        length of a window in milliseconds, 0 turns merging off
+     */
+    public NotificationCoalescer(NetworkPlayerDataObserver delegate, long window) {
+        this.delegate = delegate;
+        this.window = Math.max(0, window);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "meteor-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Codes codes = Codes.getInstance();
+        this.nowPlayingCode = codes.getCodeValue("SERVER_NOW_PLAYING");
+        this.moveUpCode = codes.getCodeValue("SERVER_MOVE_UP");
+        this.queueListCode = codes.getCodeValue("SERVER_QUEUE_LIST");
+        this.songListCode = codes.getCodeValue("SERVER_SONG_LIST");
+        this.partialListCode = codes.getCodeValue("SERVER_SONG_PARTIAL_LIST");
+        this.catalogChanges = new ArrayList<>();
+        this.receivedCount = new AtomicLong();
+        this.emittedCount = new AtomicLong();
+    }
+
+
+    @Override
+    public synchronized void update(String code, PlayerSnapshot snapshot) {
+        receivedCount.incrementAndGet();
+        if(window == 0) {
+            emit(code, snapshot);
+            return;
+        }
+        if(code.equals(nowPlayingCode)) {
+            nowPlaying = true;
+        }
+        else if(code.equals(moveUpCode)) {
+            moveUps++;
+        }
+        else if(code.equals(queueListCode)) {
+            queueList = true;
+        }
+        else if(code.equals(songListCode)) {
+            songList = true;
+        }
+        else if(code.equals(partialListCode)) {
+            catalogChanges.add(snapshot.getCatalogChange());
+        }
+        else {
+            flush();
+            emit(code, snapshot);
+            return;
+        }
+        latest = snapshot;
+        if(!scheduled) {
+            scheduled = true;
+            scheduler.schedule(this::flush, window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+
+    /**
+     * Passes on pending notifications and then runs {@code action}, so that whatever {@code action} sends follows
+     * every notification received before it and precedes every notification received after it.
+     *
+     * @param action
+     *        which sends a message to a delegate
+     */
+    public synchronized void runInOrder(Runnable action) {
+        flush();
+        action.run();
+    }
+
+
+    /**
+     * Closes current window and passes on net notifications in order catalog, queue, currently playing song.
+     */
+    private synchronized void flush() {
+        if(songList) {
+            emit(songListCode, latest);
+        }
+        else if(!catalogChanges.isEmpty()) {
+            emit(partialListCode, latest.withCatalogChange(CatalogDelta.merge(catalogChanges)));
+        }
+        if(queueList || moveUps > 1) {
+            emit(queueListCode, latest);
+        }
+        else if(moveUps == 1) {
+            emit(moveUpCode, latest);
+        }
+        if(nowPlaying) {
+            emit(nowPlayingCode, latest);
+        }
+        latest = null;
+        catalogChanges.clear();
+        moveUps = 0;
+        queueList = false;
+        songList = false;
+        nowPlaying = false;
+        scheduled = false;
+    }
+
+
+    /**
+     * Passes {@code code} on to a delegate. Delegate is called under the monitor of this coalescer,
+     * so it only receives notifications in order and should return quickly, as {@link ListBroadcaster} does.
+     *
+     * @param code
+     *        which is passed on
+     *
+     * @param snapshot
+     *        from which a message is written
+     */
+    private void emit(String code, PlayerSnapshot snapshot) {
+        emittedCount.incrementAndGet();
+        delegate.update(code, snapshot);
+    }
+
+
+    /**
+     * Passes on pending notifications and stops closing windows.
+     */
+    public void shutdown() {
+        flush();
+        scheduler.shutdownNow();
+    }
+
+
+    /**
+     * Returns number of notifications received from a subject.
+     *
+     * @return
+     *        number of received notifications
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+
+    /**
+     * Returns number of notifications passed on to a delegate.
+     *
+     * @return
+     *        number of notifications passed on
+     */
+    public long getEmittedCount() {
+        return emittedCount.get();
+    }
+
+
+    /**
+     * Returns number of notifications which were merged into others.
+     *
+     * @return
+     *        number of merged notifications
+     */
+    public long getMergedCount() {
+        return receivedCount.get() - emittedCount.get();
+    }
+}
@@ -0,0 +1,140 @@
+package broadcaster;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Bounded queue of messages waiting to be written to a single client.<br>
+ *
+ * Queue is bounded by number of messages and by number of bytes. A message is always accepted when
+ * queue is empty, so a single large message (for example a list of all songs) can not be rejected on its own.
+ * Head of a queue is the message which is currently being written, it is never discarded.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+class OutboundQueue {
+
+    /**
+     * Queued messages.
+     */
+    private Deque<ByteBuffer> frames;
+
+    /**
+     * Maximum number of queued messages.
+     */
+    private int maxFrames;
+
+    /**
+     * Maximum number of queued bytes.
+     */
+    private long maxBytes;
+
+    /**
+     * Number of queued bytes.
+     */
+    private long queuedBytes;
+
+
+    /**
+     * Constructs a new {@code OutboundQueue} with given limits.
+     *
+     * @param maxFrames
+     *        maximum number of queued messages
+     *
+     * @param maxBytes
+     *        maximum number of queued bytes
+     */
+    OutboundQueue(int maxFrames, long maxBytes) {
+        this.frames = new ArrayDeque<>();
+        this.maxFrames = maxFrames;
+        this.maxBytes = maxBytes;
+    }
+
+
+    /**
+     * Adds {@code frame} at the end of this queue if limits allow it.
+     *
+     * @param frame
+     *        which is added
+     *
+     * @return
+     *        {@code true} if {@code frame} is added, {@code false} if queue is full
+     */
+    synchronized boolean offer(ByteBuffer frame) {
+        if(!frames.isEmpty() && (frames.size() >= maxFrames || queuedBytes + frame.limit() > maxBytes)) {
+            return false;
+        }
+        frames.addLast(frame);
+        queuedBytes += frame.limit();
+        return true;
+    }
+
+
+    /**
+     * Returns head of this queue without removing it, or {@code null} if queue is empty.
+     *
+     * @return
+     *        head of this queue
+     */
+    synchronized ByteBuffer peek() {
+        return frames.peekFirst();
+    }
+
+
+    /**
+     * Removes head of this queue once it is written.
+     */
+    synchronized void remove() {
+        ByteBuffer head = frames.pollFirst();
+        if(head != null) {
+            queuedBytes -= head.limit();
+        }
+    }
+
+
+    /**
+     * Discards every message except head, which may be partially written.
+     */
+    synchronized void discardPending() {
+        ByteBuffer head = frames.pollFirst();
+        frames.clear();
+        queuedBytes = 0;
+        if(head != null) {
+            frames.addFirst(head);
+            queuedBytes = head.limit();
+        }
+    }
+
+
+    /**
+     * Discards all messages.
+     */
+    synchronized void clear() {
+        frames.clear();
+        queuedBytes = 0;
+    }
+
+
+    /**
+     * Returns {@code true} if this queue is empty.
+     *
+     * @return
+     *        {@code true} if this queue is empty
+     */
+    synchronized boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+
+    /**
+     * Returns number of queued bytes.
+     *
+     * @return
+     *        number of queued bytes
+     */
+    synchronized long getQueuedBytes() {
+        return queuedBytes;
+    }
+}
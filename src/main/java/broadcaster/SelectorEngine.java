@@ -0,0 +1,268 @@
+package broadcaster;
+
+import java.io.IOException;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Non-blocking transport of {@link ListBroadcaster}.<br>
+ *
+ * Thread which calls {@link #run()} becomes an acceptor. Every accepted client is switched to non-blocking mode
+ * and handed over to one of {@link EventLoop event loops} in a round-robin fashion. Event loop is a single thread
+ * which owns a {@link Selector} and serves all of its {@link ChannelConnection connections}, therefore number of
+ * connected clients is limited only by available memory and not by a number of threads.<br>
+ *
+ * Event loops only move bytes. Codes sent by clients are executed on {@link #codePool}, so a code which waits for
+ * a model does not hold up other connections of a loop.
+ *
+ * @author Ivica Duspara
+ * @version 1.1
+ */
+class SelectorEngine implements Runnable {
+
+    /**
+     * Channel on which clients are accepted.
+     */
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Broadcaster which executes codes sent by clients.
+     */
+    private ListBroadcaster broadcaster;
+
+    /**
+     * Event loops serving accepted clients.
+     */
+    private EventLoop[] loops;
+
+    /**
+     * Executor on which codes sent by clients are executed.
+     */
+    private ExecutorService codePool;
+
+    /**
+     * Index of next loop used for round-robin assignment.
+     */
+    private int nextLoop;
+
+    /**
+     * Indicates whether this engine is running.
+     */
+    private volatile boolean running;
+
+
+    /**
+     * Constructs a new {@code SelectorEngine} with given parameters.
+     *
+     * @param serverChannel
+     *        bound channel on which clients are accepted
+     *
+     * @param broadcaster
+     *        which executes codes sent by clients
+     *
+     * @param loopCount
+     *        number of event loops
+     *
+     * @throws IOException
+     *         if a selector could not be opened
+     */
+    SelectorEngine(ServerSocketChannel serverChannel, ListBroadcaster broadcaster, int loopCount) throws IOException {
+        this.serverChannel = serverChannel;
+        this.broadcaster = broadcaster;
+        this.loops = new EventLoop[Math.max(1, loopCount)];
+        for(int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(i);
+        }
+        this.codePool = Executors.newFixedThreadPool(loops.length, runnable -> {
+            Thread thread = new Thread(runnable, "meteor-client-code");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Starts event loops and accepts clients until {@link #shutdown()} is called or server channel is closed.
+     */
+    @Override
+    public void run() {
+        running = true;
+        for(EventLoop loop : loops) {
+            loop.start();
+        }
+        try {
+            serverChannel.configureBlocking(true);
+            while(running) {
+                SocketChannel client = serverChannel.accept();
+                EventLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                loop.register(client);
+            }
+        }catch(IOException exception) {
+            running = false;
+        }
+    }
+
+
+    /**
+     * Stops accepting clients, closes all connections and stops event loops.
+     */
+    void shutdown() {
+        running = false;
+        for(EventLoop loop : loops) {
+            loop.shutdown();
+        }
+        codePool.shutdownNow();
+    }
+
+
+    /**
+     * Single thread which serves connections registered to its {@link Selector}.<br>
+     * Other threads never touch selector directly, they post tasks using {@link #execute(Runnable)}
+     * which are run by loop thread between two selections.<br>
+     *
+     * An exception thrown while serving a key closes only the connection of that key.
+     *
+     * @author Ivica Duspara
+     * @version 1.1
+     */
+    class EventLoop extends Thread {
+
+        /**
+         * Selector of this loop.
+         */
+        private Selector selector;
+
+        /**
+         * Tasks posted by other threads.
+         */
+        private Queue<Runnable> tasks;
+
+
+        /**
+         * Constructs a new {@code EventLoop}.
+         *
+         * @param index
+         *        of this loop, used in thread name
+         *
+         * @throws IOException
+         *         if selector could not be opened
+         */
+        EventLoop(int index) throws IOException {
+            super("meteor-event-loop-" + index);
+            setDaemon(true);
+            this.selector = Selector.open();
+            this.tasks = new ConcurrentLinkedQueue<>();
+        }
+
+
+        /**
+         * Posts {@code task} which will be run on this loop's thread.
+         *
+         * @param task
+         *        which is run
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+
+        /**
+         * Executes {@code code} sent by a client of this loop on {@link #codePool}.
+         *
+         * @param code
+         *        which is executed
+         */
+        void dispatch(Runnable code) {
+            codePool.execute(code);
+        }
+
+
+        /**
+         * Registers accepted {@code client} with this loop.
+         *
+         * @param client
+         *        which is registered
+         */
+        void register(SocketChannel client) {
+            execute(() -> {
+                try {
+                    client.configureBlocking(false);
+                    client.socket().setTcpNoDelay(true);
+                    ChannelConnection connection = new ChannelConnection(client, this, broadcaster);
+                    connection.setKey(client.register(selector, SelectionKey.OP_READ, connection));
+                }catch(IOException exception) {
+                    try {
+                        client.close();
+                    }catch(IOException ex) {
+                        System.out.println("Couldn't close a socket, ignoring it.");
+                    }
+                }
+            });
+        }
+
+
+        /**
+         * Closes all connections and selector of this loop.
+         */
+        void shutdown() {
+            execute(() -> {
+                for(SelectionKey key : selector.keys()) {
+                    if(key.attachment() instanceof ChannelConnection) {
+                        ((ChannelConnection) key.attachment()).close();
+                    }
+                }
+                try {
+                    selector.close();
+                }catch(IOException ex) {
+                    System.out.println("Could not close a selector.");
+                }
+            });
+        }
+
+
+        @Override
+        public void run() {
+            while(selector.isOpen()) {
+                try {
+                    selector.select();
+                    Runnable task;
+                    while((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    if(!selector.isOpen()) {
+                        break;
+                    }
+                    Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                    while(iterator.hasNext()) {
+                        SelectionKey key = iterator.next();
+                        iterator.remove();
+                        ChannelConnection connection = (ChannelConnection) key.attachment();
+                        try {
+                            if(!key.isValid()) {
+                                connection.close();
+                                continue;
+                            }
+                            if(key.isReadable()) {
+                                connection.onReadable();
+                            }
+                            if(key.isValid() && key.isWritable()) {
+                                connection.onWritable();
+                            }
+                        }catch(RuntimeException exception) {
+                            System.out.println("Greška at: " + exception.getMessage());
+                            connection.close();
+                        }
+                    }
+                }catch(IOException | ClosedSelectorException exception) {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package broadcaster;
+
+/**
+ * Describes what {@link ListBroadcaster} does with a client whose outbound queue is full.<br>
+ *
+ * <ul>
+ *     <li>{@link #EVICT} - client is disconnected, it may reconnect and receive fresh state</li>
+ *     <li>{@link #DOWNGRADE} - pending messages are dropped and client receives a full state once it catches up</li>
+ * </ul>
+ *
+ * Policy is chosen with system property {@value ListBroadcaster#SLOW_CONSUMER_PROPERTY}, default is {@link #DOWNGRADE}.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public enum SlowConsumerPolicy {
+
+    /**
+     * Slow client is disconnected.
+     */
+    EVICT,
+
+    /**
+     * Slow client skips messages and is resynchronized once its queue is drained.
+     */
+    DOWNGRADE;
+
+
+    /**
+     * Returns {@code SlowConsumerPolicy} whose name matches {@code value} ignoring case.
+     * If {@code value} is {@code null} or unknown {@link #DOWNGRADE} is returned.
+     *
+     * @param value
+     *        name of a policy
+     *
+     * @return
+     *        {@code SlowConsumerPolicy} described by {@code value}
+     */
+    public static SlowConsumerPolicy fromString(String value) {
+        if(value != null) {
+            for(SlowConsumerPolicy policy : values()) {
+                if(policy.name().equalsIgnoreCase(value.trim())) {
+                    return policy;
+                }
+            }
+        }
+        return DOWNGRADE;
+    }
+}
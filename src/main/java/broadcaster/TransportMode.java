@@ -0,0 +1,49 @@
+package broadcaster;
+
+/**
+ * Describes how {@link ListBroadcaster} serves connected clients.<br>
+ *
+ * <ul>
+ *     <li>{@link #BLOCKING} - every client is served by its own thread which blocks while reading</li>
+ *     <li>{@link #SELECTOR} - clients are multiplexed over a few event loops using non-blocking channels</li>
+ * </ul>
+ *
+ * Mode is chosen with system property {@value ListBroadcaster#TRANSPORT_PROPERTY}, default is {@link #SELECTOR}.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public enum TransportMode {
+
+    /**
+     * One thread per client, limited by size of a thread pool.
+     */
+    BLOCKING,
+
+    /**
+     * Non-blocking channels served by a small number of {@link java.nio.channels.Selector selectors}.
+     */
+    SELECTOR;
+
+
+    /**
+     * Returns {@code TransportMode} whose name matches {@code value} ignoring case.
+     * If {@code value} is {@code null} or unknown {@link #SELECTOR} is returned.
+     *
+     * @param value
+     *        name of a mode
+     *
+     * @return
+     *        {@code TransportMode} described by {@code value}
+     */
+    public static TransportMode fromString(String value) {
+        if(value != null) {
+            for(TransportMode mode : values()) {
+                if(mode.name().equalsIgnoreCase(value.trim())) {
+                    return mode;
+                }
+            }
+        }
+        return SELECTOR;
+    }
+}
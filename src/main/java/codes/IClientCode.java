@@ -1,5 +1,6 @@
 package codes;
 
+import broadcaster.BinaryRequest;
 import model.PlayerData;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -49,4 +50,38 @@ public interface IClientCode {
      */
     void execute(PlayerData playerData, BufferedWriter writer, BufferedReader reader) throws IOException,NoSuchMethodException;
 
+
+    /**
+     * Returns number of lines which client sends after a code.<br>
+     * Non-blocking transport executes a code only when all of its lines have arrived, so {@code reader}
+     * passed to {@code execute} never blocks.
+     *
+     * @return
+     *         number of lines which follow a code
+     */
+    default int getArgumentCount() {
+        return 0;
+    }
+
+
+    /**
+     * Executes this code for a client which uses binary protocol. Arguments are read from
+     * {@link BinaryRequest#getPayload() payload} of a frame.
+     *
+     * @param playerData
+     *        context on which action is performed
+     *
+     * @param request
+     *        frame sent by a client
+     *
+     * @throws IOException
+     *         if payload is malformed
+     *
+     * @throws NoSuchMethodException
+     *         if this code is not available in binary protocol
+     */
+    default void execute(PlayerData playerData, BinaryRequest request) throws IOException, NoSuchMethodException {
+        throw new NoSuchMethodException(getClass().getSimpleName() + " is not available in binary protocol");
+    }
+
 }
@@ -1,6 +1,8 @@
 package codes;
 
 import model.PlayerData;
+import model.PlayerSnapshot;
+import protocol.BinaryFrameWriter;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -12,16 +14,19 @@ import java.util.Map;
  * When {@link PlayerData model} performs an action which should notify interested observers (change of currently played song,
  * more songs added...) it will do so by using appropriate {@code IServerCode}.<br>
  *
+ * Every code knows how to write its message as legacy text and as a frame of binary protocol,
+ * see {@link protocol.Opcodes}. Message is written from a {@link PlayerSnapshot} which caused it.<br>
+ *
  * @author Ivica Duspara
- * @version 1.0
+ * @version 1.1
  */
 public interface IServerCode {
 
     /**
      * Executes action which is specific for this {@code ICommunicationCode}
      *
-     * @param playerData
-     *        context on which action is performed
+     * @param snapshot
+     *        state of a model from which message is written
      *
      * @param writer
      *        map of client's socket writers which are used for writing to client
@@ -29,6 +34,18 @@ public interface IServerCode {
      * @throws IOException
      *         if an error occurs while writing to any of writers in {@code writers}
      */
-    void execute(PlayerData playerData, BufferedWriter writer) throws IOException;
+    void execute(PlayerSnapshot snapshot, BufferedWriter writer) throws IOException;
+
+
+    /**
+     * Writes message of this {@code IServerCode} as a frame of binary protocol.
+     *
+     * @param snapshot
+     *        state of a model from which message is written
+     *
+     * @param writer
+     *        to which frame is written
+     */
+    void encode(PlayerSnapshot snapshot, BinaryFrameWriter writer);
 
 }
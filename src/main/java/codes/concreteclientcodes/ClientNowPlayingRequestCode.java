@@ -1,5 +1,7 @@
 package codes.concreteclientcodes;
 
+import broadcaster.BinaryRequest;
+import broadcaster.BroadcastFrame;
 import broadcaster.ListBroadcaster;
 import model.Codes;
 import model.PlayerData;
@@ -11,6 +13,11 @@ import java.io.IOException;
 public class ClientNowPlayingRequestCode extends AbstractClientDirectCode{
     @Override
     public void execute(PlayerData playerData, BufferedWriter writer, BufferedReader reader) throws IOException, NoSuchMethodException {
-        ListBroadcaster.getInstance().getCommunicationCodes().get(Codes.getInstance().getCodeValue("SERVER_NOW_PLAYING")).execute(playerData,writer);
+        ListBroadcaster.getInstance().getCommunicationCodes().get(Codes.getInstance().getCodeValue("SERVER_NOW_PLAYING")).execute(playerData.getSnapshot(),writer);
+    }
+
+    @Override
+    public void execute(PlayerData playerData, BinaryRequest request) {
+        request.reply(BroadcastFrame.of(ListBroadcaster.getInstance().getCommunicationCodes().get(Codes.getInstance().getCodeValue("SERVER_NOW_PLAYING")), playerData.getSnapshot()));
     }
 }
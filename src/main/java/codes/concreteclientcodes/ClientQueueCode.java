@@ -1,6 +1,10 @@
 package codes.concreteclientcodes;
 
+import broadcaster.BinaryRequest;
+import broadcaster.BroadcastFrame;
 import model.PlayerData;
+import model.QueueMode;
+import protocol.Opcodes;
 import song.MP3Song;
 
 import java.io.BufferedReader;
@@ -14,21 +18,84 @@ import java.util.Map;
  */
 public class ClientQueueCode extends AbstractClientBroadcastCode {
 
+    /**
+     * Client sends its UUID and name of a song.
+     */
+    private static final int ARGUMENT_COUNT = 2;
+
+
+    @Override
+    public int getArgumentCount() {
+        return ARGUMENT_COUNT;
+    }
 
     @Override
     public void execute(PlayerData playerData, Map<String, BufferedWriter> writers, BufferedReader reader) throws IOException {
         String UUID = reader.readLine();
         String songName = reader.readLine();
-        MP3Song song = null;
-        for(MP3Song m : playerData.getLoadedSongs()) {
-            if(m.getFileName().equals(songName)) {
-                song = m;
-            }
+        MP3Song song = playerData.getSongIndex().getByName(songName);
+        if(song == null) {
+            System.out.println("Unknown song requested: " + songName);
+            return;
         }
-        int result = playerData.enqueueSong(UUID, song);
-        for(Map.Entry<String, BufferedWriter> singleWriter : writers.entrySet()) {
-            BufferedWriter writer = singleWriter.getValue();
-            writer.write("SERVER_ENQUEUED");
+        enqueue(playerData, UUID, songName, song);
+    }
+
+    @Override
+    public void execute(PlayerData playerData, BinaryRequest request) throws IOException {
+        long id = request.getPayload().readVarint();
+        MP3Song song = playerData.getSongIndex().getById(id);
+        if(song == null) {
+            System.out.println("Unknown song requested: " + id);
+            return;
+        }
+        enqueue(playerData, request.getUUID(), song.getFileName(), song);
+    }
+
+    /**
+     * Enqueues {@code song} and tells every client where it was placed. Position is announced in order with
+     * notifications of a model, so a client which receives it has already applied every earlier change of a queue.
+     *
+     * @param playerData
+     *        in which song is queued
+     *
+     * @param UUID
+     *        of a client who queued a song
+     *
+     * @param songName
+     *        name of a song as sent by a client
+     *
+     * @param song
+     *        which is queued
+     */
+    private void enqueue(PlayerData playerData, String UUID, String songName, MP3Song song) {
+        long id = song.getId();
+        playerData.enqueueSong(UUID, song, result -> broadcast(playerData, UUID, songName, id, result));
+    }
+
+    /**
+     * Tells every client where a song was placed. In {@link QueueMode#FAIR} mode a song is inserted among songs
+     * of other clients, which is told by {@code SERVER_QUEUE_INSERT}, otherwise by {@code SERVER_ENQUEUED}.
+     *
+     * @param playerData
+     *        in which song is queued
+     *
+     * @param UUID
+     *        of a client who queued a song
+     *
+     * @param songName
+     *        name of a song as sent by a client
+     *
+     * @param id
+     *        identifier of a song
+     *
+     * @param result
+     *        position of a song in a queue
+     */
+    private void broadcast(PlayerData playerData, String UUID, String songName, long id, int result) {
+        boolean insert = playerData.getQueueMode() == QueueMode.FAIR;
+        BroadcastFrame frame = BroadcastFrame.of(writer -> {
+            writer.write(insert ? "SERVER_QUEUE_INSERT" : "SERVER_ENQUEUED");
             writer.newLine();
             writer.write(songName);
             writer.newLine();
@@ -39,6 +106,12 @@ public class ClientQueueCode extends AbstractClientBroadcastCode {
             writer.write("SERVER_BROADCAST_ENDED");
             writer.newLine();
             writer.flush();
-        }
+        }, writer -> {
+            writer.begin(insert ? Opcodes.SERVER_QUEUE_INSERT : Opcodes.SERVER_ENQUEUED);
+            writer.writeVarint(id);
+            writer.writeString(UUID);
+            writer.writeVarint(result);
+        });
+        playerData.broadcastInOrder(frame);
     }
 }
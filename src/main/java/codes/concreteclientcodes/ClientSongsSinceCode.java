@@ -0,0 +1,56 @@
+package codes.concreteclientcodes;
+
+import broadcaster.BinaryRequest;
+import broadcaster.BroadcastFrame;
+import codes.concreteservercodes.ServerSongDeltaCode;
+import model.CatalogDelta;
+import model.PlayerData;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+/**
+ * Request of a reconnecting client for changes of a catalog since its last known version.<br>
+ * Client sends epoch and version it received in its last {@link ServerSongDeltaCode delta}. Client which has
+ * no catalog may send any values, in which case it receives the whole catalog.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public class ClientSongsSinceCode extends AbstractClientDirectCode {
+
+    /**
+     * Client sends epoch and version of its catalog.
+     */
+    private static final int ARGUMENT_COUNT = 2;
+
+
+    @Override
+    public int getArgumentCount() {
+        return ARGUMENT_COUNT;
+    }
+
+    @Override
+    public void execute(PlayerData playerData, BufferedWriter writer, BufferedReader reader) throws IOException {
+        long epoch;
+        long version;
+        try {
+            epoch = Long.parseLong(reader.readLine().trim());
+            version = Long.parseLong(reader.readLine().trim());
+        }catch(NumberFormatException | NullPointerException exception) {
+            epoch = -1;
+            version = -1;
+        }
+        CatalogDelta delta = playerData.getCatalogJournal().since(epoch, version);
+        ServerSongDeltaCode.write(delta, writer);
+    }
+
+    @Override
+    public void execute(PlayerData playerData, BinaryRequest request) throws IOException {
+        long epoch = request.getPayload().readVarint();
+        long version = request.getPayload().readVarint();
+        CatalogDelta delta = playerData.getCatalogJournal().since(epoch, version);
+        request.reply(BroadcastFrame.of(writer -> ServerSongDeltaCode.write(delta, writer), writer -> ServerSongDeltaCode.encode(delta, writer)));
+    }
+}
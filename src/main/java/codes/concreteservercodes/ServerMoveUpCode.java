@@ -1,7 +1,9 @@
 package codes.concreteservercodes;
 
 import codes.IServerCode;
-import model.PlayerData;
+import model.PlayerSnapshot;
+import protocol.BinaryFrameWriter;
+import protocol.Opcodes;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -16,11 +18,16 @@ import java.io.IOException;
 public class ServerMoveUpCode implements IServerCode {
 
     @Override
-    public void execute(PlayerData playerData, BufferedWriter writer) throws IOException {
+    public void execute(PlayerSnapshot snapshot, BufferedWriter writer) throws IOException {
             writer.write("SERVER_MOVE_UP");
             writer.newLine();
             writer.write("SERVER_BROADCAST_ENDED");
             writer.newLine();
             writer.flush();
     }
+
+    @Override
+    public void encode(PlayerSnapshot snapshot, BinaryFrameWriter writer) {
+        writer.begin(Opcodes.SERVER_MOVE_UP);
+    }
 }
@@ -1,13 +1,16 @@
 package codes.concreteservercodes;
 
 import codes.IServerCode;
-import model.PlayerData;
+import model.PlayerSnapshot;
+import protocol.BinaryFrameWriter;
+import protocol.Opcodes;
+import song.MP3Song;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 
 /**
- * Sends currently playing song to client.
+ * Sends currently playing song to client. Empty line is sent if nothing is playing yet.
  *
  * @author Ivica Duspara
  * @version 1.0
@@ -15,15 +18,24 @@ import java.io.IOException;
 public class ServerNowPlayingCode implements IServerCode {
 
     @Override
-    public void execute(PlayerData playerData, BufferedWriter writer) throws IOException {
+    public void execute(PlayerSnapshot snapshot, BufferedWriter writer) throws IOException {
             writer.write("SERVER_NOW_PLAYING");
             writer.newLine();
-            writer.write(playerData.getCurrentlyPlayingSong().toString());
+            MP3Song song = snapshot.getNowPlaying();
+            writer.write(song == null ? "" : song.toString());
             writer.newLine();
-            writer.write(playerData.getRemovedUUID());
+            writer.write(snapshot.getRemovedUUID());
             writer.newLine();
             writer.write("SERVER_BROADCAST_ENDED");
             writer.newLine();
             writer.flush();
     }
+
+    @Override
+    public void encode(PlayerSnapshot snapshot, BinaryFrameWriter writer) {
+        MP3Song song = snapshot.getNowPlaying();
+        writer.begin(Opcodes.SERVER_NOW_PLAYING);
+        writer.writeVarint(song == null ? 0 : song.getId());
+        writer.writeString(snapshot.getRemovedUUID());
+    }
 }
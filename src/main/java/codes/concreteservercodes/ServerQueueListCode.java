@@ -1,12 +1,14 @@
 package codes.concreteservercodes;
 
 import codes.IServerCode;
-import model.PlayerData;
-import song.MP3Song;
+import model.PlayerSnapshot;
+import model.QueueEntry;
+import protocol.BinaryFrameWriter;
+import protocol.Opcodes;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.Map;
+import java.util.List;
 
 /**
  * Sends list of currently queued songs to client.<br>
@@ -17,17 +19,28 @@ import java.util.Map;
 public class ServerQueueListCode implements IServerCode {
 
     @Override
-    public void execute(PlayerData playerData, BufferedWriter writer) throws IOException {
+    public void execute(PlayerSnapshot snapshot, BufferedWriter writer) throws IOException {
             writer.write("SERVER_QUEUE_LIST");
             writer.newLine();
-            for(Map.Entry<String, MP3Song> wqentry : playerData.getWhomstQueued().entrySet()) {
-                writer.write(wqentry.getValue().toString());
+            for(QueueEntry wqentry : snapshot.getQueue()) {
+                writer.write(String.valueOf(wqentry.getSong()));
                 writer.newLine();
-                writer.write(wqentry.getKey());
+                writer.write(wqentry.getUUID());
                 writer.newLine();
             }
             writer.write("SERVER_BROADCAST_ENDED");
             writer.newLine();
             writer.flush();
     }
+
+    @Override
+    public void encode(PlayerSnapshot snapshot, BinaryFrameWriter writer) {
+        List<QueueEntry> queued = snapshot.getQueue();
+        writer.begin(Opcodes.SERVER_QUEUE_LIST);
+        writer.writeVarint(queued.size());
+        for(QueueEntry wqentry : queued) {
+            writer.writeVarint(wqentry.getSong() == null ? 0 : wqentry.getSong().getId());
+            writer.writeString(wqentry.getUUID());
+        }
+    }
 }
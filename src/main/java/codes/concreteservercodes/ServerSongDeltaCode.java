@@ -0,0 +1,127 @@
+package codes.concreteservercodes;
+
+import codes.IServerCode;
+import model.CatalogDelta;
+import model.PlayerSnapshot;
+import protocol.BinaryFrameWriter;
+import protocol.Opcodes;
+import song.MP3Song;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sends changes of a catalog of loaded songs to a client.<br>
+ *
+ * Message contains epoch and version of a catalog, whether client should discard its copy of a catalog,
+ * and counted lists of added and removed songs:
+ * <pre>
+ * SERVER_SONG_DELTA
+ * epoch
+ * version
+ * FULL | INCREMENTAL
+ * number of added songs
+ * added songs...
+ * number of removed songs
+ * removed songs...
+ * SERVER_BROADCAST_ENDED
+ * </pre>
+ *
+ * @author Ivica Duspara
+ * @version 1.1
+ */
+public class ServerSongDeltaCode implements IServerCode {
+
+    /**
+     * Sends the change of a catalog which published {@code snapshot}.
+     */
+    @Override
+    public void execute(PlayerSnapshot snapshot, BufferedWriter writer) throws IOException {
+        write(snapshot.getCatalogChange(), writer);
+    }
+
+
+    @Override
+    public void encode(PlayerSnapshot snapshot, BinaryFrameWriter writer) {
+        encode(snapshot.getCatalogChange(), writer);
+    }
+
+
+    /**
+     * Writes {@code delta} to {@code writer}.
+     *
+     * @param delta
+     *        which is sent
+     *
+     * @param writer
+     *        of a client
+     *
+     * @throws IOException
+     *         if an error occurs while writing
+     */
+    public static void write(CatalogDelta delta, BufferedWriter writer) throws IOException {
+        writer.write("SERVER_SONG_DELTA");
+        writer.newLine();
+        writer.write(Long.toString(delta.getEpoch()));
+        writer.newLine();
+        writer.write(Long.toString(delta.getVersion()));
+        writer.newLine();
+        writer.write(delta.isFull() ? "FULL" : "INCREMENTAL");
+        writer.newLine();
+        writeSongs(delta.getAdded(), writer);
+        writeSongs(delta.getRemoved(), writer);
+        writer.write("SERVER_BROADCAST_ENDED");
+        writer.newLine();
+        writer.flush();
+    }
+
+
+    /**
+     * Writes {@code delta} as a frame of binary protocol.
+     *
+     * @param delta
+     *        which is sent
+     *
+     * @param writer
+     *        to which frame is written
+     */
+    public static void encode(CatalogDelta delta, BinaryFrameWriter writer) {
+        writer.begin(Opcodes.SERVER_SONG_DELTA);
+        writer.writeVarint(delta.getEpoch());
+        writer.writeVarint(delta.getVersion());
+        writer.writeByte(delta.isFull() ? Opcodes.DELTA_FULL : 0);
+        writer.writeVarint(delta.isFull() ? 0 : delta.getBaseVersion());
+        writer.writeVarint(delta.getAdded().size());
+        for(MP3Song song : delta.getAdded()) {
+            writer.writeVarint(song.getId());
+            writer.writeString(song.getFileName());
+        }
+        writer.writeVarint(delta.getRemoved().size());
+        for(MP3Song song : delta.getRemoved()) {
+            writer.writeVarint(song.getId());
+        }
+    }
+
+
+    /**
+     * Writes number of {@code songs} followed by every song.
+     *
+     * @param songs
+     *        which are written
+     *
+     * @param writer
+     *        of a client
+     *
+     * @throws IOException
+     *         if an error occurs while writing
+     */
+    private static void writeSongs(List<MP3Song> songs, BufferedWriter writer) throws IOException {
+        writer.write(Integer.toString(songs.size()));
+        writer.newLine();
+        for(MP3Song song : songs) {
+            writer.write(song.toString());
+            writer.newLine();
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package codes.concreteservercodes;
 
 import codes.IServerCode;
-import model.PlayerData;
+import model.PlayerSnapshot;
+import protocol.BinaryFrameWriter;
+import protocol.Opcodes;
 import song.MP3Song;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Sends list of currently loaded songs to a client.<br>
@@ -18,10 +21,10 @@ public class ServerSongListCode implements IServerCode {
 
 
     @Override
-    public void execute(PlayerData playerData, BufferedWriter writer) throws IOException {
+    public void execute(PlayerSnapshot snapshot, BufferedWriter writer) throws IOException {
             writer.write("SERVER_SONG_LIST");
             writer.newLine();
-            for(MP3Song song : playerData.getLoadedSongs()) {
+            for(MP3Song song : snapshot.getSongs()) {
                 writer.write(song.toString());
                 writer.newLine();
             }
@@ -29,4 +32,15 @@ public class ServerSongListCode implements IServerCode {
             writer.newLine();
             writer.flush();
     }
+
+    @Override
+    public void encode(PlayerSnapshot snapshot, BinaryFrameWriter writer) {
+        List<MP3Song> songs = snapshot.getSongs();
+        writer.begin(Opcodes.SERVER_SONG_LIST);
+        writer.writeVarint(songs.size());
+        for(MP3Song song : songs) {
+            writer.writeVarint(song.getId());
+            writer.writeString(song.getFileName());
+        }
+    }
 }
@@ -1,30 +1,43 @@
 package codes.concreteservercodes;
 
 import codes.IServerCode;
-import model.PlayerData;
+import model.CatalogDelta;
+import model.PlayerSnapshot;
+import protocol.BinaryFrameWriter;
 import song.MP3Song;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.List;
 
 
 /**
- * Sends list of recently updated songs to a client.
+ * Sends the change of a catalog which published a snapshot to a client.<br>
+ * Text clients receive songs which were added as a legacy {@code SERVER_SONG_LIST}, or the whole catalog if
+ * songs were removed, followed by a {@link ServerSongDeltaCode delta} which tells the new version of a catalog.
+ * Binary clients receive only the delta.
  *
  * @author Ivica Duspara
- * @version 1.0
+ * @version 1.2
  */
 public class ServerSongPartialListCode implements IServerCode {
     @Override
-    public void execute(PlayerData playerData, BufferedWriter writer) throws IOException {
+    public void execute(PlayerSnapshot snapshot, BufferedWriter writer) throws IOException {
+        CatalogDelta change = snapshot.getCatalogChange();
+        List<MP3Song> songs = change.getRemoved().isEmpty() ? change.getAdded() : snapshot.getSongs();
         writer.write("SERVER_SONG_LIST");
         writer.newLine();
-        for(MP3Song song : playerData.getMostRecentUpdate()) {
+        for(MP3Song song : songs) {
             writer.write(song.toString());
             writer.newLine();
         }
         writer.write("SERVER_BROADCAST_ENDED");
         writer.newLine();
-        writer.flush();
+        ServerSongDeltaCode.write(change, writer);
+    }
+
+    @Override
+    public void encode(PlayerSnapshot snapshot, BinaryFrameWriter writer) {
+        ServerSongDeltaCode.encode(snapshot.getCatalogChange(), writer);
     }
 }
@@ -0,0 +1,59 @@
+package commands;
+
+
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.Stage;
+import model.PlayerData;
+
+import java.io.File;
+
+/**
+ * Opens a dialog window where a folder can be selected.
+ * Every audio file in selected folder and its subfolders is added to a play list if it is not already in it.
+ *
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ *
+ */
+public class OpenFolderCommand extends ModelCommand{
+
+    /**
+     * Used for choosing a folder.
+     */
+    private DirectoryChooser directoryChooser;
+
+    private Stage stage;
+
+    /**
+     * Constructs a newly allocated {@code OpenFolderCommand} with given parameters
+     *
+     *
+     * @param playerData
+     * 		  {@code PlayerData} in which songs of selected folder are stored
+     *
+     * @param name
+     * 		  of this {@code OpenFolderCommand}
+     */
+    public OpenFolderCommand(Stage stage, PlayerData playerData, String name) {
+        super(playerData,name);
+        this.stage = stage;
+        this.directoryChooser = new DirectoryChooser();
+        setAccelerator(new KeyCodeCombination(KeyCode.O, KeyCombination.CONTROL_DOWN, KeyCombination.SHIFT_DOWN));
+
+    }
+
+
+    @Override
+    public void execute() {
+        File folder = directoryChooser.showDialog(stage);
+        if(folder != null) {
+            playerData.addFolder(folder);
+        }
+
+    }
+
+}
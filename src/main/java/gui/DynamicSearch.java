@@ -1,36 +1,75 @@
 package gui;
 
+import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.PlayerData;
+import model.SearchIndex;
 import observers.SwapObserver;
 import song.MP3Song;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
  * Dynamically searches loaded songs of {@link PlayerData} model.<br>
+ * Every change of a query is answered by {@link SearchIndex} of a model, so a search never goes through
+ * every loaded song. Query is matched as plain text against file name, title, artist and album of a song,
+ * ignoring case. If nothing contains a query, it is probably misspelled and the best
+ * {@value #FUZZY_LIMIT} {@link SearchIndex#fuzzySearch(String, int) fuzzy matches} are shown instead.<br>
  *
+ * Searching runs on a background thread, so typing never waits for it. A search starts only once a query did
+ * not change for {@value #DEBOUNCE_MILLIS} milliseconds and every change of a query supersedes a search which
+ * has not finished yet, whose results are then dropped. Results are published on JavaFX application thread
+ * with a single change of queried songs.
  *
  * @author Ivica Duspara
- * @version 1.0
+ * @version 1.3
  */
  class DynamicSearch implements ChangeListener<String> {
 
-    private Pattern searchPattern;
+    /**
+     * Time for which a query must not change before it is searched.
+     */
+    private static final long DEBOUNCE_MILLIS = 80;
 
-    private Matcher matcher;
+    /**
+     * Greatest number of songs shown when a query matches nothing exactly and is searched for typos.
+     */
+    private static final int FUZZY_LIMIT = 100;
 
-    private ObservableList<MP3Song> loadedSongs;
+    private SearchIndex searchIndex;
 
     private ObservableList<MP3Song> queriedSongs;
 
+    /**
+     * Thread on which searches run.
+     */
+    private ScheduledExecutorService searcher;
+
+    /**
+     * Search which is scheduled and may not have started yet.
+     */
+    private ScheduledFuture<?> pendingSearch;
+
+    /**
+     * Incremented on every change of a query, results of a search are published only if it did not
+     * change meanwhile.
+     */
+    private AtomicLong generation;
+
+    /**
+     * {@code true} while queried songs are shown instead of loaded ones.
+     */
+    private boolean showingQueried;
+
 
     /**
      * Observers who are interested in swap.
@@ -45,9 +84,15 @@ import java.util.regex.Pattern;
      *        On which seatch is performed
      */
     DynamicSearch(PlayerData playerData) {
-        this.loadedSongs = playerData.getLoadedSongs();
+        this.searchIndex = playerData.getSearchIndex();
         this.queriedSongs = playerData.getQueriedSongs();
         this.swapObserverList = new ArrayList<>();
+        this.generation = new AtomicLong();
+        this.searcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "meteor-search");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
 
@@ -105,49 +150,51 @@ import java.util.regex.Pattern;
 
     @Override
     public void changed(ObservableValue<? extends String> observable, String oldValue, String newValue) {
-        //first letter is typed.
-        if(oldValue.isEmpty()) {
-            searchPattern = Pattern.compile(newValue.toLowerCase());
-            for(MP3Song song : loadedSongs) {
-                String name = song.getFileName().toLowerCase();
-                matcher = searchPattern.matcher(name);
-                if(matcher.find()) {
-                    queriedSongs.add(song);
-                }
-            }
-            swapNotify();
+        long current = generation.incrementAndGet();
+        if(pendingSearch != null) {
+            pendingSearch.cancel(false);
         }
-        else if(newValue.isEmpty()) {
+        if(newValue.isEmpty()) {
+            pendingSearch = null;
             queriedSongs.clear();
+            showingQueried = false;
             restoreNotify();
+            return;
         }
-        else {
-            ObservableList<MP3Song> filteredStuff = FXCollections.observableArrayList();
-            searchPattern = Pattern.compile(newValue.toLowerCase());
-            for(MP3Song song: queriedSongs) {
-                String name = song.getFileName().toLowerCase();
-                matcher = searchPattern.matcher(name);
-                if(matcher.find()) {
-                    filteredStuff.add(song);
-                }
+        pendingSearch = searcher.schedule(() -> {
+            if(generation.get() != current) {
+                return;
             }
-            /*
-            * If an newValue is something misspelled queried songs are empty.
-            * Then if an user deletes a character/characters to correct themselves, newValue would search in an empty list because
-            * of spelling mistake that first occurred. The following code will check if filteredStuff is empty, and if it is it will look
-            * for songs matching newValue in loadedSongs. This is a form of lazy error recovery
-            * */
-            if(filteredStuff.isEmpty()) {
-                for(MP3Song song : loadedSongs) {
-                    String name = song.getFileName().toLowerCase();
-                    matcher = searchPattern.matcher(name);
-                    if(matcher.find()) {
-                        filteredStuff.add(song);
-                    }
-                }
+            List<MP3Song> exact = searchIndex.search(newValue);
+            List<MP3Song> result = exact.isEmpty() ? searchIndex.fuzzySearch(newValue, FUZZY_LIMIT) : exact;
+            if(generation.get() == current) {
+                Platform.runLater(() -> publish(current, result));
             }
-            queriedSongs = filteredStuff;
-            queryNotify(filteredStuff);
+        }, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Shows {@code result} of a search unless a query changed since it started. Called on JavaFX
+     * application thread.
+     *
+     * @param searched
+     *        generation of a query which was searched
+     *
+     * @param result
+     *        songs which match a query
+     */
+    private void publish(long searched, List<MP3Song> result) {
+        if(generation.get() != searched) {
+            return;
+        }
+        queriedSongs.setAll(result);
+        if(!showingQueried) {
+            showingQueried = true;
+            swapNotify();
+        }
+        else {
+            queryNotify(queriedSongs);
         }
     }
 }
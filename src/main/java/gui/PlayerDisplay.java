@@ -1,6 +1,5 @@
 package gui;
 
-import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
@@ -8,6 +7,7 @@ import javafx.scene.control.TextField;
 import javafx.scene.layout.GridPane;
 import javafx.util.Duration;
 import model.PlayerData;
+import model.SongImport;
 import observers.GraphicalPlayerDataObserver;
 import observers.PlayerDisplayObserver;
 import observers.SwapObserver;
@@ -224,16 +224,14 @@ public class PlayerDisplay implements GraphicalPlayerDataObserver, SwapObserver
 
     @Override
     public void swapQueuedSongs(MP3Song song, int index) {
-        Platform.runLater(() -> {
-            ObservableList<MP3Song> queuedSongs = queuedSongsView.getItems();
-            queuedSongs.set(index,song);
-            if(queuedSongs.size() > 0) {
-                nextInQueue.setText(queuedSongs.get(0).toString());
-            }
-            else {
-                nextInQueue.setText("");
-            }
-        });
+        ObservableList<MP3Song> queuedSongs = queuedSongsView.getItems();
+        queuedSongs.set(index,song);
+        if(queuedSongs.size() > 0) {
+            nextInQueue.setText(queuedSongs.get(0).toString());
+        }
+        else {
+            nextInQueue.setText("");
+        }
     }
 
 
@@ -255,6 +253,13 @@ public class PlayerDisplay implements GraphicalPlayerDataObserver, SwapObserver
         }
     }
 
+    @Override
+    public void updateImportProgress(SongImport songImport) {
+        for(PlayerDisplayObserver pdo : playerDisplayObserverList) {
+            pdo.updateImportProgress(songImport);
+        }
+    }
+
     @Override
     public void swapToQueriedView() {
         for(PlayerDisplayObserver observer : playerDisplayObserverList) {
@@ -0,0 +1,181 @@
+package model;
+
+import song.MP3Song;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable difference between two versions of a catalog of loaded songs.<br>
+ *
+ * If {@link #isFull()} is {@code true} client's copy of a catalog could not be matched (it is too old or it comes
+ * from another session), so {@link #getAdded() added songs} contain the whole catalog and client should
+ * discard what it has.<br>
+ *
+ * Consecutive deltas are {@link #merge(List) merged} into one, so a client which missed none of them
+ * can skip straight to the last version.
+ *
+ * @author Ivica Duspara
+ * @version 1.1
+ */
+public class CatalogDelta {
+
+    private final long epoch;
+
+    private final long baseVersion;
+
+    private final long version;
+
+    private final boolean full;
+
+    private final List<MP3Song> added;
+
+    private final List<MP3Song> removed;
+
+
+    /**
+     * Constructs a new {@code CatalogDelta} with given parameters.
+     *
+     * @param epoch
+     *        of a catalog
+     *
+     * @param baseVersion
+     *        version to which this delta is applied
+     *
+     * @param version
+     *        of a catalog after applying this delta
+     *
+     * @param full
+     *        {@code true} if {@code added} contains the whole catalog
+     *
+     * @param added
+     *        songs added since requested version
+     *
+     * @param removed
+     *        songs removed since requested version
+     */
+    CatalogDelta(long epoch, long baseVersion, long version, boolean full, List<MP3Song> added, List<MP3Song> removed) {
+        this.epoch = epoch;
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.full = full;
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+    }
+
+
+    /**
+     * Merges consecutive incremental {@code deltas} into one which leads from the base version of the first
+     * to the version of the last. A song which was added and then removed (or the other way around) is not
+     * a part of a merged delta.
+     *
+     * @param deltas
+     *        incremental deltas of the same epoch, each based on the version of the previous one
+     *
+     * @return
+     *        merged delta
+     *
+     * @throws IllegalArgumentException
+     *         if {@code deltas} are empty, full, or do not follow each other
+     */
+    public static CatalogDelta merge(List<CatalogDelta> deltas) {
+        if(deltas.isEmpty()) {
+            throw new IllegalArgumentException("No deltas to merge.");
+        }
+        CatalogDelta first = deltas.get(0);
+        if(deltas.size() == 1) {
+            return first;
+        }
+        Map<Long, MP3Song> added = new LinkedHashMap<>();
+        Map<Long, MP3Song> removed = new LinkedHashMap<>();
+        long version = first.baseVersion;
+        for(CatalogDelta delta : deltas) {
+            if(delta.full || delta.epoch != first.epoch || delta.baseVersion != version) {
+                throw new IllegalArgumentException("Delta " + delta.baseVersion + "-" + delta.version
+                        + " does not follow version " + version);
+            }
+            for(MP3Song song : delta.added) {
+                if(removed.remove(song.getId()) == null) {
+                    added.put(song.getId(), song);
+                }
+            }
+            for(MP3Song song : delta.removed) {
+                if(added.remove(song.getId()) == null) {
+                    removed.put(song.getId(), song);
+                }
+            }
+            version = delta.version;
+        }
+        return new CatalogDelta(first.epoch, first.baseVersion, version, false, new ArrayList<>(added.values()),
+                new ArrayList<>(removed.values()));
+    }
+
+
+    /**
+     * Returns epoch of a catalog. Epoch changes whenever versions of a catalog start again.
+     *
+     * @return
+     *        epoch of a catalog
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+
+    /**
+     * Returns version to which this delta is applied. Meaningless if this delta is {@link #isFull() full}.
+     *
+     * @return
+     *        version to which this delta is applied
+     */
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+
+    /**
+     * Returns version of a catalog after applying this delta.
+     *
+     * @return
+     *        version of a catalog after applying this delta
+     */
+    public long getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Returns {@code true} if this delta contains the whole catalog.
+     *
+     * @return
+     *        {@code true} if this delta contains the whole catalog
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+
+    /**
+     * Returns songs which were added.
+     *
+     * @return
+     *        songs which were added
+     */
+    public List<MP3Song> getAdded() {
+        return added;
+    }
+
+
+    /**
+     * Returns songs which were removed.
+     *
+     * @return
+     *        songs which were removed
+     */
+    public List<MP3Song> getRemoved() {
+        return removed;
+    }
+}
@@ -0,0 +1,264 @@
+package model;
+
+import song.MP3Song;
+
+import java.util.*;
+
+/**
+ * Records changes of a catalog of loaded songs under a monotonically increasing version.<br>
+ *
+ * Every change of a catalog (a batch of added or removed songs) increases version by one. Journal keeps
+ * a limited number of most recent changes, so a client which knows its last version receives only songs which
+ * were added or removed since then. Clients whose version is older than any retained change, or which come
+ * from another {@link #getEpoch() epoch}, receive the whole catalog.
+ *
+ * @author Ivica Duspara
+ * @version 1.1
+ */
+public class CatalogJournal {
+
+    /**
+     * Maximum number of retained changes.
+     */
+    private static final int MAX_RETAINED_CHANGES = 1 << 16;
+
+    /**
+     * Identifies this journal, versions of different journals are not comparable.
+     */
+    private final long epoch;
+
+    /**
+     * Current version of a catalog.
+     */
+    private long version;
+
+    /**
+     * Changes made after this version are retained.
+     */
+    private long oldestVersion;
+
+    /**
+     * Current catalog.
+     */
+    private List<MP3Song> songs;
+
+    /**
+     * Retained changes ordered by version.
+     */
+    private List<Change> changes;
+
+
+    /**
+     * Constructs a new empty {@code CatalogJournal} with a random epoch.
+     */
+    public CatalogJournal() {
+        this(new Random().nextLong() & Long.MAX_VALUE);
+    }
+
+
+    /**
+     * Constructs a new empty {@code CatalogJournal} with given {@code epoch}.
+     *
+     * @param epoch
+     *        of this journal
+     */
+    public CatalogJournal(long epoch) {
+        this.epoch = epoch;
+        this.songs = new ArrayList<>();
+        this.changes = new ArrayList<>();
+    }
+
+
+    /**
+     * Returns epoch of this journal.
+     *
+     * @return
+     *        epoch of this journal
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+
+    /**
+     * Returns current version of a catalog.
+     *
+     * @return
+     *        current version of a catalog
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Records that {@code added} songs were added to a catalog.
+     *
+     * @param added
+     *        songs which were added
+     *
+     * @return
+     *        new version of a catalog
+     */
+    public synchronized long recordAdded(Collection<MP3Song> added) {
+        return record(added, true);
+    }
+
+
+    /**
+     * Records that {@code removed} songs were removed from a catalog.
+     *
+     * @param removed
+     *        songs which were removed
+     *
+     * @return
+     *        new version of a catalog
+     */
+    public synchronized long recordRemoved(Collection<MP3Song> removed) {
+        return record(removed, false);
+    }
+
+
+    /**
+     * Returns changes made since {@code knownVersion} of a catalog with {@code knownEpoch}.<br>
+     * A song which was added and then removed (or the other way around) since {@code knownVersion}
+     * is not a part of returned delta.
+     *
+     * @param knownEpoch
+     *        epoch known to a client
+     *
+     * @param knownVersion
+     *        version known to a client
+     *
+     * @return
+     *        changes made since {@code knownVersion}
+     */
+    public synchronized CatalogDelta since(long knownEpoch, long knownVersion) {
+        if(knownEpoch != epoch || knownVersion < oldestVersion || knownVersion > version) {
+            return new CatalogDelta(epoch, -1, version, true, new ArrayList<>(songs), Collections.emptyList());
+        }
+        Map<Long, Change> net = new LinkedHashMap<>();
+        for(int i = firstChangeAfter(knownVersion); i < changes.size(); i++) {
+            Change change = changes.get(i);
+            Long key = change.song.getId();
+            Change previous = net.get(key);
+            if(previous != null && previous.added != change.added) {
+                net.remove(key);
+            }
+            else {
+                net.put(key, change);
+            }
+        }
+        List<MP3Song> added = new ArrayList<>();
+        List<MP3Song> removed = new ArrayList<>();
+        for(Change change : net.values()) {
+            (change.added ? added : removed).add(change.song);
+        }
+        return new CatalogDelta(epoch, knownVersion, version, false, added, removed);
+    }
+
+
+    /**
+     * Returns changes made by the most recent change of a catalog.
+     *
+     * @return
+     *        changes made by the most recent change of a catalog
+     */
+    public synchronized CatalogDelta latest() {
+        return since(epoch, Math.max(oldestVersion, version - 1));
+    }
+
+
+    /**
+     * Records a batch of changes under a new version. Empty batch does not change version.<br>
+     * Removed songs are looked up in a set, so removing a batch costs time proportional to a catalog
+     * rather than to a catalog times a batch. Changes are recorded in order of {@code batch}.
+     *
+     * @param batch
+     *        songs which changed
+     *
+     * @param added
+     *        {@code true} if songs were added, {@code false} if they were removed
+     *
+     * @return
+     *        new version of a catalog
+     */
+    private long record(Collection<MP3Song> batch, boolean added) {
+        if(batch.isEmpty()) {
+            return version;
+        }
+        version++;
+        for(MP3Song song : batch) {
+            changes.add(new Change(version, song, added));
+        }
+        if(added) {
+            songs.addAll(batch);
+        }
+        else {
+            songs.removeAll(batch instanceof Set ? batch : new HashSet<>(batch));
+        }
+        if(changes.size() > MAX_RETAINED_CHANGES) {
+            trim();
+        }
+        return version;
+    }
+
+
+    /**
+     * Drops oldest changes so that at most three quarters of {@link #MAX_RETAINED_CHANGES} remain.
+     * Changes of a single version are always dropped together.
+     */
+    private void trim() {
+        int cut = changes.size() - MAX_RETAINED_CHANGES * 3 / 4;
+        long dropped = changes.get(cut - 1).version;
+        while(cut < changes.size() && changes.get(cut).version == dropped) {
+            cut++;
+        }
+        changes.subList(0, cut).clear();
+        oldestVersion = dropped;
+    }
+
+
+    /**
+     * Returns index of the first change made after {@code knownVersion}.
+     *
+     * @param knownVersion
+     *        version known to a client
+     *
+     * @return
+     *        index of the first change made after {@code knownVersion}
+     */
+    private int firstChangeAfter(long knownVersion) {
+        int low = 0;
+        int high = changes.size();
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(changes.get(middle).version <= knownVersion) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+
+    /**
+     * Single added or removed song.
+     */
+    private static class Change {
+
+        private final long version;
+
+        private final MP3Song song;
+
+        private final boolean added;
+
+        Change(long version, MP3Song song, boolean added) {
+            this.version = version;
+            this.song = song;
+            this.added = added;
+        }
+    }
+}
@@ -35,10 +35,12 @@ public class Codes {
         codesMap.put("SERVER_SONG_LIST","ServerSongListCode");
         codesMap.put("SERVER_QUEUE_LIST","ServerQueueListCode");
         codesMap.put("SERVER_SONG_PARTIAL_LIST","ServerSongPartialListCode");
+        codesMap.put("SERVER_SONG_DELTA","ServerSongDeltaCode");
         codesMap.put("CLIENT_QUEUE","ClientQueueCode");
         codesMap.put("CLIENT_SONGS_REQUEST","ClientSongRequestCode");
         codesMap.put("CLIENT_QUEUE_REQUEST","ClientQueueRequestCode");
         codesMap.put("CLIENT_NOW_PLAYING_REQUEST","ClientNowPlayingRequestCode");
+        codesMap.put("CLIENT_SONGS_SINCE","ClientSongsSinceCode");
     }
 
     /**
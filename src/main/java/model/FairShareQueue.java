@@ -0,0 +1,587 @@
+package model;
+
+import song.MP3Song;
+
+import java.util.*;
+
+/**
+ * Queue in which every client (identified by its UUID) has its own queue of songs and playing takes turns
+ * between clients.<br>
+ *
+ * Turns are decided by stride scheduling. Every client has a weight (1 unless {@link #setWeight(String, int) set})
+ * and a <i>pass</i>. The client with the lowest pass plays its next song and its pass grows by a stride
+ * inversely proportional to its weight, so with equal weights clients play in a plain round-robin and a client
+ * with weight 2 plays twice as often. A client which joins, or comes back after its queue ran dry, starts at
+ * the pass of the song played last, so it can neither jump ahead of clients waiting for their turn nor save up
+ * turns while idle.<br>
+ *
+ * Since a client's pass only grows by its stride, the turn of every queued song is known when it is queued:
+ * the {@code n}-th song of a client plays at its pass plus {@code n} strides. Every song is therefore kept
+ * as a turn in a treap ordered by pass, then by order in which clients joined, in which every node knows
+ * the size of its subtree. Playing order is the order of a treap, so:
+ * <ul>
+ *     <li>choosing the next song, queuing a song and telling its position cost O(log songs)</li>
+ *     <li>a queued song never moves other songs, it is inserted at the position {@link #enqueue(String, MP3Song)}
+ *     returns, so clients can apply it as a single insert</li>
+ * </ul>
+ * Treap is persistent: a change copies the path to a changed node and shares the rest, so
+ * {@link #entries()} returns the current treap as an immutable list in O(1) and later changes do not affect it.<br>
+ *
+ * Weights are read from {@value #WEIGHTS_PROPERTY} system property, a comma separated list of
+ * {@code UUID=weight} pairs.
+ *
+ * @author Ivica Duspara
+ * @version 1.2
+ */
+public class FairShareQueue implements SongQueue {
+
+    /**
+     * System property used for setting weights of clients.
+     */
+    public static final String WEIGHTS_PROPERTY = "meteor.queueWeights";
+
+    /**
+     * Stride of a client with weight 1.
+     */
+    private static final long STRIDE = 1L << 20;
+
+    /**
+     * Every client which has queued a song, including those whose queue ran dry.
+     */
+    private Map<String, Requester> requesters;
+
+    /**
+     * Weights of clients which differ from 1.
+     */
+    private Map<String, Integer> weights;
+
+    /**
+     * Root of a treap of queued songs, shared with lists returned by {@link #entries()}.
+     */
+    private Turn root;
+
+    /**
+     * Pass of the song which was played last.
+     */
+    private long virtualTime;
+
+    /**
+     * Breaks ties between equal passes in order in which clients joined.
+     */
+    private long nextOrder;
+
+    /**
+     * Priorities of treap nodes.
+     */
+    private Random random;
+
+
+    /**
+     * Constructs a new empty {@code FairShareQueue}.
+     */
+    public FairShareQueue() {
+        this.requesters = new HashMap<>();
+        this.weights = new HashMap<>();
+        this.random = new Random();
+    }
+
+
+    /**
+     * Constructs a new empty {@code FairShareQueue} with weights read from {@value #WEIGHTS_PROPERTY} system
+     * property. Pairs which can not be read are skipped.
+     *
+     * @return
+     *        an empty queue
+     */
+    public static FairShareQueue fromProperties() {
+        FairShareQueue queue = new FairShareQueue();
+        String property = System.getProperty(WEIGHTS_PROPERTY);
+        if(property == null) {
+            return queue;
+        }
+        for(String pair : property.split(",")) {
+            int separator = pair.indexOf('=');
+            if(pair.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                if(separator < 0) {
+                    throw new IllegalArgumentException("Missing weight: " + pair);
+                }
+                queue.setWeight(pair.substring(0, separator).trim(),
+                        Integer.parseInt(pair.substring(separator + 1).trim()));
+            }catch(IllegalArgumentException exception) {
+                System.out.println("Greška at: " + exception.getMessage());
+            }
+        }
+        return queue;
+    }
+
+
+    /**
+     * Sets weight of a client identified by {@code UUID}. Client with weight {@code n} plays {@code n} times
+     * as often as a client with weight 1. Songs which a client already queued are moved to their new turns.
+     *
+     * @param UUID
+     *        of a client
+     *
+     * @param weight
+     *        positive weight of a client
+     *
+     * @throws IllegalArgumentException
+     *         if {@code weight} is not positive
+     */
+    public synchronized void setWeight(String UUID, int weight) {
+        if(weight < 1) {
+            throw new IllegalArgumentException("Weight must be positive: " + weight);
+        }
+        weights.put(UUID, weight);
+        Requester requester = requesters.get(UUID);
+        if(requester == null || requester.stride == strideOf(weight)) {
+            return;
+        }
+        List<MP3Song> songs = removeSongs(requester);
+        requester.stride = strideOf(weight);
+        for(int i = 0; i < songs.size(); i++) {
+            root = insert(root, new Turn(requester.pass + i * requester.stride, requester.order, UUID, songs.get(i),
+                    random.nextInt()));
+        }
+        requester.count = songs.size();
+    }
+
+
+    /**
+     * Puts {@code song} at the end of a client's own queue.
+     *
+     * @param UUID
+     *        of a client
+     *
+     * @param song
+     *        which is requested
+     *
+     * @return
+     *        position at which {@code song} was inserted into playing order, starting at 0
+     *
+     * @throws NullPointerException
+     *         if {@code song} is {@code null}
+     */
+    @Override
+    public synchronized int enqueue(String UUID, MP3Song song) {
+        Objects.requireNonNull(song, "song");
+        Requester requester = requesters.get(UUID);
+        if(requester == null) {
+            requester = new Requester(UUID, strideOf(weights.getOrDefault(UUID, 1)));
+            requester.pass = virtualTime;
+            requesters.put(UUID, requester);
+        }
+        if(requester.count == 0) {
+            requester.pass = Math.max(requester.pass, virtualTime);
+            requester.order = nextOrder++;
+        }
+        long pass = requester.pass + requester.count * requester.stride;
+        int position = rank(root, pass, requester.order);
+        root = insert(root, new Turn(pass, requester.order, UUID, song, random.nextInt()));
+        requester.count++;
+        return position;
+    }
+
+
+    @Override
+    public synchronized QueueEntry removeHead() {
+        if(root == null) {
+            return null;
+        }
+        Turn turn = first(root);
+        root = removeFirst(root);
+        Requester requester = requesters.get(turn.UUID);
+        virtualTime = turn.pass;
+        requester.pass = turn.pass + requester.stride;
+        requester.count--;
+        return turn.toQueueEntry();
+    }
+
+
+    @Override
+    public synchronized QueueEntry peek() {
+        return root == null ? null : first(root).toQueueEntry();
+    }
+
+
+    @Override
+    public synchronized void remove(String UUID) {
+        Requester requester = requesters.remove(UUID);
+        if(requester != null) {
+            removeSongs(requester);
+        }
+    }
+
+
+    /**
+     * Returns number of songs which are played before the next song of {@code UUID}, or -1 if client has no
+     * song in a queue.
+     *
+     * @param UUID
+     *        of a client
+     *
+     * @return
+     *        position of a client's next song
+     */
+    @Override
+    public synchronized int positionOf(String UUID) {
+        Requester requester = requesters.get(UUID);
+        return requester == null || requester.count == 0 ? -1 : rank(root, requester.pass, requester.order);
+    }
+
+
+    /**
+     * Returns every queued song in order of playing. Returned list is the current treap, so this costs O(1)
+     * and later changes of a queue do not affect it. Reading an element by index costs O(log songs).
+     *
+     * @return
+     *        entries of a queue in order of playing
+     */
+    @Override
+    public synchronized List<QueueEntry> entries() {
+        return new TurnList(root);
+    }
+
+
+    @Override
+    public synchronized int size() {
+        return size(root);
+    }
+
+
+    /**
+     * Removes every song of {@code requester} from a treap and returns them in order of playing.
+     */
+    private List<MP3Song> removeSongs(Requester requester) {
+        List<MP3Song> songs = new ArrayList<>(requester.count);
+        for(int i = 0; i < requester.count; i++) {
+            long pass = requester.pass + i * requester.stride;
+            songs.add(find(root, pass, requester.order).song);
+            root = delete(root, pass, requester.order);
+        }
+        requester.count = 0;
+        return songs;
+    }
+
+
+    private static long strideOf(int weight) {
+        return Math.max(1, STRIDE / weight);
+    }
+
+
+    /**
+     * Returns number of turns in a subtree which come before a turn of {@code pass} and {@code order}.
+     */
+    private static int rank(Turn node, long pass, long order) {
+        int rank = 0;
+        while(node != null) {
+            if(compare(pass, order, node) <= 0) {
+                node = node.left;
+            }
+            else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+
+    /**
+     * Returns a turn of {@code pass} and {@code order}, which must be in a subtree.
+     */
+    private static Turn find(Turn node, long pass, long order) {
+        while(true) {
+            int comparison = compare(pass, order, node);
+            if(comparison == 0) {
+                return node;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+    }
+
+
+    private static Turn first(Turn node) {
+        while(node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+
+    /**
+     * Returns {@code index}-th turn of a subtree.
+     */
+    private static Turn select(Turn node, int index) {
+        while(true) {
+            int left = size(node.left);
+            if(index < left) {
+                node = node.left;
+            }
+            else if(index == left) {
+                return node;
+            }
+            else {
+                index -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+
+    /**
+     * Returns a subtree with {@code turn} inserted. Nodes on the path to {@code turn} are copied.
+     */
+    private static Turn insert(Turn node, Turn turn) {
+        if(node == null) {
+            return turn;
+        }
+        if(turn.priority > node.priority) {
+            Turn[] parts = split(node, turn.pass, turn.order);
+            return turn.with(parts[0], parts[1]);
+        }
+        if(compare(turn.pass, turn.order, node) < 0) {
+            return node.with(insert(node.left, turn), node.right);
+        }
+        return node.with(node.left, insert(node.right, turn));
+    }
+
+
+    /**
+     * Splits a subtree into turns which come before {@code pass} and {@code order} and the rest.
+     */
+    private static Turn[] split(Turn node, long pass, long order) {
+        if(node == null) {
+            return new Turn[2];
+        }
+        if(compare(pass, order, node) > 0) {
+            Turn[] parts = split(node.right, pass, order);
+            parts[0] = node.with(node.left, parts[0]);
+            return parts;
+        }
+        Turn[] parts = split(node.left, pass, order);
+        parts[1] = node.with(parts[1], node.right);
+        return parts;
+    }
+
+
+    /**
+     * Returns a subtree without its first turn.
+     */
+    private static Turn removeFirst(Turn node) {
+        if(node.left == null) {
+            return node.right;
+        }
+        return node.with(removeFirst(node.left), node.right);
+    }
+
+
+    /**
+     * Returns a subtree without a turn of {@code pass} and {@code order}.
+     */
+    private static Turn delete(Turn node, long pass, long order) {
+        if(node == null) {
+            return null;
+        }
+        int comparison = compare(pass, order, node);
+        if(comparison < 0) {
+            return node.with(delete(node.left, pass, order), node.right);
+        }
+        if(comparison > 0) {
+            return node.with(node.left, delete(node.right, pass, order));
+        }
+        return merge(node.left, node.right);
+    }
+
+
+    /**
+     * Merges two subtrees where every turn of {@code left} comes before every turn of {@code right}.
+     */
+    private static Turn merge(Turn left, Turn right) {
+        if(left == null) {
+            return right;
+        }
+        if(right == null) {
+            return left;
+        }
+        if(left.priority > right.priority) {
+            return left.with(left.left, merge(left.right, right));
+        }
+        return right.with(merge(left, right.left), right.right);
+    }
+
+
+    private static int size(Turn node) {
+        return node == null ? 0 : node.size;
+    }
+
+
+    /**
+     * Compares a turn of {@code pass} and {@code order} with {@code node}, by pass, then by order in which
+     * clients joined.
+     */
+    private static int compare(long pass, long order, Turn node) {
+        int comparison = Long.compare(pass, node.pass);
+        return comparison != 0 ? comparison : Long.compare(order, node.order);
+    }
+
+
+    /**
+     * Client with its own queue of songs.
+     *
+     * @author Ivica Duspara
+     * @version 1.1
+     */
+    private static final class Requester {
+
+        private final String UUID;
+
+        /**
+         * Added to {@link #pass} whenever client plays a song.
+         */
+        private long stride;
+
+        /**
+         * Virtual time of client's next song.
+         */
+        private long pass;
+
+        /**
+         * Breaks ties between equal passes.
+         */
+        private long order;
+
+        /**
+         * Number of client's queued songs, which are turns at {@link #pass} plus multiples of {@link #stride}.
+         */
+        private int count;
+
+
+        private Requester(String UUID, long stride) {
+            this.UUID = UUID;
+            this.stride = stride;
+        }
+    }
+
+
+    /**
+     * Queued song at its turn, which is an immutable node of a treap.
+     *
+     * @author Ivica Duspara
+     * @version 1.0
+     */
+    private static final class Turn {
+
+        private final long pass;
+
+        private final long order;
+
+        private final String UUID;
+
+        private final MP3Song song;
+
+        private final int priority;
+
+        private final Turn left;
+
+        private final Turn right;
+
+        private final int size;
+
+
+        private Turn(long pass, long order, String UUID, MP3Song song, int priority) {
+            this(pass, order, UUID, song, priority, null, null);
+        }
+
+
+        private Turn(long pass, long order, String UUID, MP3Song song, int priority, Turn left, Turn right) {
+            this.pass = pass;
+            this.order = order;
+            this.UUID = UUID;
+            this.song = song;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+
+
+        /**
+         * Returns a copy of this turn with other children.
+         */
+        private Turn with(Turn left, Turn right) {
+            return new Turn(pass, order, UUID, song, priority, left, right);
+        }
+
+
+        private QueueEntry toQueueEntry() {
+            return new QueueEntry(UUID, song);
+        }
+    }
+
+
+    /**
+     * Immutable list of turns of a treap in order of playing.
+     *
+     * @author Ivica Duspara
+     * @version 1.0
+     */
+    private static final class TurnList extends AbstractList<QueueEntry> implements RandomAccess {
+
+        private final Turn root;
+
+
+        private TurnList(Turn root) {
+            this.root = root;
+        }
+
+
+        @Override
+        public QueueEntry get(int index) {
+            if(index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+            }
+            return select(root, index).toQueueEntry();
+        }
+
+
+        @Override
+        public int size() {
+            return FairShareQueue.size(root);
+        }
+
+
+        /**
+         * Walks a treap in order, which costs O(1) per turn instead of O(log songs) of {@link #get(int)}.
+         */
+        @Override
+        public Iterator<QueueEntry> iterator() {
+            Deque<Turn> path = new ArrayDeque<>();
+            for(Turn node = root; node != null; node = node.left) {
+                path.push(node);
+            }
+            return new Iterator<QueueEntry>() {
+
+                @Override
+                public boolean hasNext() {
+                    return !path.isEmpty();
+                }
+
+                @Override
+                public QueueEntry next() {
+                    if(path.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    Turn turn = path.pop();
+                    for(Turn node = turn.right; node != null; node = node.left) {
+                        path.push(node);
+                    }
+                    return turn.toQueueEntry();
+                }
+            };
+        }
+    }
+}
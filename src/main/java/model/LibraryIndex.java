@@ -0,0 +1,302 @@
+package model;
+
+import song.MP3Song;
+import song.SongTags;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Library of loaded songs stored on disk, so songs are available right after a start without reading
+ * their files again.<br>
+ *
+ * Index is a single binary file. Every song is stored as a record of its path, file name, size and
+ * modification time its file had when it was read, identifier, duration and tags. Folders and tags which many
+ * songs share, such as artists and albums, are stored once in a table of strings. Loading an index only
+ * reads this file, no song file is opened. Records whose files changed since are found afterwards by
+ * {@link #isCurrent(MP3Song)}, which compares stored size and modification time with a single attribute read.<br>
+ *
+ * Index is written to a temporary file which then replaces the old index, so an index which was being written
+ * when a player stopped is never read. An index written by a different format version is ignored, a corrupt
+ * index fails to {@link #load() load} rather than being read as an empty library.<br>
+ *
+ * Location of an index is {@value #DEFAULT_LOCATION} inside a user's home folder, unless
+ * {@value #INDEX_PROPERTY} system property names another file.
+ *
+ * @author Ivica Duspara
+ * @version 1.1
+ */
+public class LibraryIndex {
+
+    /**
+     * System property used for choosing a file of an index.
+     */
+    public static final String INDEX_PROPERTY = "meteor.libraryIndex";
+
+    /**
+     * Location of an index relative to a user's home folder.
+     */
+    private static final String DEFAULT_LOCATION = ".meteor/library.idx";
+
+    /**
+     * First four bytes of an index, "MTLI".
+     */
+    private static final int MAGIC = 0x4D544C49;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private Path file;
+
+
+    /**
+     * Constructs a new {@code LibraryIndex} stored in {@code file}.
+     *
+     * @param file
+     *        where an index is stored
+     */
+    public LibraryIndex(Path file) {
+        this.file = file;
+    }
+
+
+    /**
+     * Returns index stored where {@value #INDEX_PROPERTY} system property says, or at a default location.
+     *
+     * @return index of a library
+     */
+    public static LibraryIndex fromProperties() {
+        String location = System.getProperty(INDEX_PROPERTY);
+        if(location != null && !location.isEmpty()) {
+            return new LibraryIndex(Paths.get(location));
+        }
+        return new LibraryIndex(Paths.get(System.getProperty("user.home"), DEFAULT_LOCATION));
+    }
+
+
+    /**
+     * Returns file of this index.
+     *
+     * @return file of this index
+     */
+    public Path getFile() {
+        return file;
+    }
+
+
+    /**
+     * Reads songs stored in this index, in order in which they were stored.<br>
+     * Returns an empty list if there is no index, or if it was written by a different format version.
+     *
+     * @return stored songs
+     *
+     * @throws IOException
+     *         if an index can not be read or is corrupt
+     */
+    public List<MP3Song> load() throws IOException {
+        if(!Files.isRegularFile(file)) {
+            return Collections.emptyList();
+        }
+        long size = Files.size(file);
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file),
+                BUFFER_SIZE))) {
+            if(input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                return Collections.emptyList();
+            }
+            String[] strings = new String[readCount(input, size)];
+            for(int i = 0; i < strings.length; i++) {
+                strings[i] = input.readUTF();
+            }
+            Map<String, Path> folders = new HashMap<>();
+            int count = readCount(input, size);
+            List<MP3Song> songs = new ArrayList<>(count);
+            for(int i = 0; i < count; i++) {
+                songs.add(readSong(input, strings, folders));
+            }
+            return songs;
+        }catch(RuntimeException exception) {
+            throw new IOException("Corrupt index " + file + ": " + exception, exception);
+        }
+    }
+
+
+    /**
+     * Stores {@code songs} in this index, replacing whatever was stored before.
+     *
+     * @param songs
+     *        which are stored
+     *
+     * @throws IOException
+     *         if an index could not be written
+     */
+    public void save(Collection<MP3Song> songs) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for(MP3Song song : songs) {
+            intern(strings, folderOf(song));
+            SongTags tags = song.getTags();
+            intern(strings, tags.getArtist());
+            intern(strings, tags.getAlbum());
+            intern(strings, tags.getYear());
+            intern(strings, tags.getGenre());
+        }
+        Path folder = file.toAbsolutePath().getParent();
+        Files.createDirectories(folder);
+        Path temporary = Files.createTempFile(folder, "library", ".tmp");
+        try {
+            try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary), BUFFER_SIZE))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeInt(strings.size());
+                for(String string : strings.keySet()) {
+                    output.writeUTF(string);
+                }
+                output.writeInt(songs.size());
+                for(MP3Song song : songs) {
+                    writeSong(output, song, strings);
+                }
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }catch(AtomicMoveNotSupportedException exception) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+
+    /**
+     * Returns {@code true} if file of {@code song} still exists and has the size and modification time
+     * it had when it was read.
+     *
+     * @param song
+     *        which is checked
+     *
+     * @return {@code true} if stored data of {@code song} is still valid
+     */
+    public static boolean isCurrent(MP3Song song) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(song.getFilePath(), BasicFileAttributes.class);
+            return attributes.isRegularFile() && attributes.size() == song.getFileSize()
+                    && attributes.lastModifiedTime().toMillis() == song.getLastModified();
+        }catch(IOException exception) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Reads a record of a song. Songs of the same folder share its {@link Path}.
+     */
+    private static MP3Song readSong(DataInputStream input, String[] strings, Map<String, Path> folders)
+            throws IOException {
+        String folder = strings[input.readInt()];
+        Path path = folders.computeIfAbsent(folder, Paths::get).resolve(input.readUTF());
+        String fileName = input.readBoolean() ? path.getFileName().toString() : input.readUTF();
+        long size = input.readLong();
+        long lastModified = input.readLong();
+        long id = input.readLong();
+        long duration = input.readLong();
+        String title = readText(input);
+        SongTags tags = new SongTags(title, readString(input, strings), readString(input, strings),
+                readString(input, strings), readString(input, strings));
+        return new MP3Song(path, fileName, id, size, lastModified, duration, tags);
+    }
+
+
+    /**
+     * Writes a record of a song. Folder, artist, album, year and genre are written as indexes
+     * into a table of strings, since many songs share them.
+     */
+    private static void writeSong(DataOutputStream output, MP3Song song, Map<String, Integer> strings)
+            throws IOException {
+        String name = song.getFilePath().getFileName().toString();
+        output.writeInt(strings.get(folderOf(song)));
+        output.writeUTF(name);
+        output.writeBoolean(name.equals(song.getFileName()));
+        if(!name.equals(song.getFileName())) {
+            output.writeUTF(song.getFileName());
+        }
+        output.writeLong(song.getFileSize());
+        output.writeLong(song.getLastModified());
+        output.writeLong(song.getId());
+        output.writeLong(song.getDuration());
+        SongTags tags = song.getTags();
+        writeText(output, tags.getTitle());
+        writeString(output, strings, tags.getArtist());
+        writeString(output, strings, tags.getAlbum());
+        writeString(output, strings, tags.getYear());
+        writeString(output, strings, tags.getGenre());
+    }
+
+
+    private static String folderOf(MP3Song song) {
+        Path parent = song.getFilePath().getParent();
+        return parent == null ? "" : parent.toString();
+    }
+
+
+    /**
+     * Adds {@code string} to a table of strings if it is not there already.
+     */
+    private static void intern(Map<String, Integer> strings, String string) {
+        if(string != null) {
+            strings.putIfAbsent(string, strings.size());
+        }
+    }
+
+
+    /**
+     * Reads a number of entries. Every entry takes at least a byte, so there can not be more of them than
+     * bytes in an index.
+     */
+    private static int readCount(DataInputStream input, long size) throws IOException {
+        int count = input.readInt();
+        if(count < 0 || count > size) {
+            throw new IOException("Corrupt index, count: " + count);
+        }
+        return count;
+    }
+
+
+    /**
+     * Reads a string of a table which may be {@code null}.
+     */
+    private static String readString(DataInputStream input, String[] strings) throws IOException {
+        int index = input.readInt();
+        return index < 0 ? null : strings[index];
+    }
+
+
+    /**
+     * Writes index of {@code string} in a table of strings, -1 if it is {@code null}.
+     */
+    private static void writeString(DataOutputStream output, Map<String, Integer> strings, String string)
+            throws IOException {
+        output.writeInt(string == null ? -1 : strings.get(string));
+    }
+
+
+    /**
+     * Reads a text which may be {@code null}.
+     */
+    private static String readText(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+
+    /**
+     * Writes a text which may be {@code null}.
+     */
+    private static void writeText(DataOutputStream output, String text) throws IOException {
+        output.writeBoolean(text != null);
+        if(text != null) {
+            output.writeUTF(text);
+        }
+    }
+}
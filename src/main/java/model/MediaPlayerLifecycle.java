@@ -0,0 +1,162 @@
+package model;
+
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import song.MP3Song;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates {@link MediaPlayer MediaPlayers} of {@link PlayerData} and disposes them when they are no longer used.<br>
+ *
+ * Every handler which {@code PlayerData} attaches to a player goes through
+ * {@link #activate(MediaPlayer, Runnable, Runnable, Runnable)}
+ * or {@link #create(MP3Song)}, so when a player is {@link #retire(MediaPlayer) retired} exactly those handlers
+ * are detached at once and a retired player can not call back into a model. A retired player is
+ * muted at once, while stopping and disposing it, which frees its native resources, runs on a separate thread
+ * so that changing a song never waits for it.<br>
+ *
+ * {@code MediaPlayerLifecycle} counts created and disposed players. {@link #getLivePlayers()} should stay
+ * at most two, one playing and one standby, however long a player runs.
+ *
+ * @author Ivica Duspara
+ * @version 1.2
+ */
+public class MediaPlayerLifecycle {
+
+    /**
+     * Single thread which stops and disposes retired players.
+     */
+    private ExecutorService disposer;
+
+    /**
+     * Players which are not retired yet.
+     */
+    private Set<MediaPlayer> players;
+
+    private AtomicInteger created;
+
+    private AtomicInteger disposed;
+
+
+    /**
+     * Constructs a new {@code MediaPlayerLifecycle}.
+     */
+    public MediaPlayerLifecycle() {
+        this.disposer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "meteor-media-dispose");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.players = ConcurrentHashMap.newKeySet();
+        this.created = new AtomicInteger();
+        this.disposed = new AtomicInteger();
+    }
+
+
+    /**
+     * Creates a player for {@code song}, which starts buffering it at once. Duration of {@code song} is set
+     * once a player is ready.
+     *
+     * @param song
+     *        which will be played
+     *
+     * @return a new player
+     */
+    public MediaPlayer create(MP3Song song) {
+        Media media = song.getMediaFile();
+        MediaPlayer player = new MediaPlayer(media);
+        created.incrementAndGet();
+        player.setOnReady(() -> song.setDuration((long) media.getDuration().toMillis()));
+        players.add(player);
+        return player;
+    }
+
+
+    /**
+     * Attaches handlers to {@code player} which starts playing.
+     *
+     * @param player
+     *        created by this {@code MediaPlayerLifecycle}
+     *
+     * @param onEnd
+     *        run when {@code player} reaches the end of its media
+     *
+     * @param onPlaying
+     *        run when {@code player} starts or resumes playing
+     *
+     * @param onHalted
+     *        run when {@code player} is paused or stopped
+     */
+    public void activate(MediaPlayer player, Runnable onEnd, Runnable onPlaying, Runnable onHalted) {
+        player.setOnEndOfMedia(onEnd);
+        player.setOnPlaying(onPlaying);
+        player.setOnPaused(onHalted);
+        player.setOnStopped(onHalted);
+    }
+
+
+    /**
+     * Detaches every handler of {@code player}, mutes it and disposes it asynchronously.
+     * Does nothing if {@code player} was already retired.
+     *
+     * @param player
+     *        which is no longer used
+     */
+    public void retire(MediaPlayer player) {
+        if(!players.remove(player)) {
+            return;
+        }
+        player.setOnEndOfMedia(null);
+        player.setOnReady(null);
+        player.setOnPlaying(null);
+        player.setOnPaused(null);
+        player.setOnStopped(null);
+        player.setMute(true);
+        disposer.execute(() -> {
+            try {
+                player.stop();
+                player.dispose();
+            }catch(RuntimeException exception) {
+                System.out.println("Greška at: " + exception.getMessage());
+            }finally {
+                disposed.incrementAndGet();
+            }
+        });
+    }
+
+
+    /**
+     * Returns number of players which were created and not disposed yet.
+     *
+     * @return number of live players
+     */
+    public int getLivePlayers() {
+        return created.get() - disposed.get();
+    }
+
+
+    /**
+     * Returns number of players created so far.
+     *
+     * @return number of created players
+     */
+    public int getCreatedPlayers() {
+        return created.get();
+    }
+
+
+    /**
+     * Retires every player which is not retired yet and stops disposing thread once they are disposed.
+     */
+    public void shutdown() {
+        for(MediaPlayer player : players) {
+            retire(player);
+        }
+        disposer.shutdown();
+    }
+}
@@ -1,23 +1,35 @@
 package model;
 
+import broadcaster.BroadcastFrame;
 import broadcaster.ListBroadcaster;
+import broadcaster.NotificationCoalescer;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ProgressBar;
-import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import javafx.util.Duration;
 import observers.GraphicalPlayerDataObserver;
 import observers.NetworkPlayerDataObserver;
+import song.AudioFiles;
 import song.MP3Song;
+import song.MediaCache;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.IntConsumer;
 
 /**
  * This class represents a model for {@link player.MeteorPlayer MeteorPlayer}.<br>
@@ -28,39 +40,137 @@ import java.util.concurrent.*;
  * All such changes should notify registered {@link NetworkPlayerDataObserver NetworkPlayerDataObserver}.
  * It also manages {@link MediaPlayer} which plays {@link MP3Song songs}.<br>
  *
+ * State of {@code PlayerData} is changed by a single writer thread. Public methods which change it, whether
+ * called by GUI, by {@code MediaPlayer} or by {@link ListBroadcaster}, only post a command to the writer and
+ * return, so callers never wait on each other. After every change the writer publishes an immutable
+ * {@link PlayerSnapshot} of loaded songs, queue and currently playing song, which network codes and GUI observers
+ * read without locks. Observable lists shown by GUI mirror the writer's state and are changed on JavaFX
+ * application thread.<br>
+ *
+ * Loaded songs may be kept in a {@link LibraryIndex} between runs. {@link #loadLibrary()} restores them from
+ * an index without reading their files and only files which changed since are read again.<br>
+ *
+ * While a song plays, song which is expected to play next is already prepared by a standby {@link MediaPlayer},
+ * so switching to it does not wait for its file to be opened and buffered. Players are created and disposed by
+ * a {@link MediaPlayerLifecycle}. Progress of a song is sampled only while its player is playing.
  *
  * @author Ivica Duspara
- * @version  1.0
+ * @version  1.6
  */
 public class PlayerData {
 
+    /**
+     * System property used for choosing {@link QueueMode}.
+     */
+    public static final String QUEUE_MODE_PROPERTY = "meteor.queueMode";
+
+    /**
+     * System property used for setting how many times per second progress of a song is sampled.
+     */
+    public static final String PROGRESS_RATE_PROPERTY = "meteor.progressRate";
+
+    /**
+     * Default number of progress samples per second.
+     */
+    private static final int DEFAULT_PROGRESS_RATE = 5;
+
+    private static final int MAX_PROGRESS_RATE = 30;
+
+    /**
+     * Number of files read by one {@link ImportBatchJob}. The first batch of an import has a single file,
+     * so playing starts as soon as one song is read.
+     */
+    private static final int IMPORT_BATCH_SIZE = 32;
+
+    /**
+     * Seconds for which closing waits for running imports and for the writer thread.
+     */
+    private static final int CLOSE_TIMEOUT = 10;
+
+    /**
+     * Number of threads which search imported folders.
+     */
+    private static final int SCAN_PARALLELISM = 4 * Runtime.getRuntime().availableProcessors();
+
     private ObservableList<MP3Song> loadedSongs;
 
+    /**
+     * Loaded songs as seen by the writer thread, {@link #loadedSongs} mirrors it.
+     */
+    private List<MP3Song> playlist;
+
     private ObservableList<MP3Song> queuedSongs;
 
     private ObservableList<MP3Song> queriedSongs;
 
-    private List<MP3Song> mostRecentUpdate;
-
     private List<NetworkPlayerDataObserver> networkPlayerDataObserversList;
 
     private List<GraphicalPlayerDataObserver> graphicalPlayerDataObserversList;
 
+    /**
+     * Threads which read imported files, one per processor.
+     */
     private ExecutorService pool;
 
-    private Map<String,MP3Song> whomstQueued;
+    /**
+     * Threads which search imported folders. Searching waits on a file system most of the time,
+     * so there are more threads than processors.
+     */
+    private ForkJoinPool scanPool;
+
+    /**
+     * Single thread which executes every change of state.
+     */
+    private ExecutorService writer;
+
+    private QueueMode queueMode;
+
+    private SongQueue songQueue;
 
     private ListBroadcaster broadcaster;
 
+    private NotificationCoalescer notificationCoalescer;
+
     private Codes codes;
 
     private int currentlyPlayingSongIndex;
 
     private MP3Song currentlyPlayingSong;
 
-    private MP3Song nextInQueueSong;
+    private volatile MediaPlayer mediaPlayer;
+
+    /**
+     * Player prepared for {@link #standbySong}, which is expected to play next. Never playing.
+     */
+    private MediaPlayer standbyPlayer;
 
-    private MediaPlayer mediaPlayer;
+    private MP3Song standbySong;
+
+    /**
+     * Index of a random song chosen in advance, so that a standby player can prepare it, -1 if none was chosen.
+     */
+    private int nextRandomIndex;
+
+    /**
+     * Creates players and disposes those which are no longer used.
+     */
+    private MediaPlayerLifecycle playerLifecycle;
+
+    /**
+     * Number of progress samples per second, see {@value #PROGRESS_RATE_PROPERTY}.
+     */
+    private int progressRate;
+
+    /**
+     * Samples current time of {@link #mediaPlayer} at a fixed rate while it plays, see {@link #sampleProgress()}.
+     * Created and used only on JavaFX application thread, {@code null} until a song starts playing.
+     */
+    private Timeline progressSampler;
+
+    /**
+     * Current time in milliseconds found by the latest sample. Used only on JavaFX application thread.
+     */
+    private double lastSampledTime;
 
     private boolean randomSong;
 
@@ -72,6 +182,23 @@ public class PlayerData {
 
     private String removedUUID;
 
+    /**
+     * State published by the writer thread after its latest change.
+     */
+    private volatile PlayerSnapshot snapshot;
+
+    private CatalogJournal catalogJournal;
+
+    private SongIndex songIndex;
+
+    private SearchIndex searchIndex;
+
+    /**
+     * Index in which loaded songs are stored when {@code PlayerData} is closed, {@code null} until songs of
+     * {@link #loadLibrary()} are restored and checked, so an index is never replaced by a part of a library.
+     */
+    private volatile LibraryIndex libraryIndex;
+
 
     /**
      * Constructs a new {@code PlayerData}
@@ -80,16 +207,37 @@ public class PlayerData {
         this.loadedSongs = FXCollections.observableArrayList();
         this.queuedSongs = FXCollections.observableArrayList();
         this.queriedSongs = FXCollections.observableArrayList();
-        this.networkPlayerDataObserversList = new ArrayList<>();
-        this.graphicalPlayerDataObserversList = new ArrayList<>();
-        this.keys = new HashSet<>();
-        pool = Executors.newSingleThreadExecutor();
+        this.playlist = new ArrayList<>();
+        this.networkPlayerDataObserversList = new CopyOnWriteArrayList<>();
+        this.graphicalPlayerDataObserversList = new CopyOnWriteArrayList<>();
+        this.keys = ConcurrentHashMap.newKeySet();
+        pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "meteor-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scanPool = new ForkJoinPool(SCAN_PARALLELISM);
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "meteor-player-data");
+            thread.setDaemon(true);
+            return thread;
+        });
+        playerLifecycle = new MediaPlayerLifecycle();
+        lastSampledTime = -1;
+        progressRate = Math.max(1, Math.min(MAX_PROGRESS_RATE,
+                Integer.getInteger(PROGRESS_RATE_PROPERTY, DEFAULT_PROGRESS_RATE)));
         networkPool = Executors.newSingleThreadExecutor();
-        whomstQueued = new LinkedHashMap<>();
+        queueMode = QueueMode.fromString(System.getProperty(QUEUE_MODE_PROPERTY));
+        songQueue = queueMode.createQueue();
         this.randomSong = false;
         currentlyPlayingSongIndex = -1;
+        nextRandomIndex = -1;
+        snapshot = PlayerSnapshot.EMPTY;
         random = new Random();
         codes = Codes.getInstance();
+        catalogJournal = new CatalogJournal();
+        songIndex = new SongIndex();
+        searchIndex = new SearchIndex();
     }
 
 
@@ -100,12 +248,17 @@ public class PlayerData {
      *        {@code} true if {@code MeteorPlayer} plays randomly.
      */
     public void setRandomSong(boolean randomSong) {
-        this.randomSong = randomSong;
+        execute(() -> {
+            this.randomSong = randomSong;
+            nextRandomIndex = -1;
+            prepareStandby();
+        });
     }
 
 
     /**
-     * Returns loaded songs of this {@code PlayerData}.
+     * Returns loaded songs of this {@code PlayerData}. List is changed on JavaFX application thread,
+     * other threads should read {@link #getSnapshot() a snapshot} instead.
      *
      * @return loaded songs of this {@code PlayerData}
      */
@@ -114,6 +267,27 @@ public class PlayerData {
     }
 
 
+    /**
+     * Returns index of loaded songs by name and identifier.
+     *
+     * @return index of loaded songs
+     */
+    public SongIndex getSongIndex() {
+        return songIndex;
+    }
+
+
+    /**
+     * Returns {@link SearchIndex} of loaded songs, which is kept up to date as songs are loaded and removed.
+     *
+     * @return
+     *        search index of loaded songs
+     */
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+
     /**
      * Returns queued songs of this {@code PlayerData}.
      *
@@ -135,23 +309,34 @@ public class PlayerData {
 
 
     /**
-     * Returns most recent update of this {@code PlayerData}.
+     * Returns journal which records versions of loaded songs.
+     *
+     * @return journal which records versions of loaded songs
+     */
+    public CatalogJournal getCatalogJournal() {
+        return catalogJournal;
+    }
+
+
+    /**
+     * Returns queue which holds information on which client queued which song.<br>
+     * {@link #getQueuedSongs() Queued songs} shown by GUI mirror this queue. Queue is changed by the writer
+     * thread, its order as of the latest change is published in {@link #getSnapshot() a snapshot}.
      *
-     * @return most recent update of this {@code PlayerData}
+     * @return  queue which holds information on which client queued which song
      */
-    public List<MP3Song> getMostRecentUpdate() {
-        return mostRecentUpdate;
+    public SongQueue getSongQueue() {
+        return songQueue;
     }
 
 
     /**
-     * Returns {@code Map} which holds information on which client queued which song.<br>
-     * Keys of such {@code Map} are MAC addresses of clients and values are {@link MP3Song MP3song} which is queued.
+     * Returns mode in which this {@code PlayerData} queues songs.
      *
-     * @return  {@code Map} which holds information on which client queued which song
+     * @return mode of a queue
      */
-    public Map<String, MP3Song> getWhomstQueued() {
-        return whomstQueued;
+    public QueueMode getQueueMode() {
+        return queueMode;
     }
 
 
@@ -162,7 +347,7 @@ public class PlayerData {
      *         currently playing song
      */
     public MP3Song getCurrentlyPlayingSong() {
-        return currentlyPlayingSong;
+        return snapshot.getNowPlaying();
     }
 
 
@@ -173,7 +358,7 @@ public class PlayerData {
      *         currently playing song index.
      */
     public int getCurrentlyPlayingSongIndex() {
-        return currentlyPlayingSongIndex;
+        return snapshot.getNowPlayingIndex();
     }
 
 
@@ -207,7 +392,40 @@ public class PlayerData {
      *        UUID of a user whose song is now playing, otherwise an empty string.
      */
     public String getRemovedUUID() {
-        return removedUUID;
+        return snapshot.getRemovedUUID();
+    }
+
+
+    /**
+     * Returns the latest published state of this {@code PlayerData}. Snapshot never changes, so it may be
+     * read on any thread while this {@code PlayerData} keeps changing.
+     *
+     * @return
+     *        the latest snapshot
+     */
+    public PlayerSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+
+    /**
+     * Returns {@link MediaPlayerLifecycle} which creates and disposes players of this {@code PlayerData}.
+     *
+     * @return lifecycle of players
+     */
+    public MediaPlayerLifecycle getPlayerLifecycle() {
+        return playerLifecycle;
+    }
+
+
+    /**
+     * Returns {@link NotificationCoalescer} through which broadcaster is notified, {@code null} until
+     * broadcast is started.
+     *
+     * @return coalescer of notifications
+     */
+    NotificationCoalescer getNotificationCoalescer() {
+        return notificationCoalescer;
     }
 
 
@@ -245,11 +463,73 @@ public class PlayerData {
 
 
     /**
-     * Notifies {@link NetworkPlayerDataObserver observers} registered to this {@code PlayerData}.
+     * Runs {@code task} which changes observable lists on JavaFX application thread.<br>
+     * Tools which run without JavaFX toolkit override this method.
+     *
+     * @param task
+     *        which changes observable lists
+     */
+    void runOnUiThread(Runnable task) {
+        Platform.runLater(task);
+    }
+
+
+    /**
+     * Posts {@code command} to the writer thread. Commands are executed one at a time, in order in which
+     * they were posted.
+     *
+     * @param command
+     *        which changes state of this {@code PlayerData}
+     *
+     * @param <T>
+     *        type of a result
+     *
+     * @return
+     *        future which is completed with a result of {@code command}
+     */
+    <T> CompletableFuture<T> submit(Callable<T> command) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            writer.execute(() -> {
+                try {
+                    result.complete(command.call());
+                }catch(Exception ex) {
+                    System.out.println("Greška at: " + ex.getMessage());
+                    result.completeExceptionally(ex);
+                }
+            });
+        }catch(RejectedExecutionException ex) {
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+
+    /**
+     * Posts {@code command} which has no result to the writer thread.
+     *
+     * @param command
+     *        which changes state of this {@code PlayerData}
+     *
+     * @return
+     *        future which is completed once {@code command} is executed
+     */
+    CompletableFuture<Void> execute(Runnable command) {
+        return submit(() -> {
+            command.run();
+            return null;
+        });
+    }
+
+
+    /**
+     * Notifies {@link NetworkPlayerDataObserver observers} registered to this {@code PlayerData} of a change
+     * which published the current {@link #snapshot}.
      */
     private void notifyNetworkPlayerDataObservers(String code) {
+        PlayerSnapshot published = snapshot;
         for(NetworkPlayerDataObserver networkPlayerDataObserver : networkPlayerDataObserversList) {
-            networkPlayerDataObserver.update(code);
+            networkPlayerDataObserver.update(code, published);
         }
     }
 
@@ -278,11 +558,26 @@ public class PlayerData {
 
     /**
      * Notifies {@link GraphicalPlayerDataObserver observers} registered to this {@code PlayerData}
+     * on JavaFX application thread.
      */
     private void notifyGraphicalPlayerDataObservers() {
-        for(GraphicalPlayerDataObserver graphicalPlayerDataObserver : graphicalPlayerDataObserversList) {
-            graphicalPlayerDataObserver.update(currentlyPlayingSongIndex,currentlyPlayingSong,nextInQueueSong);
-        }
+        PlayerSnapshot published = snapshot;
+        runOnUiThread(() -> {
+            for(GraphicalPlayerDataObserver graphicalPlayerDataObserver : graphicalPlayerDataObserversList) {
+                graphicalPlayerDataObserver.update(published.getNowPlayingIndex(), published.getNowPlaying(),
+                        published.getNextInQueue());
+            }
+        });
+    }
+
+
+    /**
+     * Publishes a change of {@link #songQueue}. Called by the writer thread after every change of a queue,
+     * before observers are notified. A queue is listed here, so every reader of a snapshot sees the queue
+     * as it was when it was published.
+     */
+    private void publishQueue() {
+        snapshot = snapshot.withQueue(songQueue.entries());
     }
 
 
@@ -294,8 +589,16 @@ public class PlayerData {
      * For more information see {@link #playNextLoaded()} and {@link #playNextQueued()}
      *
      */
-    public synchronized void playNextSong() {
-        if(!queuedSongs.isEmpty()) {
+    public void playNextSong() {
+        execute(this::playNext);
+    }
+
+
+    /**
+     * Plays next song on the writer thread, see {@link #playNextSong()}.
+     */
+    private void playNext() {
+        if(!songQueue.isEmpty()) {
             playNextQueued();
         }
         else {
@@ -310,64 +613,148 @@ public class PlayerData {
      *
      * @return head of {@link #queuedSongs}
      */
-    private synchronized MP3Song dequeueSong() {
-        MP3Song removed = queuedSongs.remove(0);
-        String key = "";
-        for(Map.Entry<String,MP3Song> w :whomstQueued.entrySet()) {
-            if(w.getValue().equals(removed)) {
-                key = w.getKey();
-                break;
-            }
-        }
-        whomstQueued.remove(key);
-        removedUUID = key;
-        return removed;
+    private MP3Song dequeueSong() {
+        QueueEntry removed = songQueue.removeHead();
+        publishQueue();
+        runOnUiThread(() -> queuedSongs.remove(0));
+        removedUUID = removed.getUUID();
+        return removed.getSong();
     }
 
 
     /**
      * Enqueues {@code song} which user identified with {@code queuerUUID} has requested.
      * If a user doesn't have a song in queue, {@code song} is placed at the end of a queue.
-     * Otherwise old user's song will be swapped with a new one which user requested.
+     * Otherwise old user's song will be swapped with a new one which user requested.<br>
+     *
+     * In {@link QueueMode#FAIR} mode {@code song} is added to user's own queue instead and inserted into
+     * {@link #queuedSongs} at its turn, other songs keep their order.
+     *
+     * @param queuerUUID
+     *        identification of who put song in queue
+     *
+     * @param song
+     *        which is put in queue
      *
+     * @return
+     *         future which is completed with index at which requested song is enqueued, starting at 0
+     */
+    public CompletableFuture<Integer> enqueueSong(String queuerUUID, MP3Song song) {
+        return submit(() -> enqueue(queuerUUID, song));
+    }
+
 
+    /**
+     * Enqueues {@code song} as {@link #enqueueSong(String, MP3Song)} does and passes its position to
+     * {@code announcer} on the writer thread, right after a queue changes. A message which {@code announcer}
+     * sends through {@link #broadcastInOrder(BroadcastFrame)} therefore reaches clients after every notification
+     * of earlier changes of a queue, and before notifications of later ones.
+     *
      * @param queuerUUID
      *        identification of who put song in queue
      *
      * @param song
      *        which is put in queue
      *
+     * @param announcer
+     *        which tells clients where {@code song} was placed
+     *
      * @return
-     *         index at which requested song is enqueued
+     *         future which is completed with position of requested song
      */
-    public synchronized int enqueueSong(String queuerUUID, MP3Song song) {
-        MP3Song token = whomstQueued.get(queuerUUID);
-        int result;
-        if(token == null) {
-            Platform.runLater(() -> {
+    public CompletableFuture<Integer> enqueueSong(String queuerUUID, MP3Song song, IntConsumer announcer) {
+        return submit(() -> {
+            int result = enqueue(queuerUUID, song);
+            announcer.accept(result);
+            return result;
+        });
+    }
+
+
+    /**
+     * Sends {@code frame} to clients in order with notifications of this {@code PlayerData}: after every
+     * notification which was sent before it, including those which are still being merged, and before every
+     * later one. Does nothing if broadcast is not started.
+     *
+     * @param frame
+     *        which is sent
+     */
+    public void broadcastInOrder(BroadcastFrame frame) {
+        if(broadcaster == null) {
+            return;
+        }
+        if(notificationCoalescer != null) {
+            notificationCoalescer.runInOrder(() -> broadcaster.broadcastInOrder(frame));
+        }
+        else {
+            broadcaster.broadcastInOrder(frame);
+        }
+    }
+
+
+    /**
+     * Enqueues {@code song} on the writer thread, see {@link #enqueueSong(String, MP3Song)}.
+     *
+     * @param queuerUUID
+     *        identification of who put song in queue
+     *
+     * @param song
+     *        which is put in queue
+     *
+     * @return
+     *         position of requested song
+     */
+    private int enqueue(String queuerUUID, MP3Song song) {
+        if(queueMode == QueueMode.FAIR) {
+            return enqueueFair(queuerUUID, song);
+        }
+        boolean swap = songQueue.positionOf(queuerUUID) >= 0;
+        int result = songQueue.enqueue(queuerUUID, song);
+        publishQueue();
+        prepareStandby();
+        if(!swap) {
+            runOnUiThread(() -> {
                 queuedSongs.add(song);
                 for (GraphicalPlayerDataObserver gdpo : graphicalPlayerDataObserversList) {
                     gdpo.textNotify();
                 }
             });
-            result = queuedSongs.size();
-            whomstQueued.put(queuerUUID, song);
         }
         else{
-            whomstQueued.put(queuerUUID, song);
-            Set<String> keyset = whomstQueued.keySet();
-            int i = 0;
-            for(String s : keyset) {
-                if(s.equals(queuerUUID)) {
-                    break;
+            runOnUiThread(() -> {
+                for(GraphicalPlayerDataObserver gdpo : graphicalPlayerDataObserversList) {
+                    gdpo.swapQueuedSongs(song, result);
                 }
-                i++;
-            }
-            result = i;
+            });
+        }
+        return result;
+    }
+
+
+    /**
+     * Enqueues {@code song} in {@link QueueMode#FAIR} mode. A queued song never moves other songs, so it is
+     * inserted into {@link #queuedSongs} at its position, and clients are told the same insert by
+     * {@link codes.concreteclientcodes.ClientQueueCode ClientQueueCode}.
+     *
+     * @param queuerUUID
+     *        identification of who put song in queue
+     *
+     * @param song
+     *        which is put in queue
+     *
+     * @return
+     *         position at which song was inserted into a queue
+     */
+    private int enqueueFair(String queuerUUID, MP3Song song) {
+        int result = songQueue.enqueue(queuerUUID, song);
+        publishQueue();
+        prepareStandby();
+        runOnUiThread(() -> {
+            queuedSongs.add(result, song);
             for(GraphicalPlayerDataObserver gdpo : graphicalPlayerDataObserversList) {
-                gdpo.swapQueuedSongs(song, result);
+                gdpo.textNotify();
             }
-        }
+        });
         return result;
     }
 
@@ -378,10 +765,12 @@ public class PlayerData {
      * clicks on a song which they wish to play.
      *
      */
-    public synchronized void playOnClick(MP3Song clickedSong) {
-        currentlyPlayingSong = clickedSong;
-        currentlyPlayingSongIndex = loadedSongs.indexOf(clickedSong);
-        playSong(currentlyPlayingSong);
+    public void playOnClick(MP3Song clickedSong) {
+        execute(() -> {
+            currentlyPlayingSong = clickedSong;
+            currentlyPlayingSongIndex = playlist.indexOf(clickedSong);
+            playSong(currentlyPlayingSong);
+        });
     }
 
 
@@ -392,39 +781,47 @@ public class PlayerData {
      * Note that {@code PlayerData} has no memory of order of random songs.
      */
     private void playNextLoaded() {
+        if(playlist.isEmpty()) {
+            return;
+        }
         if(!randomSong) {
             currentlyPlayingSongIndex++;
-            if(currentlyPlayingSongIndex == loadedSongs.size()) {
+            if(currentlyPlayingSongIndex == playlist.size()) {
                 currentlyPlayingSongIndex = 0;
             }
-            currentlyPlayingSong = loadedSongs.get(currentlyPlayingSongIndex);
+            currentlyPlayingSong = playlist.get(currentlyPlayingSongIndex);
         }
         else {
-            int randomIndex = random.nextInt(loadedSongs.size());
-            while(randomIndex == currentlyPlayingSongIndex) {
-                randomIndex = random.nextInt(loadedSongs.size());
-            }
-            currentlyPlayingSongIndex = randomIndex;
-            currentlyPlayingSong = loadedSongs.get(currentlyPlayingSongIndex);
+            currentlyPlayingSongIndex = nextRandomIndex >= 0 ? nextRandomIndex : randomIndex();
+            nextRandomIndex = -1;
+            currentlyPlayingSong = playlist.get(currentlyPlayingSongIndex);
         }
         playSong(currentlyPlayingSong);
     }
 
 
+    /**
+     * Returns index of a random loaded song other than currently playing one, unless it is the only song.
+     *
+     * @return index of a random song
+     */
+    private int randomIndex() {
+        int randomIndex = random.nextInt(playlist.size());
+        while(randomIndex == currentlyPlayingSongIndex && playlist.size() > 1) {
+            randomIndex = random.nextInt(playlist.size());
+        }
+        return randomIndex;
+    }
+
+
     /**
      * Plays next {@link MP3Song} in {@link #queuedSongs}.
      */
     private void playNextQueued() {
         MP3Song top = dequeueSong();
         notifyNetworkPlayerDataObservers(codes.getCodeValue("SERVER_MOVE_UP"));
-        if(queuedSongs.isEmpty()) {
-            nextInQueueSong = null;
-        }
-        else {
-            nextInQueueSong = queuedSongs.get(0);
-        }
         currentlyPlayingSong = top;
-        currentlyPlayingSongIndex = loadedSongs.indexOf(currentlyPlayingSong);
+        currentlyPlayingSongIndex = playlist.indexOf(currentlyPlayingSong);
         playSong(currentlyPlayingSong);
     }
 
@@ -438,31 +835,107 @@ public class PlayerData {
      *        which is played
      */
     private void playSong(MP3Song song) {
+        startPlayback(song);
+        snapshot = snapshot.withNowPlaying(song, currentlyPlayingSongIndex, removedUUID);
+        notifyNetworkPlayerDataObservers(codes.getCodeValue("SERVER_NOW_PLAYING"));
+        prepareStandby();
+        notifyGraphicalPlayerDataObservers();
+    }
+
+
+    /**
+     * Starts playing {@code song} on {@link #mediaPlayer} and reads its metadata. Tools which run without
+     * JavaFX toolkit override this method together with {@link #prepareStandby()}.
+     *
+     * @param song
+     *        which is played
+     */
+    void startPlayback(MP3Song song) {
         prepareMediaPlayer(song);
         mediaPlayer.play();
-        notifyNetworkPlayerDataObservers(codes.getCodeValue("SERVER_NOW_PLAYING"));
         song.extractMetaData();
-        notifyGraphicalPlayerDataObservers();
     }
 
 
     /**
      * Prepares {@code mediaPlayer} for playing {@code song}.<br>
      * Media Player is prepared by setting behaviour of {@code mediaPlayer} upon completion of {@code song}.
-     *
+     * If {@code song} is the one which standby player prepared, standby player becomes {@code mediaPlayer}.
+     * Previous player is {@link MediaPlayerLifecycle#retire(MediaPlayer) retired}.
      *
      * @param song
      *        which will be played
      */
     private void prepareMediaPlayer(final MP3Song song) {
         if(song != null) {
-            if(mediaPlayer != null) {
-                mediaPlayer.stop();
-                mediaPlayer.dispose();
+            MediaPlayer previous = mediaPlayer;
+            if(standbyPlayer != null && song.equals(standbySong)) {
+                mediaPlayer = standbyPlayer;
+                standbyPlayer = null;
+                standbySong = null;
+            }
+            else {
+                mediaPlayer = playerLifecycle.create(song);
             }
-            mediaPlayer = new MediaPlayer(song.getMediaFile());
-            mediaPlayer.currentTimeProperty().addListener(ov -> updateProgressBarValues());
-            mediaPlayer.setOnEndOfMedia(this::playNextSong);
+            MediaPlayer player = mediaPlayer;
+            playerLifecycle.activate(player, this::playNextSong, () -> startProgress(player), this::stopProgress);
+            if(previous != null) {
+                playerLifecycle.retire(previous);
+            }
+        }
+    }
+
+
+    /**
+     * Returns song which will play after currently playing one unless something changes: head of a queue,
+     * otherwise next loaded song or, when playing randomly, a random song which is chosen now in advance.
+     *
+     * @return song expected to play next, {@code null} if there is none
+     */
+    private MP3Song predictNext() {
+        QueueEntry head = songQueue.peek();
+        if(head != null) {
+            return head.getSong();
+        }
+        if(playlist.isEmpty()) {
+            return null;
+        }
+        if(!randomSong) {
+            return playlist.get((currentlyPlayingSongIndex + 1) % playlist.size());
+        }
+        if(nextRandomIndex < 0 || nextRandomIndex >= playlist.size()) {
+            nextRandomIndex = randomIndex();
+        }
+        return playlist.get(nextRandomIndex);
+    }
+
+
+    /**
+     * Prepares a standby player for a song which is {@link #predictNext() expected} to play next, unless it is
+     * already prepared. Called on the writer thread after every change which may change the next song.
+     */
+    void prepareStandby() {
+        if(currentlyPlayingSong == null) {
+            return;
+        }
+        MP3Song next = predictNext();
+        if(next == null || next.equals(standbySong)) {
+            return;
+        }
+        discardStandby();
+        standbySong = next;
+        standbyPlayer = playerLifecycle.create(next);
+    }
+
+
+    /**
+     * Disposes standby player, if there is one.
+     */
+    private void discardStandby() {
+        if(standbyPlayer != null) {
+            playerLifecycle.retire(standbyPlayer);
+            standbyPlayer = null;
+            standbySong = null;
         }
     }
 
@@ -474,20 +947,28 @@ public class PlayerData {
      *
      */
     public void playPreviousLoaded() {
+        execute(this::playPrevious);
+    }
+
+
+    /**
+     * Plays previous song on the writer thread, see {@link #playPreviousLoaded()}.
+     */
+    private void playPrevious() {
+        if(playlist.isEmpty()) {
+            return;
+        }
         if(!randomSong) {
             currentlyPlayingSongIndex--;
             if(currentlyPlayingSongIndex <= -1) {
-                currentlyPlayingSongIndex = loadedSongs.size() - 1;
+                currentlyPlayingSongIndex = playlist.size() - 1;
             }
-            currentlyPlayingSong = loadedSongs.get(currentlyPlayingSongIndex);
+            currentlyPlayingSong = playlist.get(currentlyPlayingSongIndex);
         }
         else {
-            int randomIndex = random.nextInt(loadedSongs.size());
-            while(randomIndex == currentlyPlayingSongIndex) {
-                randomIndex = random.nextInt(loadedSongs.size());
-            }
-            currentlyPlayingSongIndex = randomIndex;
-            currentlyPlayingSong = loadedSongs.get(currentlyPlayingSongIndex);
+            currentlyPlayingSongIndex = randomIndex();
+            nextRandomIndex = -1;
+            currentlyPlayingSong = playlist.get(currentlyPlayingSongIndex);
         }
         playSong(currentlyPlayingSong);
     }
@@ -498,63 +979,390 @@ public class PlayerData {
      * Plays or pauses a song.
      */
     public void togglePlay() {
-        if(mediaPlayer != null) {
-            if(mediaPlayer.getStatus() == MediaPlayer.Status.PLAYING) {
-                mediaPlayer.pause();
-            }
-            else if (mediaPlayer.getStatus() == MediaPlayer.Status.PAUSED) {
-                mediaPlayer.play();
+        execute(() -> {
+            if(mediaPlayer != null) {
+                if(mediaPlayer.getStatus() == MediaPlayer.Status.PLAYING) {
+                    mediaPlayer.pause();
+                }
+                else if (mediaPlayer.getStatus() == MediaPlayer.Status.PAUSED) {
+                    mediaPlayer.play();
+                }
             }
+        });
+    }
+
+
+    /**
+     * Starts sampling progress of {@code player} once it starts playing, unless it is no longer
+     * {@link #mediaPlayer}. Runs on JavaFX application thread.
+     *
+     * @param player
+     *        which started playing
+     */
+    private void startProgress(MediaPlayer player) {
+        if(player != mediaPlayer) {
+            return;
         }
+        if(progressSampler == null) {
+            progressSampler = new Timeline(new KeyFrame(Duration.millis(1000.0 / progressRate), event -> sampleProgress()));
+            progressSampler.setCycleCount(Animation.INDEFINITE);
+        }
+        progressSampler.play();
     }
 
 
     /**
-     * Notifies interested observers on changes of current time property of currently playing song
+     * Stops sampling progress once a player is paused or stopped. Runs on JavaFX application thread.
      */
-    private void updateProgressBarValues() {
-        Duration currentTime = mediaPlayer.getCurrentTime();
-        Duration totalTime = mediaPlayer.getMedia().getDuration();
-        for(GraphicalPlayerDataObserver gdpo: graphicalPlayerDataObserversList) {
-            gdpo.updateTimeProperty(currentTime,totalTime);
+    private void stopProgress() {
+        if(progressSampler != null) {
+            progressSampler.stop();
         }
     }
 
+
     /**
-     * Adds {@code songs} to {@link #loadedSongs} if they are not added already.<br>
-     * Extraction is done from {@link PopulateSongsListJob}.
-     *
+     * Samples current time of currently playing song and notifies interested observers if it changed.<br>
+     * Runs on JavaFX application thread a few times per second, as set by {@value #PROGRESS_RATE_PROPERTY} system
+     * property, instead of on every tick of a media, and only while a song plays. A player which was replaced
+     * meanwhile stops the sampling.
+     */
+    private void sampleProgress() {
+        try {
+            MediaPlayer player = mediaPlayer;
+            if(player == null || player.getStatus() != MediaPlayer.Status.PLAYING) {
+                stopProgress();
+                return;
+            }
+            Duration currentTime = player.getCurrentTime();
+            Duration totalTime = player.getMedia().getDuration();
+            if(currentTime == null || totalTime == null) {
+                return;
+            }
+            double time = currentTime.toMillis();
+            if(time == lastSampledTime) {
+                return;
+            }
+            lastSampledTime = time;
+            for(GraphicalPlayerDataObserver gdpo: graphicalPlayerDataObserversList) {
+                gdpo.updateTimeProperty(currentTime,totalTime);
+            }
+        }catch(RuntimeException exception) {
+            System.out.println("Greška at: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Adds {@code files} to {@link #loadedSongs} if they are not added already and returns immediately.<br>
+     * Files are read in parallel by {@link ImportBatchJob ImportBatchJobs} and every batch is added as soon
+     * as it is read. If nothing is playing, the first song which is read starts playing. Returned
+     * {@link SongImport} tells progress of an import and allows it to be cancelled, observers are notified
+     * of its progress after every batch.
      *
      * @param files which will be added
+     *
+     * @return import of {@code files}
      */
-    public void addSongs(List<File> files) {
+    public SongImport addSongs(List<File> files) {
+        SongImport songImport = startImport();
         if(files != null) {
-            PopulateSongsListJob populationJob = new PopulateSongsListJob(files);
+            importFiles(files, songImport);
+        }
+        songImport.filesAdded();
+        notifyImportProgress(songImport);
+        return songImport;
+    }
+
+
+    /**
+     * Adds every audio file inside {@code folder} and its subfolders to {@link #loadedSongs} and returns
+     * immediately.<br>
+     * Folder tree is searched by {@link FolderScanJob FolderScanJobs}, one per folder, which run in parallel
+     * on {@link #scanPool}. Files are recognized by {@link AudioFiles} in chunks, which large folders check in
+     * parallel, and handed to {@link ImportBatchJob ImportBatchJobs} chunk by chunk, so songs are loaded while
+     * the rest of a tree is still being searched. Symbolic links are not followed.
+     *
+     * @param folder which is searched for songs
+     *
+     * @return import of songs in {@code folder}
+     */
+    public SongImport addFolder(File folder) {
+        SongImport songImport = startImport();
+        if(folder == null) {
+            songImport.filesAdded();
+            return songImport;
+        }
+        scanPool.execute(() -> {
             try {
-                mostRecentUpdate = pool.submit(populationJob).get();
-                loadedSongs.addAll(mostRecentUpdate);
-                notifyNetworkPlayerDataObservers(codes.getCodeValue("SERVER_SONG_PARTIAL_LIST"));
-                if(currentlyPlayingSong == null) {
-                    playNextSong();
-                }
-                notifyGraphicalPlayerDataObservers();
-            } catch (InterruptedException | ExecutionException ex) {
-                Platform.runLater(() -> {
-                    Alert alert = new Alert(Alert.AlertType.ERROR,ex.getMessage(), ButtonType.CLOSE);
+                new FolderScanJob(folder.toPath(), songImport).invoke();
+            }finally {
+                songImport.filesAdded();
+                notifyImportProgress(songImport);
+            }
+        });
+        notifyImportProgress(songImport);
+        return songImport;
+    }
+
+
+    /**
+     * Creates a new {@link SongImport} which reports files that could not be read once it completes.
+     *
+     * @return a new import
+     */
+    private SongImport startImport() {
+        return startImport(true);
+    }
+
+
+    /**
+     * Creates a new {@link SongImport} which reports files that could not be read once it completes.
+     *
+     * @param startsPlaying
+     *        {@code true} if the first imported song starts playing when nothing is playing
+     *
+     * @return a new import
+     */
+    private SongImport startImport(boolean startsPlaying) {
+        SongImport songImport = new SongImport(startsPlaying);
+        songImport.getCompletion().thenRun(() -> {
+            int failed = songImport.getFailed();
+            if(failed > 0) {
+                runOnUiThread(() -> {
+                    Alert alert = new Alert(Alert.AlertType.ERROR, "", ButtonType.CLOSE);
                     alert.setTitle("Error");
-                    alert.setContentText("Failed while loading files.\n" + ex.getMessage());
+                    alert.setContentText("Failed while loading " + failed + " files.");
                     alert.showAndWait();
                 });
             }
+        });
+        return songImport;
+    }
+
+
+    /**
+     * Splits those {@code files} which are not loaded yet into batches of {@value #IMPORT_BATCH_SIZE} files and
+     * submits an {@link ImportBatchJob} for each of them. The {@link SongImport#takeFirstBatch() first batch}
+     * of an import which starts playing has a single file, however many times files are added to it.
+     *
+     * @param files
+     *        which are imported
+     *
+     * @param songImport
+     *        to which files are added
+     */
+    private void importFiles(List<File> files, SongImport songImport) {
+        List<File> added = new ArrayList<>();
+        for(File file : files) {
+            if(keys.add(file.toPath())) {
+                added.add(file);
+            }
+        }
+        if(added.isEmpty()) {
+            return;
+        }
+        int firstBatchSize = songImport.takeFirstBatch() ? 1 : IMPORT_BATCH_SIZE;
+        int rest = Math.max(0, added.size() - firstBatchSize);
+        songImport.addFiles(added.size(), 1 + (rest + IMPORT_BATCH_SIZE - 1) / IMPORT_BATCH_SIZE);
+        int start = 0;
+        int size = firstBatchSize;
+        while(start < added.size()) {
+            int end = Math.min(added.size(), start + size);
+            pool.execute(new ImportBatchJob(added.subList(start, end), songImport));
+            start = end;
+            size = IMPORT_BATCH_SIZE;
         }
     }
 
 
     /**
-     * Closes {@code PlayerData}
+     * Adds a batch of imported songs. Called by the writer thread.
+     *
+     * @param songs
+     *        which were read
+     *
+     * @param files
+     *        number of files in a batch
+     *
+     * @param songImport
+     *        to which a batch belongs
+     */
+    private void addImportedSongs(List<MP3Song> songs, int files, SongImport songImport) {
+        try {
+            if(!songs.isEmpty()) {
+                addLoadedSongs(songs);
+                notifyNetworkPlayerDataObservers(codes.getCodeValue("SERVER_SONG_PARTIAL_LIST"));
+                if(currentlyPlayingSong == null && songImport.startsPlaying()) {
+                    playNext();
+                }
+                notifyGraphicalPlayerDataObservers();
+            }
+        }finally {
+            songImport.batchDone(files);
+            notifyImportProgress(songImport);
+        }
+    }
+
+
+    /**
+     * Notifies {@link GraphicalPlayerDataObserver observers} of progress of {@code songImport}
+     * on JavaFX application thread.
+     *
+     * @param songImport
+     *        whose progress changed
+     */
+    private void notifyImportProgress(SongImport songImport) {
+        runOnUiThread(() -> {
+            for(GraphicalPlayerDataObserver gdpo : graphicalPlayerDataObserversList) {
+                gdpo.updateImportProgress(songImport);
+            }
+        });
+    }
+
+
+    /**
+     * Adds {@code songs} to {@link #loadedSongs} and keeps {@link #songIndex}, {@link #searchIndex} and
+     * {@link #catalogJournal} consistent with it. Every song which is loaded goes through this method, which must be called
+     * on the writer thread.
+     *
+     * @param songs
+     *        which are added
+     */
+    void addLoadedSongs(List<MP3Song> songs) {
+        songIndex.addAll(songs);
+        searchIndex.addAll(songs);
+        playlist.addAll(songs);
+        long version = catalogJournal.recordAdded(songs);
+        snapshot = snapshot.withAddedSongs(songs, new CatalogDelta(catalogJournal.getEpoch(), version - 1, version,
+                false, songs, Collections.emptyList()));
+        runOnUiThread(() -> loadedSongs.addAll(songs));
+        prepareStandby();
+    }
+
+
+    /**
+     * Removes {@code songs} from {@link #loadedSongs} and keeps {@link #songIndex}, {@link #searchIndex} and
+     * {@link #catalogJournal} consistent with it. Must be called on the writer thread.
+     *
+     * @param songs
+     *        which are removed
+     */
+    private void removeLoadedSongs(List<MP3Song> songs) {
+        Set<MP3Song> removed = new HashSet<>(songs);
+        for(MP3Song song : songs) {
+            MediaCache.getInstance().remove(song.getFilePath());
+        }
+        songIndex.removeAll(songs);
+        searchIndex.removeAll(songs);
+        playlist.removeAll(removed);
+        long version = catalogJournal.recordRemoved(songs);
+        if(currentlyPlayingSong != null) {
+            currentlyPlayingSongIndex = playlist.indexOf(currentlyPlayingSong);
+        }
+        nextRandomIndex = -1;
+        if(standbySong != null && removed.contains(standbySong)) {
+            discardStandby();
+        }
+        snapshot = snapshot.withSongs(playlist, new CatalogDelta(catalogJournal.getEpoch(), version - 1, version,
+                false, Collections.emptyList(), songs));
+        runOnUiThread(() -> loadedSongs.removeAll(removed));
+        prepareStandby();
+    }
+
+
+    /**
+     * Loads songs stored in a {@link LibraryIndex} and returns immediately.<br>
+     * Songs are restored from an index without opening their files, so a large library is shown almost
+     * at once. Afterwards every restored file is checked in the background with a single attribute read:
+     * songs whose files are gone are removed and songs whose files changed are imported again.
+     * Once every restored song is checked and changed files are imported again, loaded songs are stored in
+     * the same index when {@code PlayerData} is {@link #closePlayerData() closed}. If an index can not be read,
+     * nothing is stored, so a library is not lost.
+     *
+     * @return future which is completed once restored songs are loaded, before they are checked
+     */
+    public CompletableFuture<Void> loadLibrary() {
+        LibraryIndex index = LibraryIndex.fromProperties();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return index.load();
+            }catch(IOException exception) {
+                System.out.println("Greška at: " + exception.getMessage());
+                throw new CompletionException(exception);
+            }
+        }, pool).thenCompose(songs -> {
+            List<MP3Song> restored = new ArrayList<>(songs.size());
+            for(MP3Song song : songs) {
+                if(keys.add(song.getFilePath())) {
+                    restored.add(song);
+                }
+            }
+            if(restored.isEmpty()) {
+                libraryIndex = index;
+                return CompletableFuture.completedFuture(null);
+            }
+            return execute(() -> {
+                addLoadedSongs(restored);
+                notifyNetworkPlayerDataObservers(codes.getCodeValue("SERVER_SONG_PARTIAL_LIST"));
+                notifyGraphicalPlayerDataObservers();
+            }).thenRun(() -> scanPool.execute(() -> revalidate(index, restored)));
+        });
+    }
+
+
+    /**
+     * Checks files of songs restored from a {@link LibraryIndex} in parallel on {@link #scanPool}.
+     * Songs whose files changed are removed and those files which still exist are imported again. Once they
+     * are, {@code index} becomes {@link #libraryIndex}.
+     *
+     * @param index
+     *        from which songs were restored
+     *
+     * @param restored
+     *        songs restored from an index
+     */
+    private void revalidate(LibraryIndex index, List<MP3Song> restored) {
+        List<MP3Song> stale = new ArrayList<>();
+        restored.parallelStream().filter(song -> !LibraryIndex.isCurrent(song)).forEachOrdered(stale::add);
+        if(stale.isEmpty()) {
+            libraryIndex = index;
+            return;
+        }
+        execute(() -> {
+            removeLoadedSongs(stale);
+            notifyNetworkPlayerDataObservers(codes.getCodeValue("SERVER_SONG_PARTIAL_LIST"));
+            notifyGraphicalPlayerDataObservers();
+        }).thenRun(() -> {
+            List<File> changed = new ArrayList<>();
+            for(MP3Song song : stale) {
+                keys.remove(song.getFilePath());
+                if(Files.isRegularFile(song.getFilePath())) {
+                    changed.add(song.getFilePath().toFile());
+                }
+            }
+            SongImport songImport = startImport(false);
+            importFiles(changed, songImport);
+            songImport.filesAdded();
+            notifyImportProgress(songImport);
+            songImport.getCompletion().thenRun(() -> libraryIndex = index);
+        });
+    }
+
+
+    /**
+     * Closes {@code PlayerData}. Imports which are still running are stopped. If {@link #loadLibrary() library}
+     * was restored, loaded songs are stored in its {@link LibraryIndex} by a separate thread, once batches which
+     * were already read are added by the writer thread.
      */
     public void closePlayerData() {
-        pool.shutdown();
+        pool.shutdownNow();
+        scanPool.shutdownNow();
+        new Thread(this::storeLibrary, "meteor-library").start();
+        playerLifecycle.shutdown();
+        runOnUiThread(this::stopProgress);
+        if(notificationCoalescer != null) {
+            notificationCoalescer.shutdown();
+        }
         if(broadcaster != null) {
             broadcaster.shutdown();
         }
@@ -565,12 +1373,43 @@ public class PlayerData {
 
 
     /**
-     * Starts broadcast.
+     * Waits for imported batches to reach the writer thread and for the writer thread to add them, then stores
+     * loaded songs in {@link #libraryIndex}. Nothing is stored if a library was not restored or if the writer
+     * thread did not stop within {@value #CLOSE_TIMEOUT} seconds.
+     */
+    private void storeLibrary() {
+        try {
+            pool.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS);
+            writer.shutdown();
+            if(!writer.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                System.out.println("Greška at: library was not stored, player data is still changing.");
+                return;
+            }
+        }catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        LibraryIndex index = libraryIndex;
+        if(index != null) {
+            try {
+                index.save(snapshot.getSongs());
+            }catch(IOException exception) {
+                System.out.println("Greška at: " + exception.getMessage());
+            }
+        }
+    }
+
+
+    /**
+     * Starts broadcast.<br>
+     * Broadcaster is notified through a {@link NotificationCoalescer}, so a burst of changes reaches
+     * clients as a single net change.
      */
     public void startBroadcast() {
         broadcaster = ListBroadcaster.getInstance();
         broadcaster.setSubject(this);
-        addNetworkPlayerDataObserver(broadcaster);
+        notificationCoalescer = new NotificationCoalescer(broadcaster);
+        addNetworkPlayerDataObserver(notificationCoalescer);
         networkPool.submit(() -> broadcaster.startBroadcast());
         for(GraphicalPlayerDataObserver gdpo : graphicalPlayerDataObserversList) {
             gdpo.updateServerInfo();
@@ -580,49 +1419,232 @@ public class PlayerData {
 
 
     /**
-     *
-     * Represents a job which adds songs to {@link #loadedSongs}.<br>
-     * Only those files which are already not loaded will be added to {@code PlayerData}
-     * {@code PopulateSongsListJob} will never delete already loaded songs -> it will simply add them.<br>
-     * Songs which are added in this job will be returned as a list.
+     * Represents a job which reads a batch of imported files.<br>
+     * Read songs are handed to the writer thread, which adds them to {@link #loadedSongs}. Files which were
+     * skipped because an import was cancelled, or which could not be read, are forgotten so they can be
+     * imported again.
      *
      * @author Ivica Duspara
-     * @version 1.0
+     * @version 1.1
      */
-    private class PopulateSongsListJob implements Callable<List<MP3Song>> {
+    private class ImportBatchJob implements Runnable {
 
         /**
-         * Reference to listed files which will be loaded to {@code PlayerData}
+         * Files which are read by this job.
          */
         private List<File> files;
 
         /**
-         *
+         * Import to which this batch belongs.
          */
-        private List<MP3Song> population;
+        private SongImport songImport;
 
 
         /**
-         * Constructs a new {@code PopulateSongListJob}
+         * Constructs a new {@code ImportBatchJob}
          *
          * @param files
          *        which will be converted into {@link MP3Song files}
+         *
+         * @param songImport
+         *        import to which this batch belongs
          */
-        PopulateSongsListJob(List<File> files) {
+        ImportBatchJob(List<File> files, SongImport songImport) {
             this.files = files;
-            this.population = new ArrayList<>();
+            this.songImport = songImport;
         }
 
         @Override
-        public List<MP3Song> call() {
+        public void run() {
+            List<MP3Song> population = new ArrayList<>(files.size());
             for(File file : files) {
-                Path path = file.toPath();
-                if(!keys.contains(path)) {
-                    keys.add(path);
-                    population.add(new MP3Song(new Media(file.toURI().toString()), file.getName()));
+                if(songImport.isCancelled()) {
+                    keys.remove(file.toPath());
+                    continue;
                 }
+                try {
+                    population.add(new MP3Song(file.toPath(), file.getName()));
+                }catch(RuntimeException ex) {
+                    System.out.println("Greška at: " + ex.getMessage());
+                    keys.remove(file.toPath());
+                    songImport.fileFailed();
+                }
+            }
+            execute(() -> addImportedSongs(population, files.size(), songImport));
+        }
+    }
+
+
+    /**
+     * Checks whether {@code entry} is a folder, without following symbolic links.
+     *
+     * @param entry
+     *        which is checked
+     *
+     * @return
+     *        {@code true} if entry is a folder
+     */
+    private static boolean isFolder(Path entry) {
+        try {
+            return Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isDirectory();
+        }catch(IOException ex) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Represents a job which searches a single folder of an imported tree.<br>
+     * Files with an audio extension are split into chunks of {@value #IMPORT_BATCH_SIZE} while a folder is listed
+     * and every chunk is forked as a {@link FileCheckJob}, so a large folder is checked by several threads and
+     * its first songs are loaded while it is still being listed. Subfolders are searched by new jobs which run
+     * in parallel. Entries without an audio extension are checked with a single attribute read to find
+     * subfolders, so no entry costs more than one file system call before it is recognized.
+     *
+     * @author Ivica Duspara
+     * @version 1.1
+     */
+    private class FolderScanJob extends RecursiveAction {
+
+        /**
+         * Folder which is searched by this job.
+         */
+        private Path folder;
+
+        /**
+         * Import to which found files are added.
+         */
+        private SongImport songImport;
+
+
+        /**
+         * Constructs a new {@code FolderScanJob}
+         *
+         * @param folder
+         *        which is searched
+         *
+         * @param songImport
+         *        to which found files are added
+         */
+        FolderScanJob(Path folder, SongImport songImport) {
+            this.folder = folder;
+            this.songImport = songImport;
+        }
+
+        @Override
+        protected void compute() {
+            if(songImport.isCancelled()) {
+                return;
+            }
+            List<FolderScanJob> subfolders = new ArrayList<>();
+            List<FileCheckJob> chunks = new ArrayList<>();
+            List<Path> candidates = new ArrayList<>();
+            try(DirectoryStream<Path> entries = Files.newDirectoryStream(folder)) {
+                for(Path entry : entries) {
+                    if(songImport.isCancelled()) {
+                        break;
+                    }
+                    if(AudioFiles.hasAudioExtension(entry)) {
+                        candidates.add(entry);
+                        if(candidates.size() == IMPORT_BATCH_SIZE) {
+                            FileCheckJob chunk = new FileCheckJob(candidates, songImport);
+                            chunk.fork();
+                            chunks.add(chunk);
+                            candidates = new ArrayList<>();
+                        }
+                    }
+                    else if(isFolder(entry)) {
+                        subfolders.add(new FolderScanJob(entry, songImport));
+                    }
+                }
+            }catch(IOException | RuntimeException ex) {
+                System.out.println("Greška at: " + ex.getMessage());
+            }
+            if(!candidates.isEmpty()) {
+                new FileCheckJob(candidates, songImport).invoke();
+            }
+            invokeAll(subfolders);
+            for(FileCheckJob chunk : chunks) {
+                chunk.join();
+            }
+        }
+
+    }
+
+
+    /**
+     * Represents a job which checks content of a chunk of files found by a {@link FolderScanJob} and imports
+     * those which are audio files. Every entry with an audio extension is opened to check its content, one which
+     * is not an audio file may still be a folder and is then searched by a new {@link FolderScanJob}.
+     *
+     * @author Ivica Duspara
+     * @version 1.0
+     */
+    private class FileCheckJob extends RecursiveAction {
+
+        /**
+         * Files with an audio extension which are checked.
+         */
+        private List<Path> candidates;
+
+        /**
+         * Import to which audio files are added.
+         */
+        private SongImport songImport;
+
+
+        /**
+         * Constructs a new {@code FileCheckJob}
+         *
+         * @param candidates
+         *        files with an audio extension
+         *
+         * @param songImport
+         *        to which audio files are added
+         */
+        FileCheckJob(List<Path> candidates, SongImport songImport) {
+            this.candidates = candidates;
+            this.songImport = songImport;
+        }
+
+        @Override
+        protected void compute() {
+            List<File> found = new ArrayList<>();
+            List<FolderScanJob> subfolders = new ArrayList<>();
+            for(Path candidate : candidates) {
+                if(songImport.isCancelled()) {
+                    return;
+                }
+                if(isAudio(candidate)) {
+                    found.add(candidate.toFile());
+                }
+                else if(isFolder(candidate)) {
+                    subfolders.add(new FolderScanJob(candidate, songImport));
+                }
+            }
+            if(!found.isEmpty()) {
+                importFiles(found, songImport);
+                notifyImportProgress(songImport);
+            }
+            invokeAll(subfolders);
+        }
+
+
+        /**
+         * Checks content of a file which has an audio extension.
+         *
+         * @param candidate
+         *        which is checked
+         *
+         * @return
+         *        {@code true} if {@code candidate} is an audio file
+         */
+        private boolean isAudio(Path candidate) {
+            try {
+                return AudioFiles.hasAudioSignature(candidate);
+            }catch(IOException ex) {
+                return false;
             }
-            return population;
         }
     }
 }
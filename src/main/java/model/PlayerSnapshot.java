@@ -0,0 +1,248 @@
+package model;
+
+import song.MP3Song;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable state of {@link PlayerData} at one moment: loaded songs, queue and currently playing song.<br>
+ *
+ * {@code PlayerData} publishes a new snapshot after every change, with a version one greater than the previous
+ * one. Parts which did not change are shared with the previous snapshot, so publishing a change of a queue
+ * does not copy loaded songs, and loaded songs are a {@link SongList} which shares its chunks with the previous
+ * one, so adding songs does not copy songs loaded before. Readers on any thread get a consistent view without
+ * locking and may iterate it while the model keeps changing.<br>
+ *
+ * Queue is listed when a snapshot is published and a listed queue is not affected by later changes, so
+ * every reader of a snapshot sees the same queue. {@link QueueIndex} copies its entries, at most one per client,
+ * and {@link FairShareQueue} shares its persistent treap, so listing it costs O(1).<br>
+ *
+ * A snapshot published by a change of loaded songs also carries that change as a {@link CatalogDelta}, so
+ * a notification of a change is written from the change itself rather than from whatever changed last.
+ *
+ * @author Ivica Duspara
+ * @version 1.4
+ */
+public final class PlayerSnapshot {
+
+    /**
+     * Snapshot of a model which has nothing loaded.
+     */
+    public static final PlayerSnapshot EMPTY = new PlayerSnapshot(0, SongList.EMPTY, null, Collections.emptyList(), null,
+            -1, "");
+
+    /**
+     * Number of changes which led to this snapshot.
+     */
+    private final long version;
+
+    private final SongList songs;
+
+    /**
+     * Change of loaded songs which published this snapshot or the one it was derived from, {@code null} if
+     * loaded songs never changed.
+     */
+    private final CatalogDelta catalogChange;
+
+    private final List<QueueEntry> queue;
+
+    private final MP3Song nowPlaying;
+
+    private final int nowPlayingIndex;
+
+    /**
+     * UUID of a client who queued currently playing song, empty string if it was not queued.
+     */
+    private final String removedUUID;
+
+
+    private PlayerSnapshot(long version, SongList songs, CatalogDelta catalogChange, List<QueueEntry> queue,
+                           MP3Song nowPlaying, int nowPlayingIndex, String removedUUID) {
+        this.version = version;
+        this.songs = songs;
+        this.catalogChange = catalogChange;
+        this.queue = queue;
+        this.nowPlaying = nowPlaying;
+        this.nowPlayingIndex = nowPlayingIndex;
+        this.removedUUID = removedUUID;
+    }
+
+
+    /**
+     * Returns a snapshot whose loaded songs are {@code songs}. List is copied.
+     *
+     * @param songs
+     *        loaded songs
+     *
+     * @param change
+     *        which led to {@code songs}
+     *
+     * @return
+     *        next snapshot
+     */
+    PlayerSnapshot withSongs(List<MP3Song> songs, CatalogDelta change) {
+        return new PlayerSnapshot(version + 1, SongList.of(songs), change, queue, nowPlaying, nowPlayingIndex,
+                removedUUID);
+    }
+
+
+    /**
+     * Returns a snapshot whose loaded songs are those of this snapshot followed by {@code added}. Songs loaded
+     * before are not copied. Must only be called on the newest snapshot.
+     *
+     * @param added
+     *        songs which were loaded
+     *
+     * @param change
+     *        which added {@code added}
+     *
+     * @return
+     *        next snapshot
+     */
+    PlayerSnapshot withAddedSongs(List<MP3Song> added, CatalogDelta change) {
+        return new PlayerSnapshot(version + 1, songs.append(added), change, queue, nowPlaying, nowPlayingIndex,
+                removedUUID);
+    }
+
+
+    /**
+     * Returns a snapshot whose queue is {@code queue}.
+     *
+     * @param queue
+     *        unmodifiable entries of a queue which are not affected by later changes, see
+     *        {@link SongQueue#entries()}
+     *
+     * @return
+     *        next snapshot
+     */
+    PlayerSnapshot withQueue(List<QueueEntry> queue) {
+        return new PlayerSnapshot(version + 1, songs, catalogChange, queue, nowPlaying, nowPlayingIndex,
+                removedUUID);
+    }
+
+
+    /**
+     * Returns this snapshot with {@code change} as the most recent change of loaded songs. Used when several
+     * changes are {@link CatalogDelta#merge(List) merged} into one, so version and state are not changed.
+     *
+     * @param change
+     *        which led to loaded songs of this snapshot
+     *
+     * @return
+     *        this snapshot with a different change
+     */
+    public PlayerSnapshot withCatalogChange(CatalogDelta change) {
+        return new PlayerSnapshot(version, songs, change, queue, nowPlaying, nowPlayingIndex, removedUUID);
+    }
+
+
+    /**
+     * Returns a snapshot with a new currently playing song.
+     *
+     * @param nowPlaying
+     *        currently playing song
+     *
+     * @param nowPlayingIndex
+     *        index of currently playing song in loaded songs
+     *
+     * @param removedUUID
+     *        UUID of a client who queued currently playing song, empty string if it was not queued
+     *
+     * @return
+     *        next snapshot
+     */
+    PlayerSnapshot withNowPlaying(MP3Song nowPlaying, int nowPlayingIndex, String removedUUID) {
+        return new PlayerSnapshot(version + 1, songs, catalogChange, queue, nowPlaying, nowPlayingIndex,
+                removedUUID == null ? "" : removedUUID);
+    }
+
+
+    /**
+     * Returns version of this snapshot. Later snapshots have greater versions.
+     *
+     * @return
+     *        version of this snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Returns unmodifiable list of loaded songs.
+     *
+     * @return
+     *        loaded songs
+     */
+    public List<MP3Song> getSongs() {
+        return songs;
+    }
+
+
+    /**
+     * Returns the most recent change of loaded songs as of this snapshot, {@code null} if loaded songs never
+     * changed.
+     *
+     * @return
+     *        the most recent change of loaded songs
+     */
+    public CatalogDelta getCatalogChange() {
+        return catalogChange;
+    }
+
+
+    /**
+     * Returns unmodifiable list of queued songs in order of playing.
+     *
+     * @return
+     *        entries of a queue
+     */
+    public List<QueueEntry> getQueue() {
+        return queue;
+    }
+
+
+    /**
+     * Returns currently playing song or {@code null} if nothing is playing.
+     *
+     * @return
+     *        currently playing song
+     */
+    public MP3Song getNowPlaying() {
+        return nowPlaying;
+    }
+
+
+    /**
+     * Returns index of currently playing song in {@link #getSongs() loaded songs}, -1 if nothing is playing.
+     *
+     * @return
+     *        index of currently playing song
+     */
+    public int getNowPlayingIndex() {
+        return nowPlayingIndex;
+    }
+
+
+    /**
+     * Returns song which is played next from a queue or {@code null} if queue is empty.
+     *
+     * @return
+     *        next queued song
+     */
+    public MP3Song getNextInQueue() {
+        return queue.isEmpty() ? null : queue.get(0).getSong();
+    }
+
+
+    /**
+     * Returns UUID of a client who queued currently playing song, empty string if it was not queued.
+     *
+     * @return
+     *        UUID of a client who queued currently playing song
+     */
+    public String getRemovedUUID() {
+        return removedUUID;
+    }
+}
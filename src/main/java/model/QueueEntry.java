@@ -0,0 +1,59 @@
+package model;
+
+import song.MP3Song;
+
+/**
+ * Song in a queue together with a client who requested it.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public final class QueueEntry {
+
+    /**
+     * UUID of a client who requested a song.
+     */
+    private final String UUID;
+
+    /**
+     * Requested song.
+     */
+    private final MP3Song song;
+
+
+    /**
+     * Constructs a new {@code QueueEntry}.
+     *
+     * @param UUID
+     *        of a client who requested a song
+     *
+     * @param song
+     *        requested song
+     */
+    QueueEntry(String UUID, MP3Song song) {
+        this.UUID = UUID;
+        this.song = song;
+    }
+
+
+    /**
+     * Returns UUID of a client who requested a song.
+     *
+     * @return
+     *        UUID of a client
+     */
+    public String getUUID() {
+        return UUID;
+    }
+
+
+    /**
+     * Returns requested song.
+     *
+     * @return
+     *        requested song
+     */
+    public MP3Song getSong() {
+        return song;
+    }
+}
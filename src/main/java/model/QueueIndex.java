@@ -0,0 +1,298 @@
+package model;
+
+import song.MP3Song;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Queue of requested songs where every client (identified by its UUID) has at most one song.<br>
+ *
+ * Entries are kept in slots ordered by time of their first request. A {@code HashMap} finds the entry of a client
+ * in constant time and a Fenwick tree over slots counts live entries, so:
+ * <ul>
+ *     <li>looking up or replacing a client's song is O(1)</li>
+ *     <li>removing the head is amortized O(1)</li>
+ *     <li>position of a client in the queue, and removing an entry from the middle, is O(log n)</li>
+ * </ul>
+ * Removed entries leave dead slots behind. Once slots run out they are compacted, which is amortized O(1)
+ * per request.<br>
+ *
+ * {@code QueueIndex} is the queue of {@link PlayerData} in {@link QueueMode#SINGLE} mode, its list of queued
+ * songs shown by GUI mirrors it. All methods are synchronized, so network codes may read a queue while a model
+ * changes it.
+ *
+ * @author Ivica Duspara
+ * @version 1.3
+ */
+public class QueueIndex implements SongQueue {
+
+    /**
+     * Initial number of slots.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Entries by UUID of a client.
+     */
+    private Map<String, Entry> byRequester;
+
+    /**
+     * Entries in queue order, removed entries are {@code null}.
+     */
+    private Entry[] slots;
+
+    /**
+     * Fenwick tree over {@link #slots}, a slot counts 1 if it holds a live entry.
+     */
+    private int[] tree;
+
+    /**
+     * Index of the first slot which may hold a live entry.
+     */
+    private int head;
+
+    /**
+     * Index of the next free slot.
+     */
+    private int tail;
+
+
+    /**
+     * Constructs a new empty {@code QueueIndex}.
+     */
+    public QueueIndex() {
+        this.byRequester = new HashMap<>();
+        this.slots = new Entry[INITIAL_CAPACITY];
+        this.tree = new int[INITIAL_CAPACITY + 1];
+    }
+
+
+    /**
+     * Puts {@code song} requested by {@code UUID} in a queue. Client which already has a song in a queue keeps
+     * its position and only its song is replaced, otherwise song is placed at the end of a queue.
+     *
+     * @param UUID
+     *        of a client
+     *
+     * @param song
+     *        which is requested
+     *
+     * @return
+     *        position of a client's song in a queue, starting at 0
+     *
+     * @throws NullPointerException
+     *         if {@code song} is {@code null}
+     */
+    @Override
+    public synchronized int enqueue(String UUID, MP3Song song) {
+        Objects.requireNonNull(song, "song");
+        Entry entry = byRequester.get(UUID);
+        if(entry != null) {
+            entry.song = song;
+            return position(entry);
+        }
+        if(tail == slots.length) {
+            compact();
+        }
+        entry = new Entry(UUID, song, tail);
+        slots[tail++] = entry;
+        add(entry.slot, 1);
+        byRequester.put(UUID, entry);
+        return byRequester.size() - 1;
+    }
+
+
+    @Override
+    public synchronized QueueEntry removeHead() {
+        while(head < tail && slots[head] == null) {
+            head++;
+        }
+        if(head == tail) {
+            return null;
+        }
+        Entry entry = slots[head];
+        remove(entry);
+        return entry.toQueueEntry();
+    }
+
+
+    @Override
+    public synchronized void remove(String UUID) {
+        Entry entry = byRequester.get(UUID);
+        if(entry != null) {
+            remove(entry);
+        }
+    }
+
+
+    @Override
+    public synchronized int positionOf(String UUID) {
+        Entry entry = byRequester.get(UUID);
+        return entry == null ? -1 : position(entry);
+    }
+
+
+    /**
+     * Returns song requested by {@code UUID} or {@code null} if client has no song in a queue.
+     *
+     * @param UUID
+     *        of a client
+     *
+     * @return
+     *        song requested by {@code UUID}
+     */
+    public synchronized MP3Song get(String UUID) {
+        Entry entry = byRequester.get(UUID);
+        return entry == null ? null : entry.song;
+    }
+
+
+    @Override
+    public synchronized QueueEntry peek() {
+        while(head < tail && slots[head] == null) {
+            head++;
+        }
+        return head == tail ? null : slots[head].toQueueEntry();
+    }
+
+
+    @Override
+    public synchronized List<QueueEntry> entries() {
+        List<QueueEntry> entries = new ArrayList<>(byRequester.size());
+        for(int i = head; i < tail; i++) {
+            if(slots[i] != null) {
+                entries.add(slots[i].toQueueEntry());
+            }
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+
+    @Override
+    public synchronized int size() {
+        return byRequester.size();
+    }
+
+
+    /**
+     * Removes {@code entry} from its slot.
+     *
+     * @param entry
+     *        which is removed
+     */
+    private void remove(Entry entry) {
+        slots[entry.slot] = null;
+        add(entry.slot, -1);
+        byRequester.remove(entry.UUID);
+    }
+
+
+    /**
+     * Returns number of live entries in front of {@code entry}.
+     *
+     * @param entry
+     *        whose position is returned
+     *
+     * @return
+     *        position of {@code entry}
+     */
+    private int position(Entry entry) {
+        int count = 0;
+        for(int i = entry.slot; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+
+    /**
+     * Adds {@code delta} to the count of {@code slot}.
+     *
+     * @param slot
+     *        whose count is changed
+     *
+     * @param delta
+     *        added to a count
+     */
+    private void add(int slot, int delta) {
+        for(int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+
+    /**
+     * Moves live entries to the front of slots, doubling them if more than half are live, and rebuilds the tree.
+     */
+    private void compact() {
+        int live = byRequester.size();
+        Entry[] compacted = new Entry[live * 2 > slots.length ? slots.length * 2 : slots.length];
+        int next = 0;
+        for(int i = head; i < tail; i++) {
+            if(slots[i] != null) {
+                slots[i].slot = next;
+                compacted[next++] = slots[i];
+            }
+        }
+        slots = compacted;
+        head = 0;
+        tail = next;
+        tree = new int[slots.length + 1];
+        Arrays.fill(tree, 1, tail + 1, 1);
+        for(int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if(parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+
+    /**
+     * Song in a slot together with a client who requested it.
+     *
+     * @author Ivica Duspara
+     * @version 1.0
+     */
+    private static final class Entry {
+
+        /**
+         * UUID of a client who requested a song.
+         */
+        private final String UUID;
+
+        /**
+         * Requested song.
+         */
+        private MP3Song song;
+
+        /**
+         * Index of a slot which holds this entry.
+         */
+        private int slot;
+
+
+        private Entry(String UUID, MP3Song song, int slot) {
+            this.UUID = UUID;
+            this.song = song;
+            this.slot = slot;
+        }
+
+
+        /**
+         * Returns a snapshot of this entry which is not changed by a queue.
+         *
+         * @return
+         *        a snapshot of this entry
+         */
+        private QueueEntry toQueueEntry() {
+            return new QueueEntry(UUID, song);
+        }
+    }
+}
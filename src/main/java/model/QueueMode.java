@@ -0,0 +1,61 @@
+package model;
+
+/**
+ * Describes how {@link PlayerData} queues songs requested by clients.<br>
+ *
+ * <ul>
+ *     <li>{@link #SINGLE} - every client has at most one song in a queue, queuing again replaces it</li>
+ *     <li>{@link #FAIR} - every client has its own queue, playing takes turns between clients</li>
+ * </ul>
+ *
+ * Mode is chosen with system property {@value PlayerData#QUEUE_MODE_PROPERTY}, default is {@link #SINGLE}.
+ * Weights of clients in {@link #FAIR} mode are set with {@value FairShareQueue#WEIGHTS_PROPERTY}.
+ *
+ * @author Ivica Duspara
+ * @version 1.1
+ */
+public enum QueueMode {
+
+    /**
+     * One song per client, see {@link QueueIndex}.
+     */
+    SINGLE,
+
+    /**
+     * Many songs per client played in turns, see {@link FairShareQueue}.
+     */
+    FAIR;
+
+
+    /**
+     * Creates an empty queue of this mode.
+     *
+     * @return
+     *        an empty queue
+     */
+    SongQueue createQueue() {
+        return this == FAIR ? FairShareQueue.fromProperties() : new QueueIndex();
+    }
+
+
+    /**
+     * Returns {@code QueueMode} whose name matches {@code value} ignoring case.
+     * If {@code value} is {@code null} or unknown {@link #SINGLE} is returned.
+     *
+     * @param value
+     *        name of a mode
+     *
+     * @return
+     *        {@code QueueMode} described by {@code value}
+     */
+    public static QueueMode fromString(String value) {
+        if(value != null) {
+            for(QueueMode mode : values()) {
+                if(mode.name().equalsIgnoreCase(value.trim())) {
+                    return mode;
+                }
+            }
+        }
+        return SINGLE;
+    }
+}
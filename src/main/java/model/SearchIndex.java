@@ -0,0 +1,701 @@
+package model;
+
+import song.MP3Song;
+
+import java.util.*;
+
+/**
+ * Index used for searching loaded songs by a part of their file name, title, artist or album.<br>
+ *
+ * Every loaded song gets an ordinal in order in which it was loaded and its searchable text, those four
+ * fields in lower case, is split into trigrams, sequences of three characters. For every trigram index keeps
+ * a sorted list of ordinals of songs whose text contains it. A query of three or more characters is answered
+ * by intersecting lists of its trigrams, starting with the shortest one, and checking only remaining songs
+ * whether they really contain a query, so a search costs about as much as the rarest trigram of a query
+ * and not as much as a whole library. Texts are also split into single characters and pairs of characters,
+ * so a query of one or two characters is answered by its own list without checking any text.<br>
+ *
+ * Removed songs leave empty ordinals behind. Once more than half of ordinals are empty, index is rebuilt
+ * from remaining songs in the same order, so searching never walks more empty ordinals than songs.<br>
+ *
+ * A query with a typo is answered by {@link #fuzzySearch(String, int)}. Texts are also split into words, and for
+ * every word index keeps a sorted list of ordinals of songs which contain it. Distinct words are kept in a
+ * {@link TokenTree}, which finds words close to a word of a query without comparing it to every word.<br>
+ *
+ * Index is changed by {@link PlayerData} whenever songs are loaded or removed and may be searched on any
+ * thread meanwhile.
+ *
+ * @author Ivica Duspara
+ * @version 1.2
+ */
+public class SearchIndex {
+
+    private static final int GRAM = 3;
+
+    /**
+     * Marks keys of pairs of characters in {@link GramTable}, which never collide with trigrams or single characters.
+     */
+    private static final long BIGRAM = 1L << 48;
+
+    /**
+     * Marks keys of single characters in {@link GramTable}.
+     */
+    private static final long UNIGRAM = 2L << 48;
+
+    /**
+     * Ratio of lengths of two lists above which they are intersected by binary searches instead of merging.
+     */
+    private static final int SKIP_RATIO = 16;
+
+    /**
+     * Bits in which a cost of a fuzzy match is packed next to an ordinal.
+     */
+    private static final int COST_BITS = 16;
+
+    private static final long COST_MASK = (1L << COST_BITS) - 1;
+
+    /**
+     * Songs by ordinal, {@code null} where a song was removed.
+     */
+    private List<MP3Song> songs;
+
+    /**
+     * Searchable texts by ordinal, {@code null} where a song was removed.
+     */
+    private List<String> texts;
+
+    private Map<MP3Song, Integer> ordinals;
+
+    /**
+     * Sorted ordinals of songs by trigram, pair of characters and single character.
+     */
+    private GramTable postings;
+
+    /**
+     * Sorted ordinals of songs by word.
+     */
+    private Map<String, Postings> words;
+
+    /**
+     * Every word which was ever indexed.
+     */
+    private TokenTree tokenTree;
+
+    /**
+     * Number of ordinals whose songs were removed.
+     */
+    private int removedCount;
+
+
+    /**
+     * Constructs a new empty {@code SearchIndex}.
+     */
+    public SearchIndex() {
+        this.songs = new ArrayList<>();
+        this.texts = new ArrayList<>();
+        this.ordinals = new HashMap<>();
+        this.postings = new GramTable();
+        this.words = new HashMap<>();
+        this.tokenTree = new TokenTree();
+    }
+
+
+    /**
+     * Adds {@code songs} to this index. Songs which are already indexed are skipped.
+     *
+     * @param added
+     *        songs which are added
+     */
+    synchronized void addAll(Collection<MP3Song> added) {
+        for(MP3Song song : added) {
+            if(ordinals.containsKey(song)) {
+                continue;
+            }
+            int ordinal = songs.size();
+            String text = textOf(song);
+            songs.add(song);
+            texts.add(text);
+            ordinals.put(song, ordinal);
+            for(int i = 0; i < text.length(); i++) {
+                postings.getOrCreate(unigram(text, i)).add(ordinal);
+                if(i + 2 <= text.length()) {
+                    postings.getOrCreate(bigram(text, i)).add(ordinal);
+                }
+                if(i + GRAM <= text.length()) {
+                    postings.getOrCreate(gram(text, i)).add(ordinal);
+                }
+            }
+            for(String word : words(text)) {
+                if(isNumber(word)) {
+                    continue;
+                }
+                words.computeIfAbsent(word, key -> {
+                    tokenTree.add(key);
+                    return new Postings();
+                }).add(ordinal);
+            }
+        }
+    }
+
+
+    /**
+     * Removes {@code songs} from this index and {@link #compact() compacts} it once more than half of its
+     * ordinals are empty.
+     *
+     * @param removed
+     *        songs which are removed
+     */
+    synchronized void removeAll(Collection<MP3Song> removed) {
+        for(MP3Song song : removed) {
+            Integer ordinal = ordinals.remove(song);
+            if(ordinal == null) {
+                continue;
+            }
+            for(long gram : allGrams(texts.get(ordinal))) {
+                postings.get(gram).remove(ordinal);
+            }
+            for(String word : words(texts.get(ordinal))) {
+                if(!isNumber(word)) {
+                    words.get(word).remove(ordinal);
+                }
+            }
+            songs.set(ordinal, null);
+            texts.set(ordinal, null);
+            removedCount++;
+        }
+        if(removedCount * 2 > songs.size()) {
+            compact();
+        }
+    }
+
+
+    /**
+     * Rebuilds this index from songs which were not removed, in order in which they were loaded, so that
+     * their ordinals have no gaps. Words which are no longer in any song are dropped as well. Each song
+     * is rebuilt once for at least as many removals, so compacting costs no more than removing.
+     */
+    private void compact() {
+        List<MP3Song> remaining = new ArrayList<>(ordinals.size());
+        for(MP3Song song : songs) {
+            if(song != null) {
+                remaining.add(song);
+            }
+        }
+        songs = new ArrayList<>(remaining.size());
+        texts = new ArrayList<>(remaining.size());
+        ordinals = new HashMap<>();
+        postings = new GramTable();
+        words = new HashMap<>();
+        tokenTree = new TokenTree();
+        removedCount = 0;
+        addAll(remaining);
+    }
+
+
+    /**
+     * Returns songs whose file name, title, artist or album contains {@code query}, ignoring case,
+     * in order in which they were loaded. An empty query matches every song. A query shorter than a trigram
+     * is answered by its own list of ordinals.
+     *
+     * @param query
+     *        which is searched
+     *
+     * @return matching songs
+     */
+    public synchronized List<MP3Song> search(String query) {
+        String normalized = normalize(query);
+        List<MP3Song> result = new ArrayList<>();
+        if(normalized.isEmpty()) {
+            for(MP3Song song : songs) {
+                if(song != null) {
+                    result.add(song);
+                }
+            }
+            return result;
+        }
+        if(normalized.length() < GRAM) {
+            Postings list = postings.get(normalized.length() == 1 ? unigram(normalized, 0) : bigram(normalized, 0));
+            for(int i = 0; list != null && i < list.size; i++) {
+                result.add(songs.get(list.ordinals[i]));
+            }
+            return result;
+        }
+        Set<Long> grams = grams(normalized);
+        Postings[] lists = new Postings[grams.size()];
+        int count = 0;
+        for(long gram : grams) {
+            Postings list = postings.get(gram);
+            if(list == null || list.size == 0) {
+                return result;
+            }
+            lists[count++] = list;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        int[] candidates = Arrays.copyOf(lists[0].ordinals, lists[0].size);
+        int size = candidates.length;
+        for(int i = 1; i < lists.length && size > 0; i++) {
+            size = intersect(candidates, size, lists[i]);
+        }
+        boolean exact = normalized.length() == GRAM;
+        for(int i = 0; i < size; i++) {
+            if(exact || texts.get(candidates[i]).contains(normalized)) {
+                result.add(songs.get(candidates[i]));
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns at most {@code limit} songs which contain every word of {@code query}, allowing a few typos in
+     * each word, best matches first.<br>
+     *
+     * A word of a query matches a word of a song if their edit distance is at most 0 for words of up to
+     * two characters, 1 for words of three characters and 2 for longer words. Numbers in a query, such as
+     * numbers of tracks, only filter songs which match its other words and must be their words exactly.
+     * Words of a query are matched starting with the one which fewest songs match, so later words only check remaining songs.
+     * Songs are ranked by the sum of distances of their closest words to words of a query, then in order
+     * in which they were loaded.
+     *
+     * @param query
+     *        which is searched
+     *
+     * @param limit
+     *        greatest number of returned songs
+     *
+     * @return best matching songs
+     */
+    public synchronized List<MP3Song> fuzzySearch(String query, int limit) {
+        List<MP3Song> result = new ArrayList<>();
+        List<Map<String, Integer>> matches = new ArrayList<>();
+        List<String> numbers = new ArrayList<>();
+        for(String queryWord : words(normalize(query))) {
+            if(isNumber(queryWord)) {
+                numbers.add(queryWord);
+            }
+            else {
+                matches.add(tokenTree.find(queryWord, maxDistance(queryWord)));
+            }
+        }
+        if(matches.isEmpty() || limit <= 0) {
+            return result;
+        }
+        matches.sort(Comparator.comparingInt(this::songCount));
+        long[] candidates = costs(matches.get(0));
+        int size = candidates.length;
+        for(int i = 1; i < matches.size() && size > 0; i++) {
+            size = addCosts(candidates, size, matches.get(i));
+        }
+        size = keepNumbers(candidates, size, numbers);
+        for(long ranked : best(candidates, size, limit)) {
+            result.add(songs.get((int) ranked));
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns at most {@code limit} best of first {@code size} {@code candidates}, each packed as its cost followed
+     * by its ordinal, best first. Candidates pass through a max-heap of {@code limit} best ones seen so far, so only
+     * returned candidates are sorted and ranking costs about as much as reading all candidates once.
+     */
+    private static long[] best(long[] candidates, int size, int limit) {
+        long[] heap = new long[Math.min(size, limit)];
+        int count = 0;
+        for(int i = 0; i < size; i++) {
+            long ranked = (candidates[i] & COST_MASK) << Integer.SIZE | candidates[i] >>> COST_BITS;
+            if(count < heap.length) {
+                int child = count++;
+                while(child > 0 && heap[(child - 1) / 2] < ranked) {
+                    heap[child] = heap[(child - 1) / 2];
+                    child = (child - 1) / 2;
+                }
+                heap[child] = ranked;
+            }
+            else if(ranked < heap[0]) {
+                int parent = 0;
+                while(2 * parent + 1 < count) {
+                    int child = 2 * parent + 1;
+                    if(child + 1 < count && heap[child + 1] > heap[child]) {
+                        child++;
+                    }
+                    if(heap[child] <= ranked) {
+                        break;
+                    }
+                    heap[parent] = heap[child];
+                    parent = child;
+                }
+                heap[parent] = ranked;
+            }
+        }
+        Arrays.sort(heap);
+        return heap;
+    }
+
+
+    /**
+     * Keeps first {@code size} {@code candidates} whose texts contain every one of {@code numbers} and returns
+     * how many were kept.
+     */
+    private int keepNumbers(long[] candidates, int size, List<String> numbers) {
+        if(numbers.isEmpty()) {
+            return size;
+        }
+        int kept = 0;
+        for(int i = 0; i < size; i++) {
+            String text = texts.get((int) (candidates[i] >>> COST_BITS));
+            boolean matches = true;
+            for(String number : numbers) {
+                matches &= containsWord(text, number);
+            }
+            if(matches) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+        return kept;
+    }
+
+
+    /**
+     * Returns {@code true} if {@code word} is one of words of {@code text}.
+     */
+    private static boolean containsWord(String text, String word) {
+        for(int i = text.indexOf(word); i >= 0; i = text.indexOf(word, i + 1)) {
+            int end = i + word.length();
+            if((i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))
+                    && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Returns ordinals of songs which contain one of {@code matchedWords}, each with the least distance of
+     * its words, packed as ordinal followed by {@value #COST_BITS} bits of a cost and sorted by ordinal.
+     */
+    private long[] costs(Map<String, Integer> matchedWords) {
+        long[] costs = new long[songCount(matchedWords)];
+        int size = 0;
+        for(Map.Entry<String, Integer> match : matchedWords.entrySet()) {
+            Postings list = words.get(match.getKey());
+            for(int i = 0; i < list.size; i++) {
+                costs[size++] = (long) list.ordinals[i] << COST_BITS | match.getValue();
+            }
+        }
+        Arrays.sort(costs);
+        int kept = 0;
+        for(int i = 0; i < size; i++) {
+            if(kept == 0 || costs[kept - 1] >>> COST_BITS != costs[i] >>> COST_BITS) {
+                costs[kept++] = costs[i];
+            }
+        }
+        return Arrays.copyOf(costs, kept);
+    }
+
+
+    /**
+     * Keeps first {@code size} {@code candidates} which contain one of {@code matchedWords}, adds the least
+     * distance of those words to their costs and returns how many were kept. Each candidate is looked up by
+     * a binary search, closest words first.
+     */
+    private int addCosts(long[] candidates, int size, Map<String, Integer> matchedWords) {
+        List<Map.Entry<String, Integer>> closest = new ArrayList<>(matchedWords.entrySet());
+        closest.sort(Map.Entry.comparingByValue());
+        int kept = 0;
+        for(int i = 0; i < size; i++) {
+            int ordinal = (int) (candidates[i] >>> COST_BITS);
+            for(Map.Entry<String, Integer> match : closest) {
+                Postings list = words.get(match.getKey());
+                if(Arrays.binarySearch(list.ordinals, 0, list.size, ordinal) >= 0) {
+                    candidates[kept++] = candidates[i] + match.getValue();
+                    break;
+                }
+            }
+        }
+        return kept;
+    }
+
+
+    /**
+     * Returns number of songs which contain one of {@code matchedWords}, counting a song once for every word.
+     */
+    private int songCount(Map<String, Integer> matchedWords) {
+        int count = 0;
+        for(String word : matchedWords.keySet()) {
+            count += words.get(word).size;
+        }
+        return count;
+    }
+
+
+    /**
+     * Returns number of indexed songs.
+     *
+     * @return number of indexed songs
+     */
+    public synchronized int size() {
+        return ordinals.size();
+    }
+
+
+    /**
+     * Keeps first {@code size} {@code candidates} which are also in {@code list} and returns how many were kept.
+     * Lists of similar length are merged, while in a much longer list each candidate is looked up by
+     * a binary search in what remains of it.
+     */
+    private static int intersect(int[] candidates, int size, Postings list) {
+        int kept = 0;
+        int from = 0;
+        boolean merge = list.size < (long) size * SKIP_RATIO;
+        for(int i = 0; i < size && from < list.size; i++) {
+            int candidate = candidates[i];
+            if(merge) {
+                while(from < list.size && list.ordinals[from] < candidate) {
+                    from++;
+                }
+                if(from < list.size && list.ordinals[from] == candidate) {
+                    candidates[kept++] = candidate;
+                    from++;
+                }
+            }
+            else {
+                int found = Arrays.binarySearch(list.ordinals, from, list.size, candidate);
+                if(found >= 0) {
+                    candidates[kept++] = candidate;
+                    from = found + 1;
+                }
+                else {
+                    from = -found - 1;
+                }
+            }
+        }
+        return kept;
+    }
+
+
+    /**
+     * Returns searchable text of {@code song}: its file name, title, artist and album in lower case,
+     * separated by new lines so that no trigram spans two fields.
+     */
+    private static String textOf(MP3Song song) {
+        StringBuilder text = new StringBuilder(song.getFileName());
+        for(String field : new String[] {song.getTitle(), song.getArtist(), song.getAlbum()}) {
+            if(field != null) {
+                text.append('\n').append(field);
+            }
+        }
+        return normalize(text.toString());
+    }
+
+
+    static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+
+    /**
+     * Returns greatest edit distance at which a word of a song still matches {@code word} of a query.
+     */
+    private static int maxDistance(String word) {
+        return word.length() <= 2 ? 0 : word.length() == 3 ? 1 : 2;
+    }
+
+
+    private static boolean isNumber(String word) {
+        for(int i = 0; i < word.length(); i++) {
+            if(!Character.isDigit(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns distinct words of {@code text}, which are runs of letters and digits.
+     */
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for(int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if(inWord && start < 0) {
+                start = i;
+            }
+            else if(!inWord && start >= 0) {
+                String word = text.substring(start, i);
+                if(!words.contains(word)) {
+                    words.add(word);
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+
+    /**
+     * Returns every distinct trigram of {@code text}.
+     */
+    private static Set<Long> grams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for(int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(gram(text, i));
+        }
+        return grams;
+    }
+
+
+    /**
+     * Returns every distinct trigram, pair of characters and single character of {@code text}.
+     */
+    private static Set<Long> allGrams(String text) {
+        Set<Long> grams = grams(text);
+        for(int i = 0; i < text.length(); i++) {
+            grams.add(unigram(text, i));
+            if(i + 2 <= text.length()) {
+                grams.add(bigram(text, i));
+            }
+        }
+        return grams;
+    }
+
+
+    /**
+     * Returns trigram of {@code text} which starts at {@code index}, three characters packed into a {@code long}.
+     */
+    private static long gram(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+
+    /**
+     * Returns pair of characters of {@code text} which starts at {@code index}, packed into a {@code long}.
+     */
+    private static long bigram(String text, int index) {
+        return BIGRAM | ((long) text.charAt(index) << 16) | text.charAt(index + 1);
+    }
+
+
+    /**
+     * Returns character of {@code text} at {@code index}, packed into a {@code long}.
+     */
+    private static long unigram(String text, int index) {
+        return UNIGRAM | text.charAt(index);
+    }
+
+
+    /**
+     * Hash table of {@link Postings} by trigram, pair of characters or single character with open addressing,
+     * so keys are never boxed. Lists which become empty stay in a table, since a removed song is usually
+     * loaded again.
+     *
+     * @author Ivica Duspara
+     * @version 1.0
+     */
+    private static final class GramTable {
+
+        /**
+         * Keys, 0 where a slot is empty. No trigram is 0, since texts never contain three {@code '\0'},
+         * and other keys are marked by {@link SearchIndex#BIGRAM} or {@link SearchIndex#UNIGRAM}.
+         */
+        private long[] keys = new long[1 << 12];
+
+        private Postings[] values = new Postings[1 << 12];
+
+        private int size;
+
+
+        private Postings get(long gram) {
+            int mask = keys.length - 1;
+            for(int slot = hash(gram) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if(keys[slot] == gram) {
+                    return values[slot];
+                }
+            }
+            return null;
+        }
+
+
+        private Postings getOrCreate(long gram) {
+            int mask = keys.length - 1;
+            int slot = hash(gram) & mask;
+            for(; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if(keys[slot] == gram) {
+                    return values[slot];
+                }
+            }
+            Postings list = new Postings();
+            keys[slot] = gram;
+            values[slot] = list;
+            if(++size * 2 > keys.length) {
+                grow();
+            }
+            return list;
+        }
+
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Postings[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Postings[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for(int i = 0; i < oldKeys.length; i++) {
+                if(oldKeys[i] != 0) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while(keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+
+        private static int hash(long gram) {
+            long mixed = gram * 0x9E3779B97F4A7C15L;
+            return (int) (mixed ^ (mixed >>> 32));
+        }
+    }
+
+
+    /**
+     * Sorted list of ordinals.
+     *
+     * @author Ivica Duspara
+     * @version 1.0
+     */
+    private static final class Postings {
+
+        private int[] ordinals = new int[4];
+
+        private int size;
+
+
+        /**
+         * Adds {@code ordinal}, which is not less than any ordinal in this list.
+         */
+        private void add(int ordinal) {
+            if(size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if(size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+
+        private void remove(int ordinal) {
+            int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if(index >= 0) {
+                System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+}
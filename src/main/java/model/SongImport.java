@@ -0,0 +1,240 @@
+package model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Import of files started by {@link PlayerData#addSongs(java.util.List)} or
+ * {@link PlayerData#addFolder(java.io.File)}.<br>
+ *
+ * Files are read in batches by several threads and every batch is added to loaded songs as soon as it is read,
+ * so songs appear while the rest of an import is still running. When a folder is imported, files are added to
+ * an import while the folder is still being searched, so {@link #getTotal() total} grows until searching ends.
+ * {@code SongImport} tells how far an import got and allows it to be cancelled. Cancelling stops searching and
+ * skips files which were not read yet, songs which are already loaded stay loaded.
+ *
+ * @author Ivica Duspara
+ * @version 1.3
+ */
+public class SongImport {
+
+    /**
+     * Number of files which are imported.
+     */
+    private AtomicInteger total;
+
+    /**
+     * Number of files which were processed, including failed and skipped ones.
+     */
+    private AtomicInteger completed;
+
+    /**
+     * Number of files which could not be read.
+     */
+    private AtomicInteger failed;
+
+    /**
+     * Number of batches which were not processed yet, plus one while files are still being added.
+     */
+    private AtomicInteger pendingBatches;
+
+    private volatile boolean cancelled;
+
+    /**
+     * Whether the first imported song starts playing if nothing is playing.
+     */
+    private final boolean startsPlaying;
+
+    /**
+     * Set once the first batch of this import is split off, see {@link #takeFirstBatch()}.
+     */
+    private AtomicBoolean firstBatchTaken;
+
+    /**
+     * Completed once every batch is processed.
+     */
+    private CompletableFuture<Void> completion;
+
+
+    /**
+     * Constructs a new {@code SongImport} to which files are not added yet.
+     * Import can not complete before {@link #filesAdded()} is called.
+     */
+    SongImport() {
+        this(true);
+    }
+
+
+    /**
+     * Constructs a new {@code SongImport} to which files are not added yet.
+     * Import can not complete before {@link #filesAdded()} is called.
+     *
+     * @param startsPlaying
+     *        {@code true} if the first imported song starts playing when nothing is playing
+     */
+    SongImport(boolean startsPlaying) {
+        this.startsPlaying = startsPlaying;
+        this.total = new AtomicInteger();
+        this.completed = new AtomicInteger();
+        this.failed = new AtomicInteger();
+        this.pendingBatches = new AtomicInteger(1);
+        this.firstBatchTaken = new AtomicBoolean();
+        this.completion = new CompletableFuture<>();
+    }
+
+
+    /**
+     * Returns {@code true} if the first imported song starts playing when nothing is playing.
+     *
+     * @return {@code true} if this import starts playing
+     */
+    boolean startsPlaying() {
+        return startsPlaying;
+    }
+
+
+    /**
+     * Returns {@code true} only the first time it is called on an import which {@link #startsPlaying() starts playing}.
+     * Files are added to an import from several threads, whichever gets {@code true} makes the first batch.
+     *
+     * @return {@code true} if the next batch is the first one of this import
+     */
+    boolean takeFirstBatch() {
+        return startsPlaying && firstBatchTaken.compareAndSet(false, true);
+    }
+
+
+    /**
+     * Records that {@code files} files were added in {@code batches} batches.
+     *
+     * @param files
+     *        number of added files
+     *
+     * @param batches
+     *        number of batches which will be processed
+     */
+    void addFiles(int files, int batches) {
+        total.addAndGet(files);
+        pendingBatches.addAndGet(batches);
+    }
+
+
+    /**
+     * Records that no more files will be added. Import is completed once every added batch is processed.
+     */
+    void filesAdded() {
+        batchDone(0);
+    }
+
+
+    /**
+     * Records that a file could not be read.
+     */
+    void fileFailed() {
+        failed.incrementAndGet();
+    }
+
+
+    /**
+     * Records that a batch of {@code files} files was processed. Import is completed after its last batch.
+     *
+     * @param files
+     *        number of files in a batch
+     */
+    void batchDone(int files) {
+        completed.addAndGet(files);
+        if(pendingBatches.decrementAndGet() == 0) {
+            completion.complete(null);
+        }
+    }
+
+
+    /**
+     * Cancels this import. Files which were not read yet are skipped.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+
+    /**
+     * Returns {@code true} if this import was cancelled.
+     *
+     * @return
+     *        {@code true} if this import was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+
+    /**
+     * Returns {@code true} if every file was processed.
+     *
+     * @return
+     *        {@code true} if this import is done
+     */
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+
+    /**
+     * Returns future which is completed once every file was processed.
+     *
+     * @return
+     *        completion of this import
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+
+    /**
+     * Returns number of files which are imported. Files which were already loaded are not counted.
+     *
+     * @return
+     *        number of imported files
+     */
+    public int getTotal() {
+        return total.get();
+    }
+
+
+    /**
+     * Returns number of processed files.
+     *
+     * @return
+     *        number of processed files
+     */
+    public int getCompleted() {
+        return completed.get();
+    }
+
+
+    /**
+     * Returns number of files which could not be read.
+     *
+     * @return
+     *        number of failed files
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+
+    /**
+     * Returns part of files which were processed, between 0 and 1.
+     *
+     * @return
+     *        progress of this import
+     */
+    public double getProgress() {
+        int files = total.get();
+        if(files == 0) {
+            return isDone() ? 1 : 0;
+        }
+        return (double) completed.get() / files;
+    }
+}
@@ -0,0 +1,140 @@
+package model;
+
+import song.MP3Song;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of loaded songs by name and by {@link MP3Song#getId() identifier}.<br>
+ *
+ * Index is kept by {@link PlayerData} next to its list of loaded songs, so codes resolve a song sent by a client
+ * in constant time instead of scanning a whole library. It is read by network threads while a model changes it,
+ * therefore both maps are concurrent.<br>
+ *
+ * Two files in different folders may share a name. In that case name resolves to the song which was added last
+ * among those which are still loaded, as a scan of loaded songs would find it. Every song of a name is kept, so
+ * removing one of them leaves the name resolvable. Songs of a name are few, so they are kept in a small list
+ * which is replaced as a whole when it changes, and readers never see it half changed.
+ *
+ * @author Ivica Duspara
+ * @version 1.1
+ */
+public class SongIndex {
+
+    /**
+     * Songs by file name, in order in which they were added. Lists are never changed once they are stored.
+     */
+    private Map<String, List<MP3Song>> byName;
+
+    /**
+     * Songs by identifier.
+     */
+    private Map<Long, MP3Song> byId;
+
+
+    /**
+     * Constructs a new empty {@code SongIndex}.
+     */
+    public SongIndex() {
+        this.byName = new ConcurrentHashMap<>();
+        this.byId = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Adds {@code songs} to this index.
+     *
+     * @param songs
+     *        which are added
+     */
+    void addAll(Collection<MP3Song> songs) {
+        for(MP3Song song : songs) {
+            byName.merge(song.getFileName(), Collections.singletonList(song), SongIndex::concat);
+            byId.put(song.getId(), song);
+        }
+    }
+
+
+    /**
+     * Removes {@code songs} from this index.
+     *
+     * @param songs
+     *        which are removed
+     */
+    void removeAll(Collection<MP3Song> songs) {
+        for(MP3Song song : songs) {
+            byName.computeIfPresent(song.getFileName(), (name, named) -> without(named, song));
+            byId.remove(song.getId(), song);
+        }
+    }
+
+
+    /**
+     * Returns song named {@code fileName} or {@code null} if there is no such song. If several songs share
+     * the name, the one which was added last is returned.
+     *
+     * @param fileName
+     *        of a song
+     *
+     * @return
+     *        song named {@code fileName}
+     */
+    public MP3Song getByName(String fileName) {
+        if(fileName == null) {
+            return null;
+        }
+        List<MP3Song> named = byName.get(fileName);
+        return named == null ? null : named.get(named.size() - 1);
+    }
+
+
+    /**
+     * Returns song identified by {@code id} or {@code null} if there is no such song.
+     *
+     * @param id
+     *        of a song
+     *
+     * @return
+     *        song identified by {@code id}
+     */
+    public MP3Song getById(long id) {
+        return byId.get(id);
+    }
+
+
+    /**
+     * Returns a new list of {@code first} followed by {@code second}.
+     */
+    private static List<MP3Song> concat(List<MP3Song> first, List<MP3Song> second) {
+        List<MP3Song> joined = new ArrayList<>(first.size() + second.size());
+        joined.addAll(first);
+        joined.addAll(second);
+        return Collections.unmodifiableList(joined);
+    }
+
+
+    /**
+     * Returns a new list of {@code named} without {@code song}, or {@code null} if nothing is left.
+     */
+    private static List<MP3Song> without(List<MP3Song> named, MP3Song song) {
+        List<MP3Song> left = new ArrayList<>(named);
+        left.remove(song);
+        return left.isEmpty() ? null : Collections.unmodifiableList(left);
+    }
+
+
+    /**
+     * Returns number of indexed songs.
+     *
+     * @return
+     *        number of indexed songs
+     */
+    public int size() {
+        return byId.size();
+    }
+}
@@ -0,0 +1,108 @@
+package model;
+
+import song.MP3Song;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of loaded songs published in a {@link PlayerSnapshot}.<br>
+ *
+ * Songs are stored in chunks of {@value #CHUNK_SIZE}. Appending writes new songs after the end of a list and
+ * returns a longer list which shares every chunk with it, so an import which appends many small batches copies
+ * at most one directory of chunks per batch instead of every loaded song. A list never reads past its own
+ * size, so slots written by a later append are invisible to it. That holds only if every append is made to the
+ * newest list, which the writer thread of {@link PlayerData} guarantees.<br>
+ *
+ * Removing songs is rare and builds a new list with {@link #of(List)}.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+final class SongList extends AbstractList<MP3Song> implements RandomAccess {
+
+    private static final int CHUNK_BITS = 10;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * List without songs.
+     */
+    static final SongList EMPTY = new SongList(new MP3Song[0][], 0);
+
+    /**
+     * Chunks of songs, shared with lists which this one was appended to and which are appended to it.
+     */
+    private final MP3Song[][] chunks;
+
+    private final int size;
+
+
+    private SongList(MP3Song[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+
+    /**
+     * Returns a list of {@code songs}.
+     *
+     * @param songs
+     *        which are copied
+     *
+     * @return
+     *        list of {@code songs}
+     */
+    static SongList of(List<MP3Song> songs) {
+        return EMPTY.append(songs);
+    }
+
+
+    /**
+     * Returns a list of songs of this list followed by {@code songs}. Must only be called on the newest list.
+     *
+     * @param songs
+     *        which are appended
+     *
+     * @return
+     *        longer list
+     */
+    SongList append(List<MP3Song> songs) {
+        int newSize = size + songs.size();
+        int chunkCount = (newSize + CHUNK_MASK) >>> CHUNK_BITS;
+        MP3Song[][] directory = chunks;
+        if(chunkCount > directory.length) {
+            directory = Arrays.copyOf(directory, Math.max(chunkCount, directory.length * 2));
+        }
+        int index = size;
+        for(MP3Song song : songs) {
+            MP3Song[] chunk = directory[index >>> CHUNK_BITS];
+            if(chunk == null) {
+                chunk = new MP3Song[CHUNK_SIZE];
+                directory[index >>> CHUNK_BITS] = chunk;
+            }
+            chunk[index & CHUNK_MASK] = song;
+            index++;
+        }
+        return new SongList(directory, newSize);
+    }
+
+
+    @Override
+    public MP3Song get(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
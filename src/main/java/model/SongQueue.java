@@ -0,0 +1,104 @@
+package model;
+
+import song.MP3Song;
+
+import java.util.List;
+
+/**
+ * Queue of songs requested by clients, each identified by its UUID.<br>
+ *
+ * How many songs a client may have and in which order they are played is decided by an implementation,
+ * see {@link QueueMode}. Implementations are thread safe, network codes read a queue while a model changes it.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public interface SongQueue {
+
+    /**
+     * Puts {@code song} requested by {@code UUID} in a queue.
+     *
+     * @param UUID
+     *        of a client
+     *
+     * @param song
+     *        which is requested
+     *
+     * @return
+     *        position of a client's next song, starting at 0
+     *
+     * @throws NullPointerException
+     *         if {@code song} is {@code null}, queue is not changed then
+     */
+    int enqueue(String UUID, MP3Song song);
+
+
+    /**
+     * Removes the song which is played next.
+     *
+     * @return
+     *        removed entry or {@code null} if queue is empty
+     */
+    QueueEntry removeHead();
+
+
+    /**
+     * Returns the song which is played next without removing it.
+     *
+     * @return
+     *        the next entry or {@code null} if queue is empty
+     */
+    QueueEntry peek();
+
+
+    /**
+     * Removes every song requested by {@code UUID}.
+     *
+     * @param UUID
+     *        of a client
+     */
+    void remove(String UUID);
+
+
+    /**
+     * Returns number of songs which are played before the next song of {@code UUID},
+     * or -1 if client has no song in a queue.
+     *
+     * @param UUID
+     *        of a client
+     *
+     * @return
+     *        position of a client's next song
+     */
+    int positionOf(String UUID);
+
+
+    /**
+     * Returns an unmodifiable list of queued songs in order of playing. Later changes of a queue do not
+     * affect a returned list.
+     *
+     * @return
+     *        entries of a queue in order of playing
+     */
+    List<QueueEntry> entries();
+
+
+    /**
+     * Returns number of queued songs.
+     *
+     * @return
+     *        number of queued songs
+     */
+    int size();
+
+
+    /**
+     * Returns {@code true} if queue is empty.
+     *
+     * @return
+     *        {@code true} if queue is empty
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
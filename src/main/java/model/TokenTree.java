@@ -0,0 +1,171 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * BK-tree of words, used by {@link SearchIndex} for finding words within a small edit distance of a word
+ * of a query.<br>
+ *
+ * Every child of a node is stored under its Levenshtein distance from that node. Since distance is a metric,
+ * words within distance {@code r} of a query can only be found under children whose distance from a node
+ * differs from distance between a node and a query by at most {@code r}, so a search for a small {@code r}
+ * visits only a small part of a tree. Words are never removed, a word which no song contains any more is
+ * skipped by {@code SearchIndex}.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+final class TokenTree {
+
+    private Node root;
+
+    private int size;
+
+
+    /**
+     * Adds {@code word} to this tree, unless it is already there.
+     *
+     * @param word
+     *        which is added
+     */
+    void add(String word) {
+        if(root == null) {
+            root = new Node(word);
+            size++;
+            return;
+        }
+        Node node = root;
+        while(true) {
+            int distance = distance(node.word, word);
+            if(distance == 0) {
+                return;
+            }
+            Node child = node.child(distance);
+            if(child == null) {
+                node.setChild(distance, new Node(word));
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+
+    /**
+     * Returns every word within {@code maxDistance} of {@code query}, with its distance.
+     *
+     * @param query
+     *        word which is searched
+     *
+     * @param maxDistance
+     *        greatest allowed distance
+     *
+     * @return words close to {@code query} with their distances
+     */
+    Map<String, Integer> find(String query, int maxDistance) {
+        Map<String, Integer> found = new HashMap<>();
+        if(root == null) {
+            return found;
+        }
+        Deque<Node> nodes = new ArrayDeque<>();
+        nodes.push(root);
+        while(!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            int distance = distance(node.word, query);
+            if(distance <= maxDistance) {
+                found.put(node.word, distance);
+            }
+            int from = Math.max(1, distance - maxDistance);
+            int to = Math.min(node.children.length - 1, distance + maxDistance);
+            for(int i = from; i <= to; i++) {
+                if(node.children[i] != null) {
+                    nodes.push(node.children[i]);
+                }
+            }
+        }
+        return found;
+    }
+
+
+    /**
+     * Returns number of words in this tree.
+     *
+     * @return number of words
+     */
+    int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns Levenshtein distance between {@code first} and {@code second}: least number of inserted,
+     * removed or replaced characters which turns one into the other.
+     *
+     * @param first
+     *        word
+     *
+     * @param second
+     *        word
+     *
+     * @return edit distance
+     */
+    static int distance(String first, String second) {
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for(int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+        for(int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            char c = first.charAt(i - 1);
+            for(int j = 1; j <= second.length(); j++) {
+                int replace = previous[j - 1] + (c == second.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length()];
+    }
+
+
+    /**
+     * Word with its children by distance.
+     *
+     * @author Ivica Duspara
+     * @version 1.0
+     */
+    private static final class Node {
+
+        private final String word;
+
+        /**
+         * Children by distance from {@link #word}, index 0 is never used.
+         */
+        private Node[] children;
+
+
+        private Node(String word) {
+            this.word = word;
+            this.children = new Node[0];
+        }
+
+
+        private Node child(int distance) {
+            return distance < children.length ? children[distance] : null;
+        }
+
+
+        private void setChild(int distance, Node child) {
+            if(distance >= children.length) {
+                children = Arrays.copyOf(children, distance + 1);
+            }
+            children[distance] = child;
+        }
+    }
+}
@@ -2,14 +2,16 @@ package observers;
 
 import javafx.collections.ObservableList;
 import javafx.util.Duration;
+import model.SongImport;
 import song.MP3Song;
 
 /**
  * An observer interface which is interested in changes in model, such as song change or a queue change.<br>
- * Model which broadcasts this information is {@link model.PlayerData PlayerData}.
+ * Model which broadcasts this information is {@link model.PlayerData PlayerData}. Every method is called
+ * on JavaFX application thread.
  *
  * @author Ivica Duspara
- * @version 1.0
+ * @version 1.1
  */
 public interface GraphicalPlayerDataObserver {
 
@@ -63,4 +65,12 @@ public interface GraphicalPlayerDataObserver {
      *        of media which is currently playing
      */
     void updateTimeProperty(Duration currentTime, Duration totalTime);
+
+    /**
+     * Sends a request to {@link PlayerDisplayObserver observers} to show progress of {@code songImport}.
+     *
+     * @param songImport
+     *        import of files whose progress changed
+     */
+    void updateImportProgress(SongImport songImport);
 }
@@ -1,13 +1,17 @@
 package observers;
 
+import model.PlayerSnapshot;
 
 /**
  * This interface represents observers which broadcast change over a network.<br>
  *  More precisely once a change in {@link model.PlayerData PlayerData} happens,
- *  every connected client should be notified. These clients are represented by this interface.
+ *  every connected client should be notified. These clients are represented by this interface.<br>
+ *
+ *  Every notification carries the {@link PlayerSnapshot snapshot} published by a change, so a message is written
+ *  from the state which caused it even if the model changed again before it is sent.
  *
  * @author Ivica Duspara
- * @version 1.0
+ * @version 1.1
  */
 public interface NetworkPlayerDataObserver {
 
@@ -16,6 +20,8 @@ public interface NetworkPlayerDataObserver {
      *
      * @param code which describes an update
      *
+     * @param snapshot published by a change which caused an update
+     *
      */
-    void update(String code);
+    void update(String code, PlayerSnapshot snapshot);
 }
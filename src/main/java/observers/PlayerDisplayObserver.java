@@ -1,6 +1,7 @@
 package observers;
 
 import javafx.util.Duration;
+import model.SongImport;
 
 /**
  * An observer which is interested in changes of a view, such as swapping of loaded list with search result.<br>
@@ -24,4 +25,12 @@ public interface PlayerDisplayObserver {
     void restoreToLoadedList();
 
     void updateTimeProperty(Duration currentTime, Duration totalTime);
+
+    /**
+     * Shows progress of {@code songImport} and allows it to be cancelled while it runs.
+     *
+     * @param songImport
+     *        import of files whose progress changed
+     */
+    void updateImportProgress(SongImport songImport);
 }
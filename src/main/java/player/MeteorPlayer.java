@@ -10,8 +10,13 @@ import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import model.PlayerData;
+import model.SongImport;
 import observers.PlayerDisplayObserver;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 public class MeteorPlayer extends Application implements PlayerDisplayObserver {
     private static final String STYLE_SHEET_MATRIX = "matrix.css";
 
@@ -23,6 +28,11 @@ public class MeteorPlayer extends Application implements PlayerDisplayObserver {
 
     private static final int BUTTON_PREFERRED_HEIGHT = 50;
 
+    /**
+     * Number of positions {@link #bar} is moved through during a song.
+     */
+    private static final int PROGRESS_STEPS = 1000;
+
     private Stage window;
 
     private MenuBar menuBar;
@@ -45,6 +55,8 @@ public class MeteorPlayer extends Application implements PlayerDisplayObserver {
 
     private ModelCommand openCommand;
 
+    private ModelCommand openFolderCommand;
+
     private SceneCommand lightSkinCommand;
 
     private SceneCommand darkSkinCommand;
@@ -61,8 +73,42 @@ public class MeteorPlayer extends Application implements PlayerDisplayObserver {
 
     private ProgressBar bar;
 
+    /**
+     * Shows current time of a song.
+     */
     private Label progress;
 
+    /**
+     * Shows total time of a song.
+     */
+    private Label duration;
+
+    /**
+     * Texts of {@link #progress} indexed by seconds, created once and reused by every song.
+     */
+    private String[] timeTexts = new String[0];
+
+    /**
+     * Seconds shown by {@link #progress} and {@link #duration}, -1 before anything is shown.
+     */
+    private int shownCurrentSeconds = -1;
+
+    private int shownTotalSeconds = -1;
+
+    /**
+     * Step of {@link #PROGRESS_STEPS} shown by {@link #bar}, -1 before anything is shown.
+     */
+    private int shownProgressStep = -1;
+
+    private ProgressBar importProgress;
+
+    private Button cancelImportButton;
+
+    /**
+     * Imports which are still running, each of them is cancelled by {@link #cancelImportButton}.
+     */
+    private Set<SongImport> runningImports = new LinkedHashSet<>();
+
 
     @Override
     public void start(Stage primaryStage) {
@@ -82,6 +128,7 @@ public class MeteorPlayer extends Application implements PlayerDisplayObserver {
         window.setOnCloseRequest(e -> handleClose());
         window.setScene(scene);
         window.show();
+        playerData.loadLibrary();
     }
 
 
@@ -141,10 +188,17 @@ public class MeteorPlayer extends Application implements PlayerDisplayObserver {
         });
         progress = new Label();
         progress.getStyleClass().add("timeLabel");
+        duration = new Label();
+        duration.getStyleClass().add("timeLabel");
+        importProgress = new ProgressBar(0);
+        importProgress.setVisible(false);
+        cancelImportButton = new Button("Cancel import");
+        cancelImportButton.setVisible(false);
+        cancelImportButton.setOnAction(l -> runningImports.forEach(SongImport::cancel));
 
         HBox hb = new HBox();
         hb.setPrefWidth(BUTTON_BOX_PREFERRED_WIDTH);
-        hb.getChildren().addAll(previousButton,playButton,nextButton,playingRandom,progress);
+        hb.getChildren().addAll(previousButton,playButton,nextButton,playingRandom,progress,duration,importProgress,cancelImportButton);
         hb.getStyleClass().add("hbox");
         GridPane twoGridder = new GridPane();
         bar = new ProgressBar(0);
@@ -195,9 +249,12 @@ public class MeteorPlayer extends Application implements PlayerDisplayObserver {
      */
     private void initFileMenu() {
         openCommand = new OpenCommand(window,playerData,"Open...");
+        openFolderCommand = new OpenFolderCommand(window,playerData,"Open folder...");
         fileMenu.getItems().add(openCommand);
+        fileMenu.getItems().add(openFolderCommand);
         fileMenu.getStyleClass().add("menu");
         openCommand.getStyleClass().add("menuitem");
+        openFolderCommand.getStyleClass().add("menuitem");
     }
 
 
@@ -257,18 +314,91 @@ public class MeteorPlayer extends Application implements PlayerDisplayObserver {
         }
     }
 
+    @Override
+    public void updateImportProgress(SongImport songImport) {
+        if(!songImport.isDone() && !songImport.isCancelled()) {
+            runningImports.add(songImport);
+        }
+        else {
+            runningImports.remove(songImport);
+        }
+        boolean running = !runningImports.isEmpty();
+        importProgress.setVisible(running);
+        cancelImportButton.setVisible(running);
+        int total = 0;
+        int completed = 0;
+        for(SongImport other : runningImports) {
+            total += other.getTotal();
+            completed += other.getCompleted();
+        }
+        importProgress.setProgress(total == 0 ? 0 : (double) completed / total);
+    }
+
     @Override
     public void updateTimeProperty(Duration currentTime, Duration totalTime) {
         double currentSeconds = currentTime.toSeconds();
         double totalSeconds = totalTime.toSeconds();
-        int cm = (int) (currentSeconds / 60);
-        int tm = (int) (totalSeconds / 60);
-        int lcm = (int) (currentSeconds % 60);
-        int ltm = (int) (totalSeconds % 60);
-        String current = String.format("%02d:%02d",cm,lcm);
-        String next = String.format("%02d:%02d",tm,ltm);
-        progress.setText(current + " / " + next);
-        bar.setProgress(currentSeconds/totalSeconds);
+        int current = Math.max(0, (int) currentSeconds);
+        int total = Math.max(0, (int) totalSeconds);
+        if(total != shownTotalSeconds) {
+            shownTotalSeconds = total;
+            duration.setText(appendTime(new StringBuilder("/ "), total).toString());
+        }
+        if(current != shownCurrentSeconds) {
+            shownCurrentSeconds = current;
+            progress.setText(timeText(current));
+        }
+        int step = totalSeconds > 0 ? (int) (Math.min(1, currentSeconds / totalSeconds) * PROGRESS_STEPS) : 0;
+        if(step != shownProgressStep) {
+            shownProgressStep = step;
+            bar.setProgress((double) step / PROGRESS_STEPS);
+        }
+    }
+
+
+    /**
+     * Returns {@code seconds} as minutes and seconds, mm:ss. Every text is created once, the first time it is shown.
+     *
+     * @param seconds
+     *        which are shown
+     *
+     * @return text of {@code seconds}
+     */
+    private String timeText(int seconds) {
+        if(seconds >= timeTexts.length) {
+            timeTexts = Arrays.copyOf(timeTexts, Math.max(seconds + 1, timeTexts.length * 2));
+        }
+        String text = timeTexts[seconds];
+        if(text == null) {
+            text = appendTime(new StringBuilder(), seconds).toString();
+            timeTexts[seconds] = text;
+        }
+        return text;
+    }
+
+
+    /**
+     * Appends {@code seconds} to {@code text} as minutes and seconds, mm:ss.
+     *
+     * @param text
+     *        to which time is appended
+     *
+     * @param seconds
+     *        which are appended
+     *
+     * @return {@code text}
+     */
+    private static StringBuilder appendTime(StringBuilder text, int seconds) {
+        int minutes = seconds / 60;
+        int rest = seconds % 60;
+        if(minutes < 10) {
+            text.append('0');
+        }
+        text.append(minutes).append(':');
+        if(rest < 10) {
+            text.append('0');
+        }
+        return text.append(rest);
     }
 
 
@@ -0,0 +1,235 @@
+package protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Reads payload of a single frame of binary protocol, see {@link Opcodes}.<br>
+ *
+ * Reader is a view over a region of a buffer owned by a connection, it is {@link #reset(ByteBuffer, int, int) reset}
+ * for every frame, so reading numbers does not allocate. Reader is not thread safe.<br>
+ *
+ * A varint which does not fit in a {@code long}, whether it has more than {@value #MAX_VARINT_SIZE} bytes or
+ * its last byte holds more than one bit, is malformed.
+ *
+ * @author Ivica Duspara
+ * @version 1.1
+ */
+public final class BinaryFrameReader {
+
+    /**
+     * Longest varint, in bytes.
+     */
+    private static final int MAX_VARINT_SIZE = 10;
+
+    /**
+     * Shift of the last byte of the longest varint, which may only hold the highest bit of a {@code long}.
+     */
+    private static final int LAST_SHIFT = 7 * (MAX_VARINT_SIZE - 1);
+
+    /**
+     * Buffer which holds a payload.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Index of next byte.
+     */
+    private int position;
+
+    /**
+     * Index after the last byte of a payload.
+     */
+    private int limit;
+
+
+    /**
+     * Makes this reader read {@code length} bytes of {@code buffer} starting at {@code offset}.
+     * Position of {@code buffer} is not changed.
+     *
+     * @param buffer
+     *        which holds a payload
+     *
+     * @param offset
+     *        of a payload
+     *
+     * @param length
+     *        of a payload
+     */
+    public void reset(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+
+    /**
+     * Returns number of unread bytes of a payload.
+     *
+     * @return
+     *        number of unread bytes of a payload
+     */
+    public int remaining() {
+        return limit - position;
+    }
+
+
+    /**
+     * Reads a single unsigned byte.
+     *
+     * @return
+     *        byte which is read
+     *
+     * @throws IOException
+     *         if payload has no more bytes
+     */
+    public int readByte() throws IOException {
+        if(position >= limit) {
+            throw new IOException("Truncated frame.");
+        }
+        return buffer.get(position++) & 0xFF;
+    }
+
+
+    /**
+     * Reads an unsigned LEB128 varint.
+     *
+     * @return
+     *        value which is read
+     *
+     * @throws IOException
+     *         if varint is truncated or does not fit in a {@code long}
+     */
+    public long readVarint() throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 7 * MAX_VARINT_SIZE; shift += 7) {
+            int b = readByte();
+            if(shift == LAST_SHIFT && (b & 0x7E) != 0) {
+                throw new IOException("Malformed varint.");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+
+    /**
+     * Reads a varint length followed by that many UTF-8 bytes.
+     *
+     * @return
+     *        string which is read
+     *
+     * @throws IOException
+     *         if string is truncated or its length is malformed
+     */
+    public String readString() throws IOException {
+        long length = readVarint();
+        if(length < 0 || length > remaining()) {
+            throw new IOException("Truncated frame.");
+        }
+        byte[] bytes = new byte[(int) length];
+        for(int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(position++);
+        }
+        return new String(bytes, Charset.forName("UTF-8"));
+    }
+
+
+    /**
+     * Returns number of bytes of a varint which starts at {@code index} of {@code buffer},
+     * or 0 if varint is not complete before {@code limit}.
+     *
+     * @param buffer
+     *        which holds a varint
+     *
+     * @param index
+     *        at which varint starts
+     *
+     * @param limit
+     *        index after the last available byte
+     *
+     * @return
+     *        number of bytes of a varint, or 0 if it is not complete
+     *
+     * @throws IOException
+     *         if varint does not fit in a {@code long}
+     */
+    public static int varintLength(ByteBuffer buffer, int index, int limit) throws IOException {
+        for(int i = 0; i < MAX_VARINT_SIZE; i++) {
+            if(index + i >= limit) {
+                return 0;
+            }
+            int b = buffer.get(index + i);
+            if(i == MAX_VARINT_SIZE - 1 && (b & 0x7E) != 0) {
+                throw new IOException("Malformed varint.");
+            }
+            if((b & 0x80) == 0) {
+                return i + 1;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+
+    /**
+     * Reads an unsigned LEB128 varint from {@code input}.
+     *
+     * @param input
+     *        from which varint is read
+     *
+     * @return
+     *        value which is read
+     *
+     * @throws IOException
+     *         if stream ends or varint does not fit in a {@code long}
+     */
+    public static long readVarint(InputStream input) throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 7 * MAX_VARINT_SIZE; shift += 7) {
+            int b = input.read();
+            if(b < 0) {
+                throw new EOFException("Truncated frame.");
+            }
+            if(shift == LAST_SHIFT && (b & 0x7E) != 0) {
+                throw new IOException("Malformed varint.");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+
+    /**
+     * Decodes a complete varint which starts at {@code index} of {@code buffer}, whose length was checked by
+     * {@link #varintLength(ByteBuffer, int, int)}.
+     *
+     * @param buffer
+     *        which holds a varint
+     *
+     * @param index
+     *        at which varint starts
+     *
+     * @return
+     *        decoded value
+     */
+    public static long varintAt(ByteBuffer buffer, int index) {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get(index++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,221 @@
+package protocol;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes a single frame of binary protocol, see {@link Opcodes}.<br>
+ *
+ * Writer owns a growable buffer which is reused for every frame, so encoding does not allocate
+ * except for the final copy returned by {@link #finish()}. Strings are encoded to UTF-8 directly into the buffer.
+ * Writer is not thread safe.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public final class BinaryFrameWriter {
+
+    /**
+     * Space reserved in front of a payload for opcode and payload length.
+     */
+    private static final int HEADER_RESERVE = 6;
+
+    /**
+     * Initial size of a buffer.
+     */
+    private static final int INITIAL_CAPACITY = 4096;
+
+    /**
+     * Buffer of a frame.
+     */
+    private byte[] buffer;
+
+    /**
+     * Position at which next byte is written.
+     */
+    private int position;
+
+    /**
+     * Opcode of current frame.
+     */
+    private int opcode;
+
+
+    /**
+     * Constructs a new {@code BinaryFrameWriter}.
+     */
+    public BinaryFrameWriter() {
+        this.buffer = new byte[INITIAL_CAPACITY];
+    }
+
+
+    /**
+     * Starts a new frame, discarding anything written before.
+     *
+     * @param opcode
+     *        of a frame
+     */
+    public void begin(int opcode) {
+        this.opcode = opcode;
+        this.position = HEADER_RESERVE;
+    }
+
+
+    /**
+     * Writes a single byte.
+     *
+     * @param value
+     *        whose lowest 8 bits are written
+     */
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+
+    /**
+     * Writes {@code value} as unsigned LEB128 varint.
+     *
+     * @param value
+     *        which is written
+     */
+    public void writeVarint(long value) {
+        ensureCapacity(10);
+        while((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+
+    /**
+     * Writes {@code value} as a varint length followed by UTF-8 bytes. {@code null} is written as an empty string.
+     *
+     * @param value
+     *        which is written
+     */
+    public void writeString(String value) {
+        if(value == null) {
+            writeVarint(0);
+            return;
+        }
+        int length = utf8Length(value);
+        writeVarint(length);
+        ensureCapacity(length);
+        byte[] b = buffer;
+        int p = position;
+        for(int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if(c < 0x80) {
+                b[p++] = (byte) c;
+            }
+            else if(c < 0x800) {
+                b[p++] = (byte) (0xC0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if(Character.isSurrogate(c)) {
+                if(Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    b[p++] = (byte) (0xF0 | (codePoint >> 18));
+                    b[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    b[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    b[p++] = (byte) (0x80 | (codePoint & 0x3F));
+                }
+                else {
+                    b[p++] = '?';
+                }
+            }
+            else {
+                b[p++] = (byte) (0xE0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        position = p;
+    }
+
+
+    /**
+     * Completes current frame and returns it as a read-only buffer.
+     *
+     * @return
+     *        complete frame
+     */
+    public ByteBuffer finish() {
+        int payloadLength = position - HEADER_RESERVE;
+        int start = HEADER_RESERVE - 1 - varintSize(payloadLength);
+        buffer[start] = (byte) opcode;
+        int p = start + 1;
+        long value = payloadLength;
+        while((value & ~0x7FL) != 0) {
+            buffer[p++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[p] = (byte) value;
+        return ByteBuffer.wrap(Arrays.copyOfRange(buffer, start, position)).asReadOnlyBuffer();
+    }
+
+
+    /**
+     * Returns number of bytes needed for {@code value} encoded as varint.
+     *
+     * @param value
+     *        which is encoded
+     *
+     * @return
+     *        number of bytes needed for {@code value}
+     */
+    public static int varintSize(long value) {
+        return Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 6) / 7);
+    }
+
+
+    /**
+     * Returns number of UTF-8 bytes of {@code value}. Unpaired surrogates are counted as {@code '?'}.
+     *
+     * @param value
+     *        which is measured
+     *
+     * @return
+     *        number of UTF-8 bytes of {@code value}
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for(int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if(c < 0x80) {
+                length++;
+            }
+            else if(c < 0x800) {
+                length += 2;
+            }
+            else if(Character.isSurrogate(c)) {
+                if(Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                }
+                else {
+                    length++;
+                }
+            }
+            else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+
+    /**
+     * Makes sure at least {@code extra} more bytes fit into buffer.
+     *
+     * @param extra
+     *        number of bytes which will be written
+     */
+    private void ensureCapacity(int extra) {
+        if(position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package protocol;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses binary frames sent to a single client into one continuous raw deflate stream.<br>
+ *
+ * Payload of every compressed frame is flushed with {@link Deflater#SYNC_FLUSH}, so a client can inflate it as soon
+ * as it arrives, while the dictionary is kept across frames. File names of a library share long prefixes,
+ * so later lists compress far better than the first one. Compressed frame has {@link Opcodes#FLAG_COMPRESSED}
+ * set in its opcode. Frames with payload shorter than a threshold are sent as they are and do not touch
+ * the stream.<br>
+ *
+ * If compressed frames have to be dropped, compressor is {@link #restart() restarted} and the next compressed
+ * frame also carries {@link Opcodes#FLAG_STREAM_RESET}, telling a client to start a new inflater.<br>
+ *
+ * Frames must be compressed in the order they are sent, callers serialize calls by holding the monitor
+ * of a compressor.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public final class FrameCompressor {
+
+    /**
+     * Default length of the shortest payload which is compressed.
+     */
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    /**
+     * Deflater whose state is kept across frames.
+     */
+    private Deflater deflater;
+
+    /**
+     * Length of the shortest payload which is compressed.
+     */
+    private int threshold;
+
+    /**
+     * Reused copy of a payload which is compressed.
+     */
+    private byte[] input;
+
+    /**
+     * Reused output of a deflater.
+     */
+    private byte[] output;
+
+    /**
+     * Set when the next compressed frame starts a new stream.
+     */
+    private boolean reset;
+
+    /**
+     * Indicates whether native resources were released.
+     */
+    private boolean ended;
+
+
+    /**
+     * Constructs a new {@code FrameCompressor}.
+     *
+     * @param level
+     *        compression level, see {@link Deflater}
+     *
+     * @param threshold
+     *        length of the shortest payload which is compressed
+     */
+    public FrameCompressor(int level, int threshold) {
+        this.deflater = new Deflater(level, true);
+        this.threshold = threshold;
+        this.input = new byte[1024];
+        this.output = new byte[1024];
+    }
+
+
+    /**
+     * Returns {@code frame} compressed, or {@code frame} itself if its payload is too short.
+     *
+     * @param frame
+     *        complete binary frame, from its position to its limit
+     *
+     * @return
+     *        frame which is sent
+     */
+    public synchronized ByteBuffer compress(ByteBuffer frame) {
+        int start = frame.position();
+        int payloadStart = start + 1;
+        while((frame.get(payloadStart++) & 0x80) != 0) {
+        }
+        int length = frame.limit() - payloadStart;
+        if(ended || length < threshold) {
+            return frame;
+        }
+        if(input.length < length) {
+            input = new byte[Math.max(length, input.length * 2)];
+        }
+        for(int i = 0; i < length; i++) {
+            input[i] = frame.get(payloadStart + i);
+        }
+        deflater.setInput(input, 0, length);
+        int compressed = 0;
+        while(true) {
+            compressed += deflater.deflate(output, compressed, output.length - compressed, Deflater.SYNC_FLUSH);
+            if(compressed < output.length) {
+                break;
+            }
+            output = Arrays.copyOf(output, output.length * 2);
+        }
+        int opcode = (frame.get(start) & 0xFF) | Opcodes.FLAG_COMPRESSED;
+        if(reset) {
+            opcode |= Opcodes.FLAG_STREAM_RESET;
+            reset = false;
+        }
+        byte[] bytes = new byte[1 + BinaryFrameWriter.varintSize(compressed) + compressed];
+        int position = 0;
+        bytes[position++] = (byte) opcode;
+        long value = compressed;
+        while((value & ~0x7FL) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        System.arraycopy(output, 0, bytes, position, compressed);
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+
+    /**
+     * Starts a new stream. Called when frames already compressed will never reach a client.
+     */
+    public synchronized void restart() {
+        if(!ended) {
+            deflater.reset();
+            reset = true;
+        }
+    }
+
+
+    /**
+     * Releases native resources of a deflater. Afterwards frames are returned uncompressed.
+     */
+    public synchronized void end() {
+        if(!ended) {
+            ended = true;
+            deflater.end();
+        }
+    }
+}
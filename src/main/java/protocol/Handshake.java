@@ -0,0 +1,104 @@
+package protocol;
+
+/**
+ * Options which a client requests in the first line of a handshake.<br>
+ *
+ * First line starts with a code, legacy clients send nothing else and are served with {@link WireFormat#TEXT}.
+ * Newer clients may append space separated options:
+ * <ul>
+ *     <li>{@value #BINARY_OPTION} - use {@link WireFormat#BINARY} framing, server confirms it
+ *     with {@link Opcodes#SERVER_HELLO}</li>
+ *     <li>{@value #DEFLATE_OPTION} - compress large frames, see {@link FrameCompressor}. Only honoured together with
+ *     {@value #BINARY_OPTION}, since text protocol has no framing</li>
+ * </ul>
+ * Unknown options are ignored, so a client may always ask for more than a server supports.
+ *
+ * @author Ivica Duspara
+ * @version 1.1
+ */
+public final class Handshake {
+
+    /**
+     * Option which requests binary protocol.
+     */
+    public static final String BINARY_OPTION = "BINARY";
+
+    /**
+     * Option which requests compression of large frames.
+     */
+    public static final String DEFLATE_OPTION = "DEFLATE";
+
+    /**
+     * Requested framing.
+     */
+    private final WireFormat format;
+
+    /**
+     * Indicates whether compression is requested.
+     */
+    private final boolean compressed;
+
+
+    /**
+     * Constructs a new {@code Handshake}.
+     *
+     * @param format
+     *        requested framing
+     *
+     * @param compressed
+     *        {@code true} if compression is requested
+     */
+    private Handshake(WireFormat format, boolean compressed) {
+        this.format = format;
+        this.compressed = compressed;
+    }
+
+
+    /**
+     * Parses the first line of a handshake.
+     *
+     * @param line
+     *        first line sent by a client, may be {@code null}
+     *
+     * @return
+     *        requested options
+     */
+    public static Handshake parse(String line) {
+        WireFormat format = WireFormat.TEXT;
+        boolean compressed = false;
+        if(line != null) {
+            String[] tokens = line.trim().split("\\s+");
+            for(int i = 1; i < tokens.length; i++) {
+                if(tokens[i].equalsIgnoreCase(BINARY_OPTION)) {
+                    format = WireFormat.BINARY;
+                }
+                else if(tokens[i].equalsIgnoreCase(DEFLATE_OPTION)) {
+                    compressed = true;
+                }
+            }
+        }
+        return new Handshake(format, compressed && format == WireFormat.BINARY);
+    }
+
+
+    /**
+     * Returns requested framing.
+     *
+     * @return
+     *        requested framing
+     */
+    public WireFormat getFormat() {
+        return format;
+    }
+
+
+    /**
+     * Returns {@code true} if client uses binary protocol and asked for compression.
+     *
+     * @return
+     *        {@code true} if frames sent to a client are compressed
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+}
@@ -0,0 +1,123 @@
+package protocol;
+
+/**
+ * Opcodes of binary protocol v2.<br>
+ *
+ * Protocol is negotiated in a handshake, see {@link Handshake}. Afterwards every message in both directions is a frame:
+ * <pre>
+ * opcode (1 byte) | payload length (varint) | payload
+ * </pre>
+ * Varints are unsigned LEB128, strings are a varint length followed by UTF-8 bytes. Songs are referenced by their
+ * stable numeric {@link song.MP3Song#getId() identifier}, names are sent only in a catalog ({@link #SERVER_SONG_LIST}
+ * and {@link #SERVER_SONG_DELTA}). Identifiers survive restarts of a server, so a client may keep its catalog.<br>
+ *
+ * Payloads of server frames:
+ * <ul>
+ *     <li>{@link #SERVER_HELLO} - protocol version, flags ({@link #HELLO_DEFLATE})</li>
+ *     <li>{@link #SERVER_SONG_LIST} - count, then id and name of every song</li>
+ *     <li>{@link #SERVER_QUEUE_LIST} - count, then song id and UUID of every queued song</li>
+ *     <li>{@link #SERVER_NOW_PLAYING} - song id (0 if nothing is playing), UUID of a client who queued it</li>
+ *     <li>{@link #SERVER_MOVE_UP} - empty</li>
+ *     <li>{@link #SERVER_ENQUEUED} - song id, UUID, position in a queue</li>
+ *     <li>{@link #SERVER_QUEUE_INSERT} - song id, UUID, position at which a song is inserted into a queue,
+ *     sent instead of {@link #SERVER_ENQUEUED} in fair queue mode</li>
+ *     <li>{@link #SERVER_SONG_DELTA} - epoch, version, flags ({@link #DELTA_FULL}), base version,
+ *     count and id and name of every added song, count and id of every removed song</li>
+ * </ul>
+ * Payloads of client frames:
+ * <ul>
+ *     <li>{@link #CLIENT_QUEUE} - song id</li>
+ *     <li>{@link #CLIENT_SONGS_REQUEST}, {@link #CLIENT_QUEUE_REQUEST}, {@link #CLIENT_NOW_PLAYING_REQUEST} - empty</li>
+ *     <li>{@link #CLIENT_SONGS_SINCE} - epoch, version</li>
+ * </ul>
+ * Opcodes are below {@code 0x20}, so a client can tell a binary frame from a legacy text line by its first byte.
+ * Upper bits of a server opcode are flags, see {@link #FLAG_COMPRESSED} and {@link #FLAG_STREAM_RESET}.
+ *
+ * @author Ivica Duspara
+ * @version 1.2
+ */
+public final class Opcodes {
+
+    /**
+     * Version of binary protocol.
+     */
+    public static final int PROTOCOL_VERSION = 2;
+
+    public static final int SERVER_HELLO = 0x01;
+
+    public static final int SERVER_SONG_LIST = 0x02;
+
+    public static final int SERVER_QUEUE_LIST = 0x03;
+
+    public static final int SERVER_NOW_PLAYING = 0x04;
+
+    public static final int SERVER_MOVE_UP = 0x05;
+
+    public static final int SERVER_ENQUEUED = 0x06;
+
+    public static final int SERVER_SONG_DELTA = 0x07;
+
+    public static final int SERVER_QUEUE_INSERT = 0x08;
+
+    public static final int CLIENT_QUEUE = 0x10;
+
+    public static final int CLIENT_SONGS_REQUEST = 0x11;
+
+    public static final int CLIENT_QUEUE_REQUEST = 0x12;
+
+    public static final int CLIENT_NOW_PLAYING_REQUEST = 0x13;
+
+    public static final int CLIENT_SONGS_SINCE = 0x14;
+
+    /**
+     * Flag of {@link #SERVER_SONG_DELTA} which tells client to discard its catalog.
+     */
+    public static final int DELTA_FULL = 0x01;
+
+    /**
+     * Flag of {@link #SERVER_HELLO} which confirms that frames may be compressed.
+     */
+    public static final int HELLO_DEFLATE = 0x01;
+
+    /**
+     * Flag of an opcode which marks a payload compressed with {@link FrameCompressor}.
+     */
+    public static final int FLAG_COMPRESSED = 0x80;
+
+    /**
+     * Flag of a compressed opcode which tells client to inflate the payload with a new inflater.
+     */
+    public static final int FLAG_STREAM_RESET = 0x40;
+
+    /**
+     * Keys of {@link model.Codes} indexed by opcode of a client frame.
+     */
+    private static final String[] CLIENT_CODES = new String[256];
+
+    static {
+        CLIENT_CODES[CLIENT_QUEUE] = "CLIENT_QUEUE";
+        CLIENT_CODES[CLIENT_SONGS_REQUEST] = "CLIENT_SONGS_REQUEST";
+        CLIENT_CODES[CLIENT_QUEUE_REQUEST] = "CLIENT_QUEUE_REQUEST";
+        CLIENT_CODES[CLIENT_NOW_PLAYING_REQUEST] = "CLIENT_NOW_PLAYING_REQUEST";
+        CLIENT_CODES[CLIENT_SONGS_SINCE] = "CLIENT_SONGS_SINCE";
+    }
+
+
+    private Opcodes() {
+    }
+
+
+    /**
+     * Returns key of {@link model.Codes} described by {@code opcode} of a client frame,
+     * or {@code null} if there is no such code.
+     *
+     * @param opcode
+     *        of a client frame
+     *
+     * @return
+     *        key of {@link model.Codes} described by {@code opcode}
+     */
+    public static String clientCode(int opcode) {
+        return CLIENT_CODES[opcode & 0xFF];
+    }
+}
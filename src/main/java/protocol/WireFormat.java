@@ -0,0 +1,25 @@
+package protocol;
+
+/**
+ * Describes how messages are framed on a connection with a client.<br>
+ *
+ * <ul>
+ *     <li>{@link #TEXT} - legacy protocol, every value is a line and a message ends with {@code SERVER_BROADCAST_ENDED}</li>
+ *     <li>{@link #BINARY} - protocol v2, see {@link Opcodes}</li>
+ * </ul>
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public enum WireFormat {
+
+    /**
+     * Newline delimited text.
+     */
+    TEXT,
+
+    /**
+     * Length prefixed binary frames.
+     */
+    BINARY
+}
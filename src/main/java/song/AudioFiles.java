@@ -0,0 +1,144 @@
+package song;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Recognizes audio files which can be loaded as {@link MP3Song songs}.<br>
+ *
+ * A file is recognized by its extension first, which costs nothing, and then by the first
+ * {@value #SIGNATURE_LENGTH} bytes of its content:
+ * <ul>
+ *     <li>MP3 - {@code ID3} tag or an MPEG frame sync</li>
+ *     <li>WAV - {@code RIFF} chunk of type {@code WAVE}</li>
+ *     <li>AIFF - {@code FORM} chunk of type {@code AIFF} or {@code AIFC}</li>
+ *     <li>M4A - {@code ftyp} box</li>
+ * </ul>
+ * So a renamed text file is skipped without ever reaching {@link javafx.scene.media.Media Media}.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public final class AudioFiles {
+
+    /**
+     * Number of bytes which are read to recognize a file.
+     */
+    public static final int SIGNATURE_LENGTH = 12;
+
+    /**
+     * Extensions of files which are recognized, in lower case.
+     */
+    private static final Set<String> EXTENSIONS = Set.of("mp3", "wav", "aif", "aiff", "m4a");
+
+
+    private AudioFiles() {
+    }
+
+
+    /**
+     * Returns {@code true} if name of {@code path} ends with an extension of a recognized audio file.
+     *
+     * @param path
+     *        of a file
+     *
+     * @return
+     *        {@code true} if {@code path} has an audio extension
+     */
+    public static boolean hasAudioExtension(Path path) {
+        Path fileName = path.getFileName();
+        if(fileName == null) {
+            return false;
+        }
+        String name = fileName.toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+
+    /**
+     * Returns {@code true} if content of {@code path} starts with a signature of a recognized audio file.
+     *
+     * @param path
+     *        of a file
+     *
+     * @return
+     *        {@code true} if {@code path} holds audio
+     *
+     * @throws IOException
+     *         if file can not be read, for example because it is a directory
+     */
+    public static boolean hasAudioSignature(Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SIGNATURE_LENGTH);
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while(header.hasRemaining() && channel.read(header) >= 0) {
+            }
+        }
+        header.flip();
+        return isSignature(header);
+    }
+
+
+    /**
+     * Returns {@code true} if {@code path} has an audio extension and audio content.
+     * Files which can not be read are not audio files.
+     *
+     * @param path
+     *        of a file
+     *
+     * @return
+     *        {@code true} if {@code path} is an audio file
+     */
+    public static boolean isAudioFile(Path path) {
+        try {
+            return hasAudioExtension(path) && hasAudioSignature(path);
+        }catch(IOException ex) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Checks whether {@code header} starts with a recognized signature.
+     *
+     * @param header
+     *        first bytes of a file
+     *
+     * @return
+     *        {@code true} if {@code header} is a signature of an audio file
+     */
+    private static boolean isSignature(ByteBuffer header) {
+        int length = header.remaining();
+        if(length >= 3 && header.get(0) == 'I' && header.get(1) == 'D' && header.get(2) == '3') {
+            return true;
+        }
+        if(length >= 2 && (header.get(0) & 0xFF) == 0xFF && (header.get(1) & 0xE0) == 0xE0) {
+            return true;
+        }
+        if(length < SIGNATURE_LENGTH) {
+            return false;
+        }
+        if(matches(header, 0, "RIFF")) {
+            return matches(header, 8, "WAVE");
+        }
+        if(matches(header, 0, "FORM")) {
+            return matches(header, 8, "AIFF") || matches(header, 8, "AIFC");
+        }
+        return matches(header, 4, "ftyp");
+    }
+
+
+    private static boolean matches(ByteBuffer header, int offset, String tag) {
+        for(int i = 0; i < tag.length(); i++) {
+            if(header.get(offset + i) != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,474 @@
+package song;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads ID3 tags of an MP3 file without {@link javafx.scene.media.Media}.<br>
+ *
+ * Supported are text frames of ID3v2.3 and ID3v2.4 tags at the start of a file, and an ID3v1 tag in its last
+ * {@value #V1_LENGTH} bytes, which fills whatever ID3v2 tag is missing. Only headers of frames are read to walk
+ * a tag, and only payloads of frames which are needed are read, so pictures and other large frames cost nothing.
+ * All reads are positional reads of a {@link FileChannel}.<br>
+ *
+ * Frames which are compressed or encrypted are skipped. A file which has no tag, or whose tag is broken,
+ * gets whatever could be read before the damage.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public final class ID3Reader {
+
+    /**
+     * Length of an ID3v2 tag header and of an ID3v2.3/v2.4 frame header.
+     */
+    private static final int HEADER_LENGTH = 10;
+
+    /**
+     * Length of an ID3v1 tag.
+     */
+    public static final int V1_LENGTH = 128;
+
+    /**
+     * Longest text frame which is read, longer ones are skipped.
+     */
+    private static final int MAX_TEXT_FRAME = 4096;
+
+    /**
+     * Longest unsynchronised ID3v2.3 tag which is read, such tag has to be read as a whole.
+     */
+    private static final int MAX_UNSYNCHRONISED_TAG = 1 << 20;
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    /**
+     * ID3v1 genres, ID3v2 tags refer to them by number.
+     */
+    private static final String[] GENRES = {
+            "Blues", "Classic Rock", "Country", "Dance", "Disco", "Funk", "Grunge", "Hip-Hop", "Jazz", "Metal",
+            "New Age", "Oldies", "Other", "Pop", "R&B", "Rap", "Reggae", "Rock", "Techno", "Industrial",
+            "Alternative", "Ska", "Death Metal", "Pranks", "Soundtrack", "Euro-Techno", "Ambient", "Trip-Hop",
+            "Vocal", "Jazz+Funk", "Fusion", "Trance", "Classical", "Instrumental", "Acid", "House", "Game",
+            "Sound Clip", "Gospel", "Noise", "AlternRock", "Bass", "Soul", "Punk", "Space", "Meditative",
+            "Instrumental Pop", "Instrumental Rock", "Ethnic", "Gothic", "Darkwave", "Techno-Industrial",
+            "Electronic", "Pop-Folk", "Eurodance", "Dream", "Southern Rock", "Comedy", "Cult", "Gangsta", "Top 40",
+            "Christian Rap", "Pop/Funk", "Jungle", "Native American", "Cabaret", "New Wave", "Psychadelic", "Rave",
+            "Showtunes", "Trailer", "Lo-Fi", "Tribal", "Acid Punk", "Acid Jazz", "Polka", "Retro", "Musical",
+            "Rock & Roll", "Hard Rock"
+    };
+
+
+    private ID3Reader() {
+    }
+
+
+    /**
+     * Reads tags of a file at {@code path}. If a file can not be read {@link SongTags#EMPTY} is returned.
+     *
+     * @param path
+     *        of a file
+     *
+     * @return
+     *        tags of a file
+     */
+    public static SongTags read(Path path) {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            SongTags tags = readV2(channel);
+            if(!tags.isComplete()) {
+                tags = tags.orElse(readV1(channel));
+            }
+            return tags;
+        }catch(IOException ex) {
+            return SongTags.EMPTY;
+        }
+    }
+
+
+    /**
+     * Reads an ID3v2.3 or ID3v2.4 tag at the start of {@code channel}.
+     *
+     * @param channel
+     *        of a file
+     *
+     * @return
+     *        tags which were found
+     *
+     * @throws IOException
+     *         if an error occurs while reading
+     */
+    private static SongTags readV2(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        if(readFully(channel, header, 0) < HEADER_LENGTH
+                || header.get(0) != 'I' || header.get(1) != 'D' || header.get(2) != '3') {
+            return SongTags.EMPTY;
+        }
+        int version = header.get(3);
+        if(version != 3 && version != 4) {
+            return SongTags.EMPTY;
+        }
+        int flags = header.get(5) & 0xFF;
+        int size = syncsafe(header, 6);
+        if(size < 0) {
+            return SongTags.EMPTY;
+        }
+        Frames frames;
+        if(version == 3 && (flags & 0x80) != 0) {
+            if(size > MAX_UNSYNCHRONISED_TAG) {
+                return SongTags.EMPTY;
+            }
+            ByteBuffer tag = ByteBuffer.allocate(size);
+            readFully(channel, tag, HEADER_LENGTH);
+            tag.flip();
+            ByteBuffer synchronised = resynchronise(tag);
+            frames = new Frames(synchronised, 0, synchronised.limit());
+        }
+        else {
+            frames = new Frames(channel, HEADER_LENGTH, Math.min(HEADER_LENGTH + (long) size, channel.size()));
+        }
+        if((flags & 0x40) != 0) {
+            frames.skipExtendedHeader(version);
+        }
+        return frames.parse(version);
+    }
+
+
+    /**
+     * Reads an ID3v1 tag at the end of {@code channel}.
+     *
+     * @param channel
+     *        of a file
+     *
+     * @return
+     *        tags which were found
+     *
+     * @throws IOException
+     *         if an error occurs while reading
+     */
+    private static SongTags readV1(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if(size < V1_LENGTH) {
+            return SongTags.EMPTY;
+        }
+        ByteBuffer tag = ByteBuffer.allocate(V1_LENGTH);
+        if(readFully(channel, tag, size - V1_LENGTH) < V1_LENGTH
+                || tag.get(0) != 'T' || tag.get(1) != 'A' || tag.get(2) != 'G') {
+            return SongTags.EMPTY;
+        }
+        int genre = tag.get(127) & 0xFF;
+        return new SongTags(v1Field(tag, 3, 30), v1Field(tag, 33, 30), v1Field(tag, 63, 30), v1Field(tag, 93, 4),
+                genre < GENRES.length ? GENRES[genre] : null);
+    }
+
+
+    private static String v1Field(ByteBuffer tag, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for(int i = 0; i < length; i++) {
+            bytes[i] = tag.get(offset + i);
+        }
+        return clean(new String(bytes, ISO_8859_1));
+    }
+
+
+    /**
+     * Decodes payload of a text frame: an encoding byte followed by text. Only the first of several
+     * values is returned.
+     *
+     * @param payload
+     *        of a text frame
+     *
+     * @return
+     *        text of a frame or {@code null} if it is empty
+     */
+    static String decodeText(ByteBuffer payload) {
+        if(!payload.hasRemaining()) {
+            return null;
+        }
+        int encoding = payload.get();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        Charset charset;
+        switch(encoding) {
+            case 1:
+                charset = Charset.forName("UTF-16");
+                break;
+            case 2:
+                charset = Charset.forName("UTF-16BE");
+                break;
+            case 3:
+                charset = Charset.forName("UTF-8");
+                break;
+            default:
+                charset = ISO_8859_1;
+        }
+        return clean(new String(bytes, charset));
+    }
+
+
+    /**
+     * Returns genre described by an ID3v2 genre frame, which may refer to an ID3v1 genre by number,
+     * as in {@code 17} or {@code (17)Rock}.
+     *
+     * @param text
+     *        of a genre frame
+     *
+     * @return
+     *        name of a genre
+     */
+    static String genre(String text) {
+        if(text == null) {
+            return null;
+        }
+        String number = text;
+        if(text.startsWith("(") && text.indexOf(')') > 0) {
+            String refined = clean(text.substring(text.indexOf(')') + 1));
+            if(refined != null) {
+                return refined;
+            }
+            number = text.substring(1, text.indexOf(')'));
+        }
+        if(number.equals("RX")) {
+            return "Remix";
+        }
+        if(number.equals("CR")) {
+            return "Cover";
+        }
+        try {
+            int index = Integer.parseInt(number);
+            return index >= 0 && index < GENRES.length ? GENRES[index] : text;
+        }catch(NumberFormatException ex) {
+            return text;
+        }
+    }
+
+
+    /**
+     * Cuts {@code text} at the first null character and trims it.
+     *
+     * @param text
+     *        which is cleaned
+     *
+     * @return
+     *        cleaned text or {@code null} if nothing is left
+     */
+    private static String clean(String text) {
+        int end = text.indexOf('\0');
+        String cleaned = (end >= 0 ? text.substring(0, end) : text).trim();
+        return cleaned.isEmpty() ? null : cleaned;
+    }
+
+
+    /**
+     * Returns a 28 bit integer stored in four bytes whose highest bits are 0, or -1 if a highest bit is set.
+     */
+    private static int syncsafe(ByteBuffer buffer, int offset) {
+        int value = 0;
+        for(int i = 0; i < 4; i++) {
+            int b = buffer.get(offset + i) & 0xFF;
+            if((b & 0x80) != 0) {
+                return -1;
+            }
+            value = (value << 7) | b;
+        }
+        return value;
+    }
+
+
+    /**
+     * Removes a 0 byte which follows every 0xFF byte.
+     *
+     * @param data
+     *        unsynchronised bytes
+     *
+     * @return
+     *        resynchronised bytes
+     */
+    private static ByteBuffer resynchronise(ByteBuffer data) {
+        ByteBuffer result = ByteBuffer.allocate(data.remaining());
+        boolean afterFF = false;
+        while(data.hasRemaining()) {
+            byte b = data.get();
+            if(!(afterFF && b == 0)) {
+                result.put(b);
+            }
+            afterFF = (b & 0xFF) == 0xFF;
+        }
+        result.flip();
+        return result;
+    }
+
+
+    /**
+     * Reads from {@code channel} at {@code position} until {@code target} is full or a file ends.
+     *
+     * @return
+     *        number of bytes read
+     */
+    private static int readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        int total = 0;
+        while(target.hasRemaining()) {
+            int read = channel.read(target, position + total);
+            if(read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+
+    /**
+     * Frames of an ID3v2 tag, read either from a file or from a resynchronised copy of a tag.
+     *
+     * @author Ivica Duspara
+     * @version 1.0
+     */
+    private static final class Frames {
+
+        private final FileChannel channel;
+
+        private final ByteBuffer data;
+
+        /**
+         * Position of the next frame.
+         */
+        private long position;
+
+        /**
+         * Position where a tag ends.
+         */
+        private final long end;
+
+
+        private Frames(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.data = null;
+            this.position = position;
+            this.end = end;
+        }
+
+
+        private Frames(ByteBuffer data, long position, long end) {
+            this.channel = null;
+            this.data = data;
+            this.position = position;
+            this.end = Math.min(end, data.limit());
+        }
+
+
+        /**
+         * Reads {@code length} bytes at {@code at}, or fewer if a tag, or a copy of a tag, ends.
+         */
+        private ByteBuffer read(long at, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(length, end - at)));
+            if(channel != null) {
+                readFully(channel, buffer, at);
+            }
+            else {
+                buffer.limit((int) Math.max(0, Math.min(buffer.limit(), data.limit() - at)));
+                for(int i = 0; buffer.hasRemaining(); i++) {
+                    buffer.put(data.get((int) at + i));
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+
+        /**
+         * Moves past an extended header, whose size is stored differently by each version.
+         */
+        private void skipExtendedHeader(int version) throws IOException {
+            ByteBuffer size = read(position, 4);
+            if(size.remaining() < 4) {
+                position = end;
+            }
+            else if(version == 3) {
+                position += 4 + (size.getInt(0) & 0xFFFFFFFFL);
+            }
+            else {
+                int length = syncsafe(size, 0);
+                position = length < 0 ? end : position + length;
+            }
+        }
+
+
+        /**
+         * Walks frames and reads those which hold wanted tags.
+         */
+        private SongTags parse(int version) throws IOException {
+            String title = null;
+            String artist = null;
+            String album = null;
+            String year = null;
+            String genre = null;
+            while(position + HEADER_LENGTH <= end) {
+                ByteBuffer header = read(position, HEADER_LENGTH);
+                if(header.get(0) == 0) {
+                    break;
+                }
+                String id = new String(header.array(), 0, 4, ISO_8859_1);
+                long size = version == 4 ? syncsafe(header, 4) : header.getInt(4) & 0xFFFFFFFFL;
+                if(size < 0) {
+                    break;
+                }
+                long payload = position + HEADER_LENGTH;
+                position = payload + size;
+                if(size == 0 || size > MAX_TEXT_FRAME || id.charAt(0) != 'T') {
+                    continue;
+                }
+                int formatFlags = header.get(9) & 0xFF;
+                int skipped = 0;
+                boolean unsynchronised = false;
+                if(version == 3) {
+                    if((formatFlags & 0xC0) != 0) {
+                        continue;
+                    }
+                    if((formatFlags & 0x20) != 0) {
+                        skipped = 1;
+                    }
+                }
+                else {
+                    if((formatFlags & 0x0C) != 0) {
+                        continue;
+                    }
+                    skipped = ((formatFlags & 0x40) != 0 ? 1 : 0) + ((formatFlags & 0x01) != 0 ? 4 : 0);
+                    unsynchronised = (formatFlags & 0x02) != 0;
+                }
+                if(skipped >= size) {
+                    continue;
+                }
+                ByteBuffer text = read(payload + skipped, (int) size - skipped);
+                if(unsynchronised) {
+                    text = resynchronise(text);
+                }
+                switch(id) {
+                    case "TIT2":
+                        title = decodeText(text);
+                        break;
+                    case "TPE1":
+                        artist = decodeText(text);
+                        break;
+                    case "TALB":
+                        album = decodeText(text);
+                        break;
+                    case "TYER":
+                    case "TDRC":
+                        year = decodeText(text);
+                        if(year != null && year.length() > 4) {
+                            year = year.substring(0, 4);
+                        }
+                        break;
+                    case "TCON":
+                        genre = genre(decodeText(text));
+                        break;
+                    default:
+                }
+            }
+            return new SongTags(title, artist, album, year, genre);
+        }
+    }
+}
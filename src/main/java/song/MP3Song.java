@@ -4,15 +4,19 @@ package song;
 import javafx.collections.ObservableMap;
 import javafx.scene.media.Media;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Map;
 import java.util.Objects;
 
 /**
  * Represents a playable mp3 song.<br>
- * Every object of this class will have underlying {@link Media} file where song is loaded and meta data which is extracted
- * from underlying {@code Media} object.<br>
+ * {@code MP3Song} only describes a file: its path and meta data which is read from ID3 tags of a file by
+ * {@link ID3Reader} when a song is constructed, so it is known before a song is ever played. Underlying
+ * {@link Media} is not held by a song, it is taken from a {@link MediaCache} when a song is about to be played.
+ * Whatever tags lack is then {@link #extractMetaData() extracted} from that {@code Media} object.<br>
  * Meta-data will include:
  * <ul>
  *     <li>Title</li>
@@ -21,13 +25,22 @@ import java.util.Objects;
  *     <li>Genre</li>
  *     <li>Album</li>
  * </ul>
- * Two {@code MP3Song} objects are compared based on <i>extracted</i> file name.
+ * Every song has a stable numeric {@link #getId() identifier} derived from its path and content,
+ * see {@link SongIdentity}. Two {@code MP3Song} objects are equal if their identifiers are equal, so files
+ * with the same name in different folders are different songs. Songs are ordered by <i>extracted</i> file name.<br>
+ * A song also remembers size and modification time its file had when it was read, so a
+ * {@link model.LibraryIndex library index} can restore it without reading the file again.
  *
- * @version 1.0
+ * @version 1.5
  * @author Ivica Duspara
  */
 public class MP3Song implements Comparable<MP3Song>{
 
+    /**
+     * Stable numeric identifier of this song, never 0.
+     */
+    private final long id;
+
     /**
      * Extracted name
      */
@@ -43,35 +56,124 @@ public class MP3Song implements Comparable<MP3Song>{
 
     private String artist;
 
-    private Media mediaFile;
-
     private boolean metaDataSet;
 
     private Path filePath;
 
+    /**
+     * Size of a file when it was read, -1 if it is not known.
+     */
+    private final long fileSize;
+
+    /**
+     * Modification time of a file in milliseconds when it was read, -1 if it is not known.
+     */
+    private final long lastModified;
 
     /**
-     * Constructs a new {@code MP3Song}.<br>
+     * Duration in milliseconds, 0 until it is known.
+     */
+    private volatile long duration;
+
+
+    /**
+     * Constructs a new {@code MP3Song} and reads its identifier and tags from a file.<br>
      * An exception will be thrown if any of arguments are {@code null}.
      *
-     * @param mediaFile
-     *        - MP3 file which is played.
+     * @param filePath
+     *        - Path of a MP3 file which is played.
      *
      * @param fileName
      *        - Name of a MP3 file
      *
-     * @throws NullPointerException if {@code mediaFile} or {@code fileName} is {@code null}
+     * @throws NullPointerException if {@code filePath} or {@code fileName} is {@code null}
      */
-    public MP3Song(Media mediaFile, String fileName) {
-        Objects.requireNonNull(mediaFile);
+    public MP3Song(Path filePath, String fileName) {
+        Objects.requireNonNull(filePath);
         Objects.requireNonNull(fileName);
         this.fileName = fileName;
-        this.mediaFile = mediaFile;
         this.metaDataSet = false;
-        this.filePath = Paths.get(mediaFile.getSource().split(":")[1]);
+        this.filePath = filePath;
+        this.id = SongIdentity.of(filePath);
+        BasicFileAttributes attributes = readAttributes(filePath);
+        this.fileSize = attributes != null ? attributes.size() : -1;
+        this.lastModified = attributes != null ? attributes.lastModifiedTime().toMillis() : -1;
+        applyTags(ID3Reader.read(filePath));
+    }
+
+
+    /**
+     * Constructs a {@code MP3Song} from data which was stored earlier, without reading its file.
+     *
+     * @param filePath
+     *        path of a MP3 file
+     *
+     * @param fileName
+     *        name of a MP3 file
+     *
+     * @param id
+     *        identifier of a song, see {@link SongIdentity}
+     *
+     * @param fileSize
+     *        size of a file when it was read
+     *
+     * @param lastModified
+     *        modification time of a file in milliseconds when it was read
+     *
+     * @param duration
+     *        duration in milliseconds, 0 if it is not known
+     *
+     * @param tags
+     *        read from a file
+     *
+     * @throws NullPointerException if {@code filePath}, {@code fileName} or {@code tags} is {@code null}
+     */
+    public MP3Song(Path filePath, String fileName, long id, long fileSize, long lastModified, long duration,
+                   SongTags tags) {
+        this.filePath = Objects.requireNonNull(filePath);
+        this.fileName = Objects.requireNonNull(fileName);
+        this.id = id;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.duration = duration;
+        this.metaDataSet = false;
+        applyTags(tags);
+    }
+
+
+    private static BasicFileAttributes readAttributes(Path filePath) {
+        try {
+            return Files.readAttributes(filePath, BasicFileAttributes.class);
+        }catch(IOException | UnsupportedOperationException exception) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Sets meta data of this {@code Song} from {@code tags}.
+     *
+     * @param tags
+     *        read from a file
+     */
+    private void applyTags(SongTags tags) {
+        this.title = tags.getTitle();
+        this.artist = tags.getArtist();
+        this.album = tags.getAlbum();
+        this.year = tags.getYear();
+        this.genre = tags.getGenre();
+    }
 
+    /**
+     * Returns numeric identifier of this {@code Song}. Identifier is the same after every restart and is never 0.
+     *
+     * @return numeric identifier of this {@code Song}
+     */
+    public long getId() {
+        return id;
     }
 
+
     /**
      * Returns {@code fileName} of this {@code Song}.
      *
@@ -133,12 +235,64 @@ public class MP3Song implements Comparable<MP3Song>{
 
 
     /**
-     * Returns {@code mediaFile} of this {@code Song}.
+     * Returns {@code mediaFile} of this {@code Song} from a {@link MediaCache}, where it is created
+     * if it is not cached. Call this only when a song is about to be played.
      *
      * @return {@code mediaFile} of this {@code Song}
      */
     public Media getMediaFile() {
-        return mediaFile;
+        return MediaCache.getInstance().get(this);
+    }
+
+
+    /**
+     * Returns tags of this {@code Song} which are currently known.
+     *
+     * @return tags of this {@code Song}
+     */
+    public SongTags getTags() {
+        return new SongTags(title, artist, album, year, genre);
+    }
+
+
+    /**
+     * Returns size of a file when it was read, -1 if it is not known.
+     *
+     * @return size of a file
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+
+    /**
+     * Returns modification time of a file in milliseconds when it was read, -1 if it is not known.
+     *
+     * @return modification time of a file
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+
+    /**
+     * Returns duration of this {@code Song} in milliseconds, 0 if it is not known yet.
+     *
+     * @return duration in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+
+    /**
+     * Sets duration of this {@code Song} once it is known from a {@link Media}.
+     *
+     * @param duration
+     *        in milliseconds
+     */
+    public void setDuration(long duration) {
+        this.duration = duration;
     }
 
 
@@ -163,26 +317,26 @@ public class MP3Song implements Comparable<MP3Song>{
 
 
     /**
-     * Extracts meta data from {@code mediaFile} into appropriate fields of this {@code Song} object
-     * if data has not already been extracted.
+     * Extracts meta data from {@code mediaFile} into those fields of this {@code Song} object which were not
+     * found in ID3 tags, if data has not already been extracted.
      *
      */
     public void extractMetaData() {
         if(!metaDataSet) {
-            for(Map.Entry<String, Object> entry : mediaFile.getMetadata().entrySet()) {
-                if(entry.getKey().equals("year")) {
+            for(Map.Entry<String, Object> entry : getMediaFile().getMetadata().entrySet()) {
+                if(entry.getKey().equals("year") && year == null) {
                     year = entry.getValue().toString();
                 }
-                else if(entry.getKey().equals("artist")) {
+                else if(entry.getKey().equals("artist") && artist == null) {
                     artist = entry.getValue().toString();
                 }
-                else if(entry.getKey().equals("title")) {
+                else if(entry.getKey().equals("title") && title == null) {
                     title = entry.getValue().toString();
                 }
-                else if(entry.getKey().equals("genre")) {
+                else if(entry.getKey().equals("genre") && genre == null) {
                     genre = entry.getValue().toString();
                 }
-                else if(entry.getKey().equals("album")) {
+                else if(entry.getKey().equals("album") && album == null) {
                     album = entry.getValue().toString();
                 }
             }
@@ -191,7 +345,8 @@ public class MP3Song implements Comparable<MP3Song>{
     }
 
     public int compareTo(MP3Song o) {
-        return fileName.compareTo(o.fileName);
+        int result = fileName.compareTo(o.fileName);
+        return result != 0 ? result : Long.compare(id, o.id);
     }
 
     @Override
@@ -201,11 +356,16 @@ public class MP3Song implements Comparable<MP3Song>{
         }
         if(obj.getClass() == MP3Song.class) {
             MP3Song casted = (MP3Song) obj;
-            return casted.fileName.equals(this.fileName);
+            return casted.id == this.id;
         }
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
     @Override
     public String toString() {
         return fileName;
@@ -0,0 +1,112 @@
+package song;
+
+import javafx.scene.media.Media;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of {@link Media} objects of recently played songs.<br>
+ *
+ * {@link MP3Song} only describes a file, its {@code Media} is created when a song is about to be played and
+ * is kept here so that playing it again does not open a file again. Cache holds at most a
+ * {@link #getCapacity() capacity} of objects and drops the one which was used least recently when it is full,
+ * so memory taken by {@code Media} objects does not grow with the number of loaded songs. Dropped object is still
+ * used by a {@link javafx.scene.media.MediaPlayer} which plays it.<br>
+ *
+ * Capacity is {@value #DEFAULT_CAPACITY}, unless {@value #CAPACITY_PROPERTY} system property sets another one.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public class MediaCache {
+
+    /**
+     * System property used for setting capacity of a cache.
+     */
+    public static final String CAPACITY_PROPERTY = "meteor.mediaCacheSize";
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final MediaCache MEDIA_CACHE_SINGLETON =
+            new MediaCache(Math.max(1, Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY)));
+
+    private final int capacity;
+
+    /**
+     * Cached objects by path of a file, in order from least to most recently used.
+     */
+    private final LinkedHashMap<Path, Media> media;
+
+
+    private MediaCache(int capacity) {
+        this.capacity = capacity;
+        this.media = new LinkedHashMap<Path, Media>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Media> eldest) {
+                return size() > MediaCache.this.capacity;
+            }
+        };
+    }
+
+
+    /**
+     * Returns the only instance of {@code MediaCache}.
+     *
+     * @return media cache
+     */
+    public static MediaCache getInstance() {
+        return MEDIA_CACHE_SINGLETON;
+    }
+
+
+    /**
+     * Returns {@link Media} of {@code song}, which is created if it is not cached.
+     *
+     * @param song
+     *        whose media is returned
+     *
+     * @return media of {@code song}
+     */
+    public synchronized Media get(MP3Song song) {
+        Media cached = media.get(song.getFilePath());
+        if(cached == null) {
+            cached = new Media(song.getFilePath().toUri().toString());
+            media.put(song.getFilePath(), cached);
+        }
+        return cached;
+    }
+
+
+    /**
+     * Removes {@link Media} of a file at {@code path} from this cache, if it is cached.
+     *
+     * @param path
+     *        of a file
+     */
+    public synchronized void remove(Path path) {
+        media.remove(path);
+    }
+
+
+    /**
+     * Returns number of cached objects.
+     *
+     * @return number of cached objects
+     */
+    public synchronized int size() {
+        return media.size();
+    }
+
+
+    /**
+     * Returns greatest number of cached objects.
+     *
+     * @return capacity of this cache
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,82 @@
+package song;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes stable identifiers of {@link MP3Song songs}.<br>
+ *
+ * Identifier is the first 63 bits of a SHA-256 digest of a normalized absolute path, file size and up to
+ * {@value #SAMPLED_BYTES} bytes from the start of a file. Same file therefore gets the same identifier after every
+ * restart, while two files with the same name in different folders, or a file replaced by other content under
+ * the same path, get different ones. Only the start of a file is read, so computing an identifier stays cheap
+ * for large files.<br>
+ *
+ * Identifier is never 0, protocol uses 0 for "no song".
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public final class SongIdentity {
+
+    /**
+     * Number of bytes from the start of a file which are included in an identifier.
+     */
+    public static final int SAMPLED_BYTES = 64 * 1024;
+
+
+    private SongIdentity() {
+    }
+
+
+    /**
+     * Returns identifier of a song stored at {@code path}. If file can not be read only its path is used.
+     *
+     * @param path
+     *        of a song
+     *
+     * @return
+     *        positive identifier of a song
+     */
+    public static long of(Path path) {
+        MessageDigest digest = newDigest();
+        Path normalized = path.toAbsolutePath().normalize();
+        digest.update(normalized.toString().getBytes(Charset.forName("UTF-8")));
+        digest.update((byte) 0);
+        try(FileChannel channel = FileChannel.open(normalized, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+            header.putLong(channel.size()).flip();
+            digest.update(header);
+            ByteBuffer sample = ByteBuffer.allocate((int) Math.min(SAMPLED_BYTES, channel.size()));
+            while(sample.hasRemaining() && channel.read(sample) >= 0) {
+            }
+            sample.flip();
+            digest.update(sample);
+        }catch(IOException exception) {
+            System.out.println("Could not read " + normalized + ", identifying it by path only.");
+        }
+        long id = ByteBuffer.wrap(digest.digest()).getLong() & Long.MAX_VALUE;
+        return id == 0 ? 1 : id;
+    }
+
+
+    /**
+     * Returns a new SHA-256 digest.
+     *
+     * @return
+     *        a new SHA-256 digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }catch(NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available.", exception);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package song;
+
+/**
+ * Immutable tags of a song, as read by {@link ID3Reader}. Missing tags are {@code null}.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public final class SongTags {
+
+    /**
+     * Tags of a file which has none.
+     */
+    public static final SongTags EMPTY = new SongTags(null, null, null, null, null);
+
+    private final String title;
+
+    private final String artist;
+
+    private final String album;
+
+    private final String year;
+
+    private final String genre;
+
+
+    /**
+     * Constructs new {@code SongTags}.
+     *
+     * @param title
+     *        of a song
+     *
+     * @param artist
+     *        of a song
+     *
+     * @param album
+     *        of a song
+     *
+     * @param year
+     *        of release
+     *
+     * @param genre
+     *        of a song
+     */
+    public SongTags(String title, String artist, String album, String year, String genre) {
+        this.title = title;
+        this.artist = artist;
+        this.album = album;
+        this.year = year;
+        this.genre = genre;
+    }
+
+
+    /**
+     * Returns tags in which every missing tag of this object is taken from {@code other}.
+     *
+     * @param other
+     *        tags which fill missing ones
+     *
+     * @return
+     *        merged tags
+     */
+    public SongTags orElse(SongTags other) {
+        return new SongTags(title != null ? title : other.title, artist != null ? artist : other.artist,
+                album != null ? album : other.album, year != null ? year : other.year,
+                genre != null ? genre : other.genre);
+    }
+
+
+    /**
+     * Returns {@code true} if every tag is present.
+     *
+     * @return
+     *        {@code true} if no tag is missing
+     */
+    public boolean isComplete() {
+        return title != null && artist != null && album != null && year != null && genre != null;
+    }
+
+
+    public String getTitle() {
+        return title;
+    }
+
+
+    public String getArtist() {
+        return artist;
+    }
+
+
+    public String getAlbum() {
+        return album;
+    }
+
+
+    public String getYear() {
+        return year;
+    }
+
+
+    public String getGenre() {
+        return genre;
+    }
+}
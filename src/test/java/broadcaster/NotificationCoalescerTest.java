@@ -0,0 +1,208 @@
+package broadcaster;
+
+import model.CatalogDelta;
+import model.CatalogJournal;
+import model.Codes;
+import model.PlayerSnapshot;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import song.MP3Song;
+import song.SongTags;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests how {@link NotificationCoalescer} merges notifications and order in which it passes on notifications
+ * and messages sent through {@link NotificationCoalescer#runInOrder(Runnable)}.
+ *
+ * @author Ivica Duspara
+ * @version 1.1
+ */
+public class NotificationCoalescerTest {
+
+    /**
+     * Window long enough that it never closes during a test.
+     */
+    private static final long WINDOW = 60_000;
+
+    private static final String ENQUEUED = "SERVER_ENQUEUED";
+
+    private List<String> sent;
+
+    /**
+     * Snapshots which came with {@link #sent} notifications.
+     */
+    private List<PlayerSnapshot> snapshots;
+
+    private NotificationCoalescer coalescer;
+
+    private String moveUp;
+
+    private String queueList;
+
+    private String nowPlaying;
+
+    private String partialList;
+
+    private CatalogJournal journal;
+
+
+    @Before
+    public void setUp() {
+        sent = new ArrayList<>();
+        snapshots = new ArrayList<>();
+        coalescer = new NotificationCoalescer((code, snapshot) -> {
+            sent.add(code);
+            snapshots.add(snapshot);
+        }, WINDOW);
+        Codes codes = Codes.getInstance();
+        moveUp = codes.getCodeValue("SERVER_MOVE_UP");
+        queueList = codes.getCodeValue("SERVER_QUEUE_LIST");
+        nowPlaying = codes.getCodeValue("SERVER_NOW_PLAYING");
+        partialList = codes.getCodeValue("SERVER_SONG_PARTIAL_LIST");
+        journal = new CatalogJournal(1);
+    }
+
+
+    @After
+    public void tearDown() {
+        coalescer.shutdown();
+    }
+
+
+    /**
+     * A song is dequeued and another one is enqueued right after, within a single window. Position of an enqueued
+     * song is computed after a dequeue, so clients must receive {@code SERVER_MOVE_UP} first.
+     */
+    @Test
+    public void enqueueAfterDequeueFollowsMoveUp() {
+        coalescer.update(moveUp, null);
+        coalescer.runInOrder(() -> sent.add(ENQUEUED));
+
+        assertEquals(Arrays.asList(moveUp, ENQUEUED), sent);
+    }
+
+
+    /**
+     * Notifications received after an enqueue must not be passed on before it.
+     */
+    @Test
+    public void laterMoveUpFollowsEnqueue() {
+        coalescer.update(moveUp, null);
+        coalescer.runInOrder(() -> sent.add(ENQUEUED));
+        coalescer.update(moveUp, null);
+        coalescer.shutdown();
+
+        assertEquals(Arrays.asList(moveUp, ENQUEUED, moveUp), sent);
+    }
+
+
+    /**
+     * With nothing pending a message is sent at once.
+     */
+    @Test
+    public void enqueueWithoutPendingNotifications() {
+        coalescer.runInOrder(() -> sent.add(ENQUEUED));
+
+        assertEquals(Arrays.asList(ENQUEUED), sent);
+    }
+
+
+    /**
+     * Clients can not apply several {@code SERVER_MOVE_UP} of a window as one, so they receive the whole queue
+     * of the newest snapshot instead.
+     */
+    @Test
+    public void severalMoveUpsBecomeQueueList() {
+        PlayerSnapshot newest = PlayerSnapshot.EMPTY.withCatalogChange(null);
+        coalescer.update(moveUp, PlayerSnapshot.EMPTY);
+        coalescer.update(moveUp, newest);
+        coalescer.shutdown();
+
+        assertEquals(Arrays.asList(queueList), sent);
+        assertSame(newest, snapshots.get(0));
+        assertEquals(1, coalescer.getMergedCount());
+    }
+
+
+    /**
+     * Partial lists of a window become one whose change leads from the version before the first one
+     * to the version of the last one.
+     */
+    @Test
+    public void partialListsMergeTheirChanges() {
+        MP3Song first = song(1);
+        MP3Song second = song(2);
+        coalescer.update(partialList, added(first));
+        coalescer.update(partialList, added(second));
+        coalescer.shutdown();
+
+        assertEquals(Arrays.asList(partialList), sent);
+        CatalogDelta change = snapshots.get(0).getCatalogChange();
+        assertEquals(0, change.getBaseVersion());
+        assertEquals(2, change.getVersion());
+        assertEquals(Arrays.asList(first, second), change.getAdded());
+        assertEquals(Collections.emptyList(), change.getRemoved());
+    }
+
+
+    /**
+     * A song which was added and removed within a window is not sent at all, but its versions are still covered.
+     */
+    @Test
+    public void songAddedAndRemovedWithinWindowIsNotSent() {
+        MP3Song removed = song(1);
+        MP3Song kept = song(2);
+        coalescer.update(partialList, added(removed));
+        journal.recordRemoved(Collections.singletonList(removed));
+        coalescer.update(partialList, PlayerSnapshot.EMPTY.withCatalogChange(journal.latest()));
+        coalescer.update(partialList, added(kept));
+        coalescer.shutdown();
+
+        CatalogDelta change = snapshots.get(0).getCatalogChange();
+        assertEquals(3, change.getVersion());
+        assertEquals(Arrays.asList(kept), change.getAdded());
+        assertEquals(Collections.emptyList(), change.getRemoved());
+    }
+
+
+    /**
+     * Notifications of a window are passed on in order catalog, queue, currently playing song, no matter
+     * in which order they arrived.
+     */
+    @Test
+    public void mergedNotificationsFollowFixedOrder() {
+        coalescer.update(nowPlaying, PlayerSnapshot.EMPTY);
+        coalescer.update(nowPlaying, PlayerSnapshot.EMPTY);
+        coalescer.update(moveUp, PlayerSnapshot.EMPTY);
+        coalescer.update(partialList, added(song(1)));
+        coalescer.shutdown();
+
+        assertEquals(Arrays.asList(partialList, moveUp, nowPlaying), sent);
+    }
+
+
+    /**
+     * Returns a song which is not read from disk.
+     */
+    private static MP3Song song(long id) {
+        return new MP3Song(Paths.get("song" + id + ".mp3"), "song" + id + ".mp3", id, 0, 0, 0, SongTags.EMPTY);
+    }
+
+
+    /**
+     * Records that {@code song} was added and returns a snapshot which carries the change.
+     */
+    private PlayerSnapshot added(MP3Song song) {
+        journal.recordAdded(Collections.singletonList(song));
+        return PlayerSnapshot.EMPTY.withCatalogChange(journal.latest());
+    }
+}
@@ -0,0 +1,699 @@
+package model;
+
+import broadcaster.ListBroadcaster;
+import broadcaster.NotificationCoalescer;
+import song.MP3Song;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Load generator for {@link ListBroadcaster}.<br>
+ *
+ * Starts a server bound to loopback, connects simulated clients which speak text protocol of real phones and
+ * measures how long it takes for a change of {@link PlayerData} to reach every client. Nothing leaves this machine
+ * and JavaFX toolkit is not started, so the tool runs headless. It is not a unit test, run it with
+ * {@code mvn test-compile exec:java -Dexec.mainClass=model.BroadcasterLoadTest -Dexec.classpathScope=test}.<br>
+ *
+ * Every client sends {@code CLIENT_QUEUE}, {@code CLIENT_SONGS_REQUEST} and {@code CLIENT_NOW_PLAYING_REQUEST}
+ * at its own rate. Meanwhile songs are skipped and new songs are imported, so every kind of broadcast is sent.
+ * Playing only changes state of a model, no media player is created. Time of every change is taken when
+ * a model notifies its observers, latency is measured when a client reads the message which tells it about
+ * the change, separately for every kind of message:
+ * <ul>
+ *     <li>{@code SERVER_ENQUEUED} and {@code SERVER_QUEUE_INSERT} - from an enqueue of the same song by the same
+ *     client</li>
+ *     <li>{@code SERVER_NOW_PLAYING} - from the change to the same song, the first time a client learns of it</li>
+ *     <li>{@code SERVER_MOVE_UP} and {@code SERVER_QUEUE_LIST} - from the oldest skip of a queued song which
+ *     a client was not told about</li>
+ *     <li>{@code SERVER_SONG_DELTA} - from every change of a catalog up to the version in a message</li>
+ * </ul>
+ * A single change gives one sample per connected client. Report also tells how many notifications
+ * {@link NotificationCoalescer} merged.<br>
+ *
+ * Settings are system properties:
+ * <ul>
+ *     <li>{@code loadtest.clients} - number of clients, default 100</li>
+ *     <li>{@code loadtest.songs} - number of songs in a library, default 1000</li>
+ *     <li>{@code loadtest.duration} - length of a measurement in seconds, default 30</li>
+ *     <li>{@code loadtest.warmup} - seconds at start whose samples are ignored, default 3</li>
+ *     <li>{@code loadtest.queueRate} - {@code CLIENT_QUEUE} per client per second, default 0.5</li>
+ *     <li>{@code loadtest.songsRate} - {@code CLIENT_SONGS_REQUEST} per client per second, default 0.02</li>
+ *     <li>{@code loadtest.nowPlayingRate} - {@code CLIENT_NOW_PLAYING_REQUEST} per client per second, default 0.2</li>
+ *     <li>{@code loadtest.skipRate} - skipped songs per second, default 0.5</li>
+ *     <li>{@code loadtest.importRate} - imports of {@value #IMPORTED_FILES} new songs per second, default 0.2</li>
+ * </ul>
+ * Properties of {@link ListBroadcaster}, such as {@value ListBroadcaster#TRANSPORT_PROPERTY}, are passed through.
+ *
+ * @author Ivica Duspara
+ * @version 1.2
+ */
+public final class BroadcasterLoadTest {
+
+    /**
+     * Port used if {@value ListBroadcaster#PORT_PROPERTY} is not set.
+     */
+    private static final int DEFAULT_PORT = 13370;
+
+    /**
+     * Number of files added by a single import.
+     */
+    private static final int IMPORTED_FILES = 8;
+
+    /**
+     * Time of the last enqueue, keyed by UUID and song name.
+     */
+    private final Map<String, Long> enqueueTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Time of the last change of currently playing song, keyed by UUID of a client who queued it and song name.
+     */
+    private final Map<String, Long> nowPlayingTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Times of skips which removed a song from a queue, in order.
+     */
+    private final List<Long> dequeueTimes = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Time of every change of a catalog, keyed by its version.
+     */
+    private final Map<Long, Long> catalogTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Number of enqueues done by a model.
+     */
+    private final AtomicLong stateChanges = new AtomicLong();
+
+    private final AtomicLong queueRequests = new AtomicLong();
+
+    private final AtomicLong songRequests = new AtomicLong();
+
+    private final AtomicLong nowPlayingRequests = new AtomicLong();
+
+    private final AtomicLong skips = new AtomicLong();
+
+    private final AtomicLong imports = new AtomicLong();
+
+    private final int clientCount = Integer.getInteger("loadtest.clients", 100);
+
+    private final int songCount = Integer.getInteger("loadtest.songs", 1000);
+
+    private final int duration = Integer.getInteger("loadtest.duration", 30);
+
+    private final int warmup = Integer.getInteger("loadtest.warmup", 3);
+
+    private final double queueRate = Double.parseDouble(System.getProperty("loadtest.queueRate", "0.5"));
+
+    private final double songsRate = Double.parseDouble(System.getProperty("loadtest.songsRate", "0.02"));
+
+    private final double nowPlayingRate = Double.parseDouble(System.getProperty("loadtest.nowPlayingRate", "0.2"));
+
+    private final double skipRate = Double.parseDouble(System.getProperty("loadtest.skipRate", "0.5"));
+
+    private final double importRate = Double.parseDouble(System.getProperty("loadtest.importRate", "0.2"));
+
+    /**
+     * Moment after which samples are recorded.
+     */
+    private volatile long measureFrom;
+
+
+    /**
+     * Starts a load test.
+     *
+     * @param args
+     *        not used, settings are system properties
+     *
+     * @throws Exception
+     *         if server or clients could not be started
+     */
+    public static void main(String[] args) throws Exception {
+        new BroadcasterLoadTest().run();
+    }
+
+
+    /**
+     * Runs a load test and prints a report.
+     *
+     * @throws Exception
+     *         if server or clients could not be started
+     */
+    private void run() throws Exception {
+        if(System.getProperty(ListBroadcaster.BIND_ADDRESS_PROPERTY) == null) {
+            System.setProperty(ListBroadcaster.BIND_ADDRESS_PROPERTY, InetAddress.getLoopbackAddress().getHostAddress());
+        }
+        int port = Integer.getInteger(ListBroadcaster.PORT_PROPERTY, DEFAULT_PORT);
+        Path library = Files.createTempDirectory("meteor-loadtest");
+        LoadTestPlayerData playerData = new LoadTestPlayerData();
+        List<MP3Song> songs = createSongs(library);
+        playerData.load(songs);
+        Codes codes = Codes.getInstance();
+        String moveUpCode = codes.getCodeValue("SERVER_MOVE_UP");
+        String nowPlayingCode = codes.getCodeValue("SERVER_NOW_PLAYING");
+        String partialListCode = codes.getCodeValue("SERVER_SONG_PARTIAL_LIST");
+        playerData.addNetworkPlayerDataObserver((code, snapshot) -> {
+            long now = System.nanoTime();
+            if(code.equals(moveUpCode)) {
+                dequeueTimes.add(now);
+            }
+            else if(code.equals(nowPlayingCode)) {
+                MP3Song song = snapshot.getNowPlaying();
+                nowPlayingTimes.put(key(snapshot.getRemovedUUID(), song == null ? "" : song.toString()), now);
+            }
+            else if(code.equals(partialListCode)) {
+                catalogTimes.put(snapshot.getCatalogChange().getVersion(), now);
+            }
+        });
+        playerData.startBroadcast();
+
+        List<SimulatedClient> clients = new ArrayList<>();
+        for(int i = 0; i < clientCount; i++) {
+            clients.add(new SimulatedClient("loadtest-" + i, port, songs));
+        }
+        ScheduledExecutorService senders = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        Random random = new Random();
+        for(SimulatedClient client : clients) {
+            client.start();
+            schedule(senders, random, queueRate, client::sendQueue);
+            schedule(senders, random, songsRate, client::sendSongsRequest);
+            schedule(senders, random, nowPlayingRate, client::sendNowPlayingRequest);
+        }
+        schedule(senders, random, skipRate, () -> {
+            playerData.playNextSong();
+            skips.incrementAndGet();
+        });
+        schedule(senders, random, importRate, () -> importSongs(playerData, library));
+        long start = System.nanoTime();
+        measureFrom = start + TimeUnit.SECONDS.toNanos(warmup);
+        System.out.println("Connected " + clientCount + " clients, measuring for " + duration + " s after " + warmup + " s of warmup.");
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmup + duration));
+        long measured = System.nanoTime() - measureFrom;
+        long changes = stateChanges.get();
+
+        senders.shutdownNow();
+        for(SimulatedClient client : clients) {
+            client.close();
+        }
+        Map<String, LatencySamples> samples = new TreeMap<>();
+        long received = 0;
+        for(SimulatedClient client : clients) {
+            client.join();
+            for(Map.Entry<String, LatencySamples> entry : client.samples.entrySet()) {
+                samples.computeIfAbsent(entry.getKey(), opcode -> new LatencySamples()).addAll(entry.getValue());
+            }
+            received += client.messages;
+        }
+        NotificationCoalescer coalescer = playerData.getNotificationCoalescer();
+        playerData.closePlayerData();
+        report(measured, changes, received, samples);
+        System.out.println("Notifications: received=" + coalescer.getReceivedCount() + ", passed on="
+                + coalescer.getEmittedCount() + ", merged=" + coalescer.getMergedCount());
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(library)) {
+            for(Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(library);
+    }
+
+
+    /**
+     * Creates empty files which are loaded as a library.
+     *
+     * @param library
+     *        directory of files
+     *
+     * @return
+     *        songs of a library
+     *
+     * @throws IOException
+     *         if a file could not be created
+     */
+    private List<MP3Song> createSongs(Path library) throws IOException {
+        List<MP3Song> songs = new ArrayList<>(songCount);
+        for(int i = 0; i < songCount; i++) {
+            String name = String.format("Artist %03d - Album %03d - Track %05d.mp3", i % 97, i % 389, i);
+            Path file = Files.createFile(library.resolve(name));
+            songs.add(new MP3Song(file, name));
+        }
+        return songs;
+    }
+
+
+    /**
+     * Creates {@value #IMPORTED_FILES} new empty files and imports them, as a user who adds songs would.
+     *
+     * @param playerData
+     *        into which songs are imported
+     *
+     * @param library
+     *        directory of files
+     */
+    private void importSongs(PlayerData playerData, Path library) {
+        List<File> files = new ArrayList<>(IMPORTED_FILES);
+        try {
+            for(int i = 0; i < IMPORTED_FILES; i++) {
+                String name = String.format("Imported %06d.mp3", imports.get() * IMPORTED_FILES + i);
+                files.add(Files.createFile(library.resolve(name)).toFile());
+            }
+        }catch(IOException exception) {
+            System.out.println("Greška at: " + exception.getMessage());
+            return;
+        }
+        imports.incrementAndGet();
+        playerData.addSongs(files);
+    }
+
+
+    /**
+     * Runs {@code task} {@code rate} times per second, starting at a random moment so clients do not send in lockstep.
+     *
+     * @param senders
+     *        executor which runs tasks
+     *
+     * @param random
+     *        used for choosing start
+     *
+     * @param rate
+     *        number of runs per second, nothing is scheduled if it is not positive
+     *
+     * @param task
+     *        which is run
+     */
+    private void schedule(ScheduledExecutorService senders, Random random, double rate, Runnable task) {
+        if(rate <= 0) {
+            return;
+        }
+        long period = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        senders.scheduleAtFixedRate(task, (long) (random.nextDouble() * period), period, TimeUnit.NANOSECONDS);
+    }
+
+
+    /**
+     * Prints results of a test.
+     *
+     * @param measured
+     *        length of measurement in nanoseconds
+     *
+     * @param changes
+     *        number of enqueues done by a model
+     *
+     * @param received
+     *        number of complete messages read by clients
+     *
+     * @param samples
+     *        latencies from a change to receipt, by message
+     */
+    private void report(long measured, long changes, long received, Map<String, LatencySamples> samples) {
+        double seconds = measured / 1e9;
+        System.out.println("Requests sent: queue=" + queueRequests.get() + ", songs=" + songRequests.get()
+                + ", nowPlaying=" + nowPlayingRequests.get());
+        System.out.println("State changes: enqueues=" + changes + ", skips=" + skips.get() + ", imports="
+                + imports.get());
+        System.out.println("Messages received by clients: " + received);
+        if(samples.isEmpty()) {
+            System.out.println("No latency samples were recorded.");
+            return;
+        }
+        System.out.printf("%-20s %10s %10s %10s %10s %10s %10s%n", "Latency ms", "deliveries", "per s", "p50", "p99",
+                "p999", "max");
+        for(Map.Entry<String, LatencySamples> entry : samples.entrySet()) {
+            LatencySamples latencies = entry.getValue();
+            latencies.sort();
+            System.out.printf("%-20s %10d %10.1f %10.3f %10.3f %10.3f %10.3f%n", entry.getKey(), latencies.size(),
+                    latencies.size() / seconds, latencies.percentile(0.5) / 1e6, latencies.percentile(0.99) / 1e6,
+                    latencies.percentile(0.999) / 1e6, latencies.percentile(1) / 1e6);
+        }
+    }
+
+
+    /**
+     * Returns key of {@link #enqueueTimes} and {@link #nowPlayingTimes}.
+     *
+     * @param UUID
+     *        of a client which queued a song
+     *
+     * @param songName
+     *        name of a queued song
+     *
+     * @return
+     *        key of {@link #enqueueTimes} and {@link #nowPlayingTimes}
+     */
+    private static String key(String UUID, String songName) {
+        return UUID + '\n' + songName;
+    }
+
+
+    /**
+     * {@link PlayerData} which remembers time of every enqueue, changes its lists directly
+     * instead of on JavaFX application thread and plays songs without media players.
+     *
+     * @author Ivica Duspara
+     * @version 1.1
+     */
+    private class LoadTestPlayerData extends PlayerData {
+
+        @Override
+        public CompletableFuture<Integer> enqueueSong(String queuerUUID, MP3Song song, IntConsumer announcer) {
+            if(song != null) {
+                enqueueTimes.put(key(queuerUUID, song.getFileName()), System.nanoTime());
+            }
+            stateChanges.incrementAndGet();
+            return super.enqueueSong(queuerUUID, song, announcer);
+        }
+
+        @Override
+        void runOnUiThread(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        void startPlayback(MP3Song song) {
+        }
+
+        @Override
+        void prepareStandby() {
+        }
+
+        /**
+         * Loads {@code songs} without playing anything.
+         *
+         * @param songs
+         *        which are loaded
+         */
+        void load(List<MP3Song> songs) {
+            execute(() -> addLoadedSongs(songs)).join();
+        }
+    }
+
+
+    /**
+     * Phone which is connected to a server. Requests are sent by scheduled tasks, responses and broadcasts
+     * are read by a thread of this client.
+     *
+     * @author Ivica Duspara
+     * @version 1.1
+     */
+    private class SimulatedClient extends Thread {
+
+        private final String UUID;
+
+        private final Socket socket;
+
+        private final BufferedWriter writer;
+
+        private final BufferedReader reader;
+
+        private final List<MP3Song> songs;
+
+        /**
+         * Latencies measured by this client by message, only touched by its thread.
+         */
+        private final Map<String, LatencySamples> samples;
+
+        /**
+         * Time of the change of currently playing song which this client learned of last, by key of
+         * {@link #nowPlayingTimes}. Only touched by this client's thread.
+         */
+        private final Map<String, Long> nowPlayingSeen;
+
+        /**
+         * Index of the oldest skip in {@link #dequeueTimes} which this client was not told about.
+         */
+        private int nextDequeue;
+
+        /**
+         * Version of a catalog in the last {@code SERVER_SONG_DELTA}, -1 before the first one.
+         */
+        private long catalogVersion;
+
+        /**
+         * Number of complete messages read, only touched by this client's thread.
+         */
+        private long messages;
+
+
+        /**
+         * Connects a new {@code SimulatedClient} and sends a handshake.
+         *
+         * @param UUID
+         *        of a client
+         *
+         * @param port
+         *        of a server
+         *
+         * @param songs
+         *        from which queued songs are chosen
+         *
+         * @throws IOException
+         *         if client could not connect
+         */
+        SimulatedClient(String UUID, int port, List<MP3Song> songs) throws IOException {
+            super(UUID);
+            setDaemon(true);
+            this.UUID = UUID;
+            this.songs = songs;
+            this.samples = new HashMap<>();
+            this.nowPlayingSeen = new HashMap<>();
+            this.catalogVersion = -1;
+            this.socket = connect(port);
+            this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), Charset.forName("UTF-8")));
+            this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charset.forName("UTF-8")));
+            send("CLIENT_HELLO", UUID);
+        }
+
+
+        /**
+         * Connects to a server, waiting for it to start.
+         *
+         * @param port
+         *        of a server
+         *
+         * @return
+         *        connected socket
+         *
+         * @throws IOException
+         *         if server does not start in time
+         */
+        private Socket connect(int port) throws IOException {
+            InetSocketAddress address = new InetSocketAddress(System.getProperty(ListBroadcaster.BIND_ADDRESS_PROPERTY), port);
+            for(int attempt = 0; ; attempt++) {
+                Socket connection = new Socket();
+                try {
+                    connection.connect(address);
+                    return connection;
+                }catch(IOException exception) {
+                    connection.close();
+                    if(attempt == 50) {
+                        throw exception;
+                    }
+                    try {
+                        Thread.sleep(100);
+                    }catch(InterruptedException interrupted) {
+                        throw new InterruptedIOException();
+                    }
+                }
+            }
+        }
+
+
+        void sendQueue() {
+            MP3Song song = songs.get(ThreadLocalRandom.current().nextInt(songs.size()));
+            send("CLIENT_QUEUE", UUID, song.getFileName());
+            queueRequests.incrementAndGet();
+        }
+
+
+        void sendSongsRequest() {
+            send("CLIENT_SONGS_REQUEST");
+            songRequests.incrementAndGet();
+        }
+
+
+        void sendNowPlayingRequest() {
+            send("CLIENT_NOW_PLAYING_REQUEST");
+            nowPlayingRequests.incrementAndGet();
+        }
+
+
+        /**
+         * Sends {@code lines} as a single request.
+         *
+         * @param lines
+         *        of a request
+         */
+        private void send(String... lines) {
+            synchronized(writer) {
+                try {
+                    for(String line : lines) {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                    writer.flush();
+                }catch(IOException exception) {
+                    close();
+                }
+            }
+        }
+
+
+        @Override
+        public void run() {
+            try {
+                String line;
+                while((line = reader.readLine()) != null) {
+                    long received = System.nanoTime();
+                    if(line.equals("SERVER_BROADCAST_ENDED")) {
+                        messages++;
+                    }
+                    else if(line.equals("SERVER_ENQUEUED") || line.equals("SERVER_QUEUE_INSERT")) {
+                        String songName = reader.readLine();
+                        String queuer = reader.readLine();
+                        record(line, enqueueTimes.get(key(queuer, songName)), received);
+                    }
+                    else if(line.equals("SERVER_NOW_PLAYING")) {
+                        String songName = reader.readLine();
+                        String key = key(reader.readLine(), songName);
+                        Long changed = nowPlayingTimes.get(key);
+                        if(changed != null && !changed.equals(nowPlayingSeen.put(key, changed))) {
+                            record(line, changed, received);
+                        }
+                    }
+                    else if(line.equals("SERVER_MOVE_UP")) {
+                        recordDequeues(line, 1, received);
+                    }
+                    else if(line.equals("SERVER_QUEUE_LIST")) {
+                        recordDequeues(line, Integer.MAX_VALUE, received);
+                    }
+                    else if(line.equals("SERVER_SONG_DELTA")) {
+                        reader.readLine();
+                        long version = Long.parseLong(reader.readLine());
+                        for(long changed = catalogVersion < 0 ? version : catalogVersion + 1; changed <= version; changed++) {
+                            record(line, catalogTimes.get(changed), received);
+                        }
+                        catalogVersion = version;
+                    }
+                }
+            }catch(IOException exception) {
+                // Socket is closed at the end of a test.
+            }
+        }
+
+
+        /**
+         * Records latency of {@code message} received at {@code received} for a change made at {@code changed}.
+         *
+         * @param message
+         *        first line of a received message
+         *
+         * @param changed
+         *        time of a change, {@code null} if it is not known
+         *
+         * @param received
+         *        time at which a message was read
+         */
+        private void record(String message, Long changed, long received) {
+            if(changed != null && changed >= measureFrom) {
+                samples.computeIfAbsent(message, opcode -> new LatencySamples()).add(received - changed);
+            }
+        }
+
+
+        /**
+         * Records latency of a message which tells this client about at most {@code count} skips it was not
+         * told about yet.
+         *
+         * @param message
+         *        first line of a received message
+         *
+         * @param count
+         *        maximum number of skips in a message
+         *
+         * @param received
+         *        time at which a message was read
+         */
+        private void recordDequeues(String message, int count, long received) {
+            int logged = dequeueTimes.size();
+            for(int i = 0; i < count && nextDequeue < logged; i++) {
+                record(message, dequeueTimes.get(nextDequeue++), received);
+            }
+        }
+
+
+        /**
+         * Disconnects this client.
+         */
+        void close() {
+            try {
+                socket.close();
+            }catch(IOException ex) {
+                System.out.println("Couldn't close a socket, ignoring it.");
+            }
+        }
+    }
+
+
+    /**
+     * Growable array of latencies in nanoseconds.
+     *
+     * @author Ivica Duspara
+     * @version 1.0
+     */
+    private static final class LatencySamples {
+
+        private long[] values = new long[1024];
+
+        private int size;
+
+
+        void add(long value) {
+            if(size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+
+        void addAll(LatencySamples other) {
+            for(int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+
+        int size() {
+            return size;
+        }
+
+
+        void sort() {
+            Arrays.sort(values, 0, size);
+        }
+
+
+        /**
+         * Returns value below which {@code fraction} of sorted samples lie.
+         *
+         * @param fraction
+         *        between 0 and 1
+         *
+         * @return
+         *        value at {@code fraction}
+         */
+        long percentile(double fraction) {
+            int index = (int) Math.ceil(fraction * size) - 1;
+            return values[Math.max(0, Math.min(size - 1, index))];
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import song.MP3Song;
+import song.SongTags;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests turns which {@link FairShareQueue} gives to clients by stride scheduling, with equal and with
+ * different weights, and positions at which it inserts queued songs.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public class FairShareQueueTest {
+
+    private FairShareQueue queue;
+
+    private int nextSong;
+
+
+    @Before
+    public void setUp() {
+        queue = new FairShareQueue();
+    }
+
+
+    @After
+    public void tearDown() {
+        System.clearProperty(FairShareQueue.WEIGHTS_PROPERTY);
+    }
+
+
+    @Test
+    public void equalWeightsTakeTurns() {
+        enqueue("a", 3);
+        enqueue("b", 3);
+        enqueue("c", 1);
+
+        assertEquals(Arrays.asList("a", "b", "c", "a", "b", "a", "b"), play(7));
+    }
+
+
+    /**
+     * Client with weight 2 plays twice as often as a client with weight 1 while both have songs.
+     */
+    @Test
+    public void weightSetsShareOfTurns() {
+        queue.setWeight("heavy", 2);
+        enqueue("heavy", 20);
+        enqueue("light", 20);
+
+        List<String> played = play(12);
+
+        assertEquals(8, count(played, "heavy"));
+        assertEquals(4, count(played, "light"));
+    }
+
+
+    /**
+     * Changing a weight moves songs which a client already queued.
+     */
+    @Test
+    public void changedWeightMovesQueuedSongs() {
+        enqueue("a", 6);
+        enqueue("b", 6);
+        queue.setWeight("b", 3);
+
+        List<String> played = play(8);
+
+        assertEquals(6, count(played, "b"));
+    }
+
+
+    @Test
+    public void weightsAreReadFromProperty() {
+        System.setProperty(FairShareQueue.WEIGHTS_PROPERTY, "heavy=3, broken, light=x");
+        queue = FairShareQueue.fromProperties();
+        enqueue("heavy", 10);
+        enqueue("light", 10);
+
+        assertEquals(6, count(play(8), "heavy"));
+    }
+
+
+    @Test
+    public void weightMustBePositive() {
+        try {
+            queue.setWeight("a", 0);
+            fail("Weight 0 was accepted.");
+        }catch(IllegalArgumentException exception) {
+            assertTrue(exception.getMessage().contains("0"));
+        }
+    }
+
+
+    /**
+     * Client which was idle while others played can not use saved up turns to play several songs in a row.
+     */
+    @Test
+    public void idleClientDoesNotSaveTurns() {
+        enqueue("busy", 10);
+        play(6);
+        enqueue("idle", 3);
+
+        assertEquals(Arrays.asList("idle", "busy", "idle", "busy", "idle"), play(5));
+    }
+
+
+    /**
+     * Position returned by enqueue is where a song ends up in playing order, and songs queued earlier do not move.
+     */
+    @Test
+    public void enqueueReturnsInsertPosition() {
+        for(int i = 0; i < 200; i++) {
+            String UUID = "client" + (i * 7 % 13);
+            List<QueueEntry> before = queue.entries();
+            MP3Song song = song();
+            int position = queue.enqueue(UUID, song);
+            List<QueueEntry> after = queue.entries();
+
+            assertEquals(song, after.get(position).getSong());
+            assertEquals(before.size() + 1, after.size());
+            for(int j = 0; j < before.size(); j++) {
+                assertEquals(before.get(j).getSong(), after.get(j < position ? j : j + 1).getSong());
+            }
+            if(i % 3 == 0) {
+                queue.removeHead();
+            }
+        }
+    }
+
+
+    private void enqueue(String UUID, int songs) {
+        for(int i = 0; i < songs; i++) {
+            queue.enqueue(UUID, song());
+        }
+    }
+
+
+    private List<String> play(int songs) {
+        List<String> played = new ArrayList<>();
+        for(int i = 0; i < songs; i++) {
+            played.add(queue.removeHead().getUUID());
+        }
+        return played;
+    }
+
+
+    private static int count(List<String> played, String UUID) {
+        int count = 0;
+        for(String requester : played) {
+            if(requester.equals(UUID)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    private MP3Song song() {
+        int id = nextSong++;
+        return new MP3Song(Paths.get("song" + id + ".mp3"), "song" + id + ".mp3", id, 0, 0, 0, SongTags.EMPTY);
+    }
+}
@@ -0,0 +1,141 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+import song.MP3Song;
+import song.SongTags;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests positions which {@link QueueIndex} counts in its Fenwick tree while entries are removed from the head
+ * and from the middle of a queue and while slots are compacted.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public class QueueIndexTest {
+
+    private QueueIndex queue;
+
+
+    @Before
+    public void setUp() {
+        queue = new QueueIndex();
+    }
+
+
+    @Test
+    public void positionsSkipRemovedEntries() {
+        for(int i = 0; i < 5; i++) {
+            assertEquals(i, queue.enqueue("client" + i, song(i)));
+        }
+        queue.remove("client1");
+        queue.remove("client3");
+
+        assertEquals(0, queue.positionOf("client0"));
+        assertEquals(1, queue.positionOf("client2"));
+        assertEquals(2, queue.positionOf("client4"));
+        assertEquals(-1, queue.positionOf("client1"));
+
+        assertEquals("client0", queue.removeHead().getUUID());
+        assertEquals(0, queue.positionOf("client2"));
+        assertEquals(1, queue.positionOf("client4"));
+        assertEquals(2, queue.size());
+    }
+
+
+    /**
+     * Client which already has a song keeps its position, only its song is replaced.
+     */
+    @Test
+    public void replacedSongKeepsPosition() {
+        queue.enqueue("first", song(1));
+        queue.enqueue("second", song(2));
+        queue.enqueue("third", song(3));
+        queue.remove("first");
+
+        assertEquals(0, queue.enqueue("second", song(4)));
+        assertEquals(song(4), queue.get("second"));
+        assertEquals(2, queue.size());
+    }
+
+
+    /**
+     * Enqueuing many more songs than initial slots, with removals in between, compacts slots several times.
+     * Every position is compared with a plain list.
+     */
+    @Test
+    public void positionsMatchListThroughCompactions() {
+        Random random = new Random(11);
+        List<String> expected = new ArrayList<>();
+        for(int step = 0; step < 5000; step++) {
+            String UUID = "client" + random.nextInt(200);
+            int operation = random.nextInt(4);
+            if(operation < 2) {
+                int position = queue.enqueue(UUID, song(step));
+                if(!expected.contains(UUID)) {
+                    expected.add(UUID);
+                }
+                assertEquals(expected.indexOf(UUID), position);
+            }
+            else if(operation == 2) {
+                queue.remove(UUID);
+                expected.remove(UUID);
+            }
+            else {
+                QueueEntry head = queue.removeHead();
+                if(expected.isEmpty()) {
+                    assertNull(head);
+                }
+                else {
+                    assertEquals(expected.remove(0), head.getUUID());
+                }
+            }
+            assertEquals(expected.size(), queue.size());
+            if(step % 50 == 0) {
+                for(int i = 0; i < expected.size(); i++) {
+                    assertEquals(i, queue.positionOf(expected.get(i)));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Returned entries are a copy, later changes of a queue do not affect them.
+     */
+    @Test
+    public void entriesAreNotAffectedByLaterChanges() {
+        queue.enqueue("first", song(1));
+        queue.enqueue("second", song(2));
+        List<QueueEntry> entries = queue.entries();
+        queue.removeHead();
+        queue.enqueue("third", song(3));
+
+        assertEquals(2, entries.size());
+        assertEquals("first", entries.get(0).getUUID());
+        assertEquals(Arrays.asList("second", "third"), uuids(queue.entries()));
+    }
+
+
+    private static List<String> uuids(List<QueueEntry> entries) {
+        List<String> uuids = new ArrayList<>();
+        for(QueueEntry entry : entries) {
+            uuids.add(entry.getUUID());
+        }
+        return uuids;
+    }
+
+
+    private static MP3Song song(long id) {
+        return new MP3Song(Paths.get("song" + id + ".mp3"), "song" + id + ".mp3", id, 0, 0, 0, SongTags.EMPTY);
+    }
+}
@@ -0,0 +1,145 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+import song.MP3Song;
+import song.SongTags;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link SearchIndex#search(String)} over trigram, pair and single character lists, and how an index
+ * behaves when songs are removed and loaded again.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public class SearchIndexTest {
+
+    private SearchIndex index;
+
+    private MP3Song alpha;
+
+    private MP3Song alphabet;
+
+    private MP3Song split;
+
+    private MP3Song gamma;
+
+
+    @Before
+    public void setUp() {
+        index = new SearchIndex();
+        alpha = song(1, "Alpha Beta.mp3");
+        alphabet = song(2, "alphabet.mp3");
+        split = song(3, "abcd bcde.mp3");
+        gamma = song(4, "gamma.mp3");
+        index.addAll(Arrays.asList(alpha, alphabet, split, gamma));
+    }
+
+
+    /**
+     * A song is found only if it contains every trigram of a query, ignoring case.
+     */
+    @Test
+    public void queryIntersectsListsOfItsTrigrams() {
+        assertEquals(Arrays.asList(alpha, alphabet), index.search("ALPH"));
+        assertEquals(Arrays.asList(alphabet), index.search("phabe"));
+        assertEquals(Collections.emptyList(), index.search("alphaz"));
+    }
+
+
+    /**
+     * A song which contains every trigram of a query, but not a query itself, is not found.
+     */
+    @Test
+    public void candidatesOfIntersectionAreChecked() {
+        assertEquals(Collections.emptyList(), index.search("abcde"));
+        assertEquals(Arrays.asList(split), index.search("bcde"));
+    }
+
+
+    @Test
+    public void shortQueriesUseTheirOwnLists() {
+        assertEquals(Arrays.asList(alpha, alphabet, split, gamma), index.search("a"));
+        assertEquals(Arrays.asList(split), index.search("e."));
+        assertEquals(Arrays.asList(alpha, alphabet), index.search("ph"));
+        assertEquals(Collections.emptyList(), index.search("q"));
+        assertEquals(Arrays.asList(alpha, alphabet, split, gamma), index.search(""));
+    }
+
+
+    /**
+     * A removed song is not found by any kind of query, and once it is loaded again it is found after songs
+     * which were loaded before it.
+     */
+    @Test
+    public void removedSongIsFoundOnlyOnceAddedAgain() {
+        index.removeAll(Collections.singletonList(alpha));
+
+        assertEquals(Arrays.asList(alphabet), index.search("alph"));
+        assertEquals(Arrays.asList(alphabet, split, gamma), index.search("a"));
+        assertEquals(Collections.emptyList(), index.fuzzySearch("beta", 10));
+        assertEquals(3, index.size());
+
+        index.addAll(Collections.singletonList(alpha));
+
+        assertEquals(Arrays.asList(alphabet, alpha), index.search("alph"));
+        assertEquals(Arrays.asList(alpha), index.fuzzySearch("beta", 10));
+        assertEquals(4, index.size());
+    }
+
+
+    /**
+     * Removing most songs compacts an index, which must keep order of remaining songs and every list.
+     */
+    @Test
+    public void compactedIndexKeepsOrder() {
+        List<MP3Song> added = new ArrayList<>();
+        for(int i = 0; i < 20; i++) {
+            added.add(song(10 + i, "track " + i + " alpha.mp3"));
+        }
+        index.addAll(added);
+        index.removeAll(added.subList(0, 15));
+
+        List<MP3Song> expected = new ArrayList<>(Arrays.asList(alpha, alphabet));
+        expected.addAll(added.subList(15, 20));
+        assertEquals(expected, index.search("alpha"));
+        assertEquals(expected.size(), index.search("ph").size());
+        assertEquals(Arrays.asList(added.get(17)), index.fuzzySearch("alpah 17", 10));
+
+        index.addAll(added.subList(0, 1));
+
+        expected.add(added.get(0));
+        assertEquals(expected, index.search("alpha"));
+    }
+
+
+    /**
+     * Fuzzy matches are ranked by distance, then in order in which songs were loaded.
+     */
+    @Test
+    public void fuzzySearchRanksByDistance() {
+        MP3Song alpaca = song(5, "alpaca.mp3");
+        MP3Song alpa = song(6, "alpa.mp3");
+        index.addAll(Collections.singletonList(alpaca));
+
+        assertEquals(Arrays.asList(alpha, alpaca), index.fuzzySearch("alpa", 10));
+        assertEquals(Arrays.asList(alpha), index.fuzzySearch("alpa", 1));
+
+        index.addAll(Collections.singletonList(alpa));
+
+        assertEquals(Arrays.asList(alpa, alpha, alpaca), index.fuzzySearch("alpa", 10));
+    }
+
+
+    private static MP3Song song(long id, String fileName) {
+        return new MP3Song(Paths.get(fileName), fileName, id, 0, 0, 0, SongTags.EMPTY);
+    }
+}
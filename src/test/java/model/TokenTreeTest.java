@@ -0,0 +1,104 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests edit distance of {@link TokenTree} and that its search finds exactly the words within a distance bound.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public class TokenTreeTest {
+
+    private TokenTree tree;
+
+
+    @Before
+    public void setUp() {
+        tree = new TokenTree();
+    }
+
+
+    @Test
+    public void distanceCountsEdits() {
+        assertEquals(0, TokenTree.distance("song", "song"));
+        assertEquals(3, TokenTree.distance("kitten", "sitting"));
+        assertEquals(3, TokenTree.distance("", "abc"));
+        assertEquals(2, TokenTree.distance("alpha", "alhpa"));
+        assertEquals(TokenTree.distance("flaw", "lawn"), TokenTree.distance("lawn", "flaw"));
+    }
+
+
+    @Test
+    public void wordIsAddedOnce() {
+        tree.add("rock");
+        tree.add("rock");
+        tree.add("rick");
+
+        assertEquals(2, tree.size());
+    }
+
+
+    @Test
+    public void distanceZeroFindsOnlyTheWord() {
+        tree.add("rock");
+        tree.add("rick");
+        tree.add("rocks");
+
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("rock", 0);
+        assertEquals(expected, tree.find("rock", 0));
+        assertTrue(tree.find("roll", 0).isEmpty());
+    }
+
+
+    /**
+     * Search skips subtrees by distance bounds, so it is compared with checking every word for every bound.
+     */
+    @Test
+    public void findsExactlyWordsWithinBound() {
+        Random random = new Random(7);
+        List<String> words = new ArrayList<>();
+        for(int i = 0; i < 2000; i++) {
+            String word = randomWord(random);
+            words.add(word);
+            tree.add(word);
+        }
+        for(int i = 0; i < 50; i++) {
+            String query = randomWord(random);
+            for(int maxDistance = 0; maxDistance <= 3; maxDistance++) {
+                Map<String, Integer> expected = new HashMap<>();
+                for(String word : words) {
+                    int distance = TokenTree.distance(word, query);
+                    if(distance <= maxDistance) {
+                        expected.put(word, distance);
+                    }
+                }
+                assertEquals(expected, tree.find(query, maxDistance));
+            }
+        }
+    }
+
+
+    /**
+     * Returns a word of two to eight characters from a small alphabet, so that many words are close.
+     */
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 2 + random.nextInt(7);
+        for(int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(4)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package protocol;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests how {@link BinaryFrameReader} decodes varints from a payload, from a stream and from a buffer of
+ * a non-blocking connection, and how it rejects truncated and overlong ones.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public class BinaryFrameReaderTest {
+
+    private static final long[] VALUES = {0, 1, 127, 128, 300, 16_383, 16_384, Integer.MAX_VALUE,
+            Long.MAX_VALUE, -1, Long.MIN_VALUE};
+
+    private BinaryFrameReader reader;
+
+
+    @Before
+    public void setUp() {
+        reader = new BinaryFrameReader();
+    }
+
+
+    @Test
+    public void varintsRoundTrip() throws IOException {
+        for(long value : VALUES) {
+            byte[] bytes = varint(value);
+
+            assertEquals(value, read(bytes).readVarint());
+            assertEquals(value, BinaryFrameReader.readVarint(new ByteArrayInputStream(bytes)));
+            assertEquals(bytes.length, BinaryFrameReader.varintLength(ByteBuffer.wrap(bytes), 0, bytes.length));
+            assertEquals(value, BinaryFrameReader.varintAt(ByteBuffer.wrap(bytes), 0));
+        }
+    }
+
+
+    /**
+     * Every prefix of a varint is truncated. A payload must fail, a stream must end, and a buffer of
+     * a connection must wait for more bytes.
+     */
+    @Test
+    public void truncatedVarints() throws IOException {
+        byte[] bytes = varint(Long.MAX_VALUE);
+        for(int length = 0; length < bytes.length; length++) {
+            byte[] prefix = new byte[length];
+            System.arraycopy(bytes, 0, prefix, 0, length);
+
+            assertTruncated(() -> read(prefix).readVarint());
+            try {
+                BinaryFrameReader.readVarint(new ByteArrayInputStream(prefix));
+                fail("Truncated varint was read from a stream.");
+            }catch(EOFException exception) {
+                assertTrue(exception.getMessage().contains("Truncated"));
+            }
+            assertEquals(0, BinaryFrameReader.varintLength(ByteBuffer.wrap(bytes), 0, length));
+        }
+    }
+
+
+    /**
+     * Varint which does not fit in a {@code long} is malformed, whether it has too many bytes or its last byte
+     * holds too many bits.
+     */
+    @Test
+    public void overlongVarints() {
+        byte[] tooLong = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80,
+                (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0};
+        byte[] overflow = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x02};
+        for(byte[] bytes : new byte[][] {tooLong, overflow}) {
+            assertMalformed(() -> read(bytes).readVarint());
+            assertMalformed(() -> BinaryFrameReader.readVarint(new ByteArrayInputStream(bytes)));
+            assertMalformed(() -> BinaryFrameReader.varintLength(ByteBuffer.wrap(bytes), 0, bytes.length));
+        }
+    }
+
+
+    @Test
+    public void stringsAndTheirLengths() throws IOException {
+        byte[] text = "Pjesma".getBytes("UTF-8");
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.write(varint(text.length));
+        payload.write(text);
+
+        assertEquals("Pjesma", read(payload.toByteArray()).readString());
+
+        byte[] truncated = new byte[payload.size() - 1];
+        System.arraycopy(payload.toByteArray(), 0, truncated, 0, truncated.length);
+        assertTruncated(() -> read(truncated).readString());
+        assertTruncated(() -> read(varint(-1)).readString());
+    }
+
+
+    @Test
+    public void readerStaysWithinItsRegion() throws IOException {
+        byte[] bytes = {5, 6, 7, 8};
+        reader.reset(ByteBuffer.wrap(bytes), 1, 2);
+
+        assertEquals(2, reader.remaining());
+        assertEquals(6, reader.readByte());
+        assertEquals(7, reader.readByte());
+        assertTruncated(() -> reader.readByte());
+    }
+
+
+    private BinaryFrameReader read(byte[] bytes) {
+        reader.reset(ByteBuffer.wrap(bytes), 0, bytes.length);
+        return reader;
+    }
+
+
+    /**
+     * Returns {@code value} as an unsigned LEB128 varint.
+     */
+    private static byte[] varint(long value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        while((value & ~0x7FL) != 0) {
+            bytes.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes.write((int) value);
+        return bytes.toByteArray();
+    }
+
+
+    private static void assertMalformed(Read read) {
+        assertFails(read, "Malformed");
+    }
+
+
+    private static void assertTruncated(Read read) {
+        assertFails(read, "Truncated");
+    }
+
+
+    private static void assertFails(Read read, String message) {
+        try {
+            read.run();
+            fail("Expected: " + message);
+        }catch(IOException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().contains(message));
+        }
+    }
+
+
+    /**
+     * Read which is expected to fail.
+     */
+    private interface Read {
+
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,261 @@
+package song;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests how {@link ID3Reader} reads frames of ID3v2.3 and ID3v2.4 tags, depending on flags of a tag and of its
+ * frames, and how it falls back to an ID3v1 tag.
+ *
+ * @author Ivica Duspara
+ * @version 1.0
+ */
+public class ID3ReaderTest {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    /**
+     * Bytes of an MPEG frame header, which an unsynchronised tag must not contain.
+     */
+    private static final byte[] FALSE_SYNC = {(byte) 0xFF, (byte) 0xE0};
+
+    private Path file;
+
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("id3", ".mp3");
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+
+    @Test
+    public void readsTextFramesOfVersion3() throws IOException {
+        write(tag(3, 0, frame(3, "TIT2", 0, text("Title")), frame(3, "TPE1", 0, text("Artist")),
+                frame(3, "TCON", 0, text("(17)"))));
+
+        SongTags tags = ID3Reader.read(file);
+
+        assertEquals("Title", tags.getTitle());
+        assertEquals("Artist", tags.getArtist());
+        assertEquals("Rock", tags.getGenre());
+    }
+
+
+    /**
+     * Compressed and encrypted frames of version 3 are skipped, a grouped frame starts with a group byte.
+     */
+    @Test
+    public void version3FrameFlags() throws IOException {
+        write(tag(3, 0, frame(3, "TIT2", 0x80, text("Compressed")), frame(3, "TPE1", 0x40, text("Encrypted")),
+                frame(3, "TALB", 0x20, concat(new byte[] {7}, text("Grouped")))));
+
+        SongTags tags = ID3Reader.read(file);
+
+        assertNull(tags.getTitle());
+        assertNull(tags.getArtist());
+        assertEquals("Grouped", tags.getAlbum());
+    }
+
+
+    /**
+     * A frame of version 4 may be preceded by a group byte and a data length indicator, and may be unsynchronised
+     * on its own. Compressed and encrypted frames are skipped.
+     */
+    @Test
+    public void version4FrameFlags() throws IOException {
+        byte[] unsynchronised = concat(text("Fo"), new byte[] {(byte) 0xFF, 0, (byte) 0xE0}, "o".getBytes(ISO_8859_1));
+        write(tag(4, 0, frame(4, "TIT2", 0x08, text("Compressed")), frame(4, "TYER", 0x04, text("1999")),
+                frame(4, "TPE1", 0x41, concat(new byte[] {7, 0, 0, 0, 6}, text("Artist"))),
+                frame(4, "TALB", 0x02, unsynchronised)));
+
+        SongTags tags = ID3Reader.read(file);
+
+        assertNull(tags.getTitle());
+        assertNull(tags.getYear());
+        assertEquals("Artist", tags.getArtist());
+        assertEquals("Foÿào", tags.getAlbum());
+    }
+
+
+    /**
+     * Sizes of frames of version 4 are syncsafe, so a frame longer than 127 bytes must not be read as a plain
+     * integer.
+     */
+    @Test
+    public void version4SyncsafeFrameSize() throws IOException {
+        StringBuilder title = new StringBuilder();
+        for(int i = 0; i < 200; i++) {
+            title.append((char) ('a' + i % 26));
+        }
+        write(tag(4, 0, frame(4, "TIT2", 0, text(title.toString())), frame(4, "TPE1", 0, text("Artist"))));
+
+        SongTags tags = ID3Reader.read(file);
+
+        assertEquals(title.toString(), tags.getTitle());
+        assertEquals("Artist", tags.getArtist());
+    }
+
+
+    /**
+     * Whole tag of version 3 is unsynchronised, including headers of its frames.
+     */
+    @Test
+    public void version3TagUnsynchronisation() throws IOException {
+        byte[] frames = concat(frame(3, "TIT2", 0, concat(text("A"), FALSE_SYNC)), frame(3, "TPE1", 0, text("Artist")));
+        write(tag(3, 0x80, unsynchronise(frames)));
+
+        SongTags tags = ID3Reader.read(file);
+
+        assertEquals("Aÿà", tags.getTitle());
+        assertEquals("Artist", tags.getArtist());
+    }
+
+
+    @Test
+    public void version3ExtendedHeaderIsSkipped() throws IOException {
+        byte[] extended = {0, 0, 0, 6, 0, 0, 0, 0, 0, 0};
+        write(tag(3, 0x40, concat(extended, frame(3, "TIT2", 0, text("Title")))));
+
+        assertEquals("Title", ID3Reader.read(file).getTitle());
+    }
+
+
+    @Test
+    public void version1Tag() throws IOException {
+        write(concat(new byte[1000], v1("Title", "Artist", "Album", "2001", 8)));
+
+        SongTags tags = ID3Reader.read(file);
+
+        assertEquals("Title", tags.getTitle());
+        assertEquals("Artist", tags.getArtist());
+        assertEquals("Album", tags.getAlbum());
+        assertEquals("2001", tags.getYear());
+        assertEquals("Jazz", tags.getGenre());
+    }
+
+
+    /**
+     * Tags which version 2 tag lacks are filled from version 1 tag, those which it has are kept.
+     */
+    @Test
+    public void version1FillsMissingTags() throws IOException {
+        write(concat(tag(4, 0, frame(4, "TIT2", 0, text("Title"))), new byte[100], v1("Old", "Artist", "Album", "2001", 255)));
+
+        SongTags tags = ID3Reader.read(file);
+
+        assertEquals("Title", tags.getTitle());
+        assertEquals("Artist", tags.getArtist());
+        assertEquals("Album", tags.getAlbum());
+        assertNull(tags.getGenre());
+    }
+
+
+    @Test
+    public void fileWithoutTags() throws IOException {
+        write(new byte[500]);
+
+        SongTags tags = ID3Reader.read(file);
+
+        assertNull(tags.getTitle());
+        assertNull(tags.getArtist());
+    }
+
+
+    private void write(byte[] content) throws IOException {
+        Files.write(file, content);
+    }
+
+
+    /**
+     * Returns payload of a text frame in ISO-8859-1.
+     */
+    private static byte[] text(String text) {
+        return concat(new byte[] {0}, text.getBytes(ISO_8859_1));
+    }
+
+
+    /**
+     * Returns a frame with given format flags, whose size is syncsafe in version 4.
+     */
+    private static byte[] frame(int version, String id, int formatFlags, byte[] payload) {
+        byte[] size = version == 4 ? syncsafe(payload.length) : new byte[] {
+                (byte) (payload.length >>> 24), (byte) (payload.length >>> 16), (byte) (payload.length >>> 8),
+                (byte) payload.length};
+        return concat(id.getBytes(ISO_8859_1), size, new byte[] {0, (byte) formatFlags}, payload);
+    }
+
+
+    /**
+     * Returns a tag header with given flags followed by {@code content}.
+     */
+    private static byte[] tag(int version, int flags, byte[]... content) {
+        byte[] body = concat(content);
+        return concat(new byte[] {'I', 'D', '3', (byte) version, 0, (byte) flags}, syncsafe(body.length), body);
+    }
+
+
+    private static byte[] v1(String title, String artist, String album, String year, int genre) {
+        byte[] tag = new byte[ID3Reader.V1_LENGTH];
+        tag[0] = 'T';
+        tag[1] = 'A';
+        tag[2] = 'G';
+        put(tag, 3, title);
+        put(tag, 33, artist);
+        put(tag, 63, album);
+        put(tag, 93, year);
+        tag[127] = (byte) genre;
+        return tag;
+    }
+
+
+    private static void put(byte[] tag, int offset, String field) {
+        byte[] bytes = field.getBytes(ISO_8859_1);
+        System.arraycopy(bytes, 0, tag, offset, bytes.length);
+    }
+
+
+    private static byte[] syncsafe(int value) {
+        return new byte[] {(byte) (value >>> 21 & 0x7F), (byte) (value >>> 14 & 0x7F), (byte) (value >>> 7 & 0x7F),
+                (byte) (value & 0x7F)};
+    }
+
+
+    /**
+     * Inserts a 0 byte after every 0xFF byte.
+     */
+    private static byte[] unsynchronise(byte[] data) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        for(byte b : data) {
+            result.write(b);
+            if((b & 0xFF) == 0xFF) {
+                result.write(0);
+            }
+        }
+        return result.toByteArray();
+    }
+
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        for(byte[] part : parts) {
+            result.write(part, 0, part.length);
+        }
+        return result.toByteArray();
+    }
+}